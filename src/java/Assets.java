@@ -0,0 +1,111 @@
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shared cache of the images bundled with the game.
+ * Images are loaded from the classpath, so the game finds them inside the jar and when started from any
+ * directory. Each image is decoded once into the pixel format of the screen, and each size it is requested at
+ * is scaled once, so drawing it never needs conversion or scaling.
+ */
+public final class Assets {
+    private static final Map<String, BufferedImage> images = new HashMap<>(); // Images by name and size
+
+    /**
+     * Prevents instantiation; all methods are static.
+     */
+    private Assets() {
+    }
+
+    /**
+     * Gets a bundled image at its original size.
+     *
+     * @param name Path of the image relative to the classpath root, e.g. {@code crown.png}
+     * @return The image in a screen-compatible format
+     * @throws IOException if the image is missing or cannot be decoded
+     */
+    public static synchronized BufferedImage getImage(String name) throws IOException {
+        BufferedImage image = images.get(name);
+        if (image == null) {
+            BufferedImage decoded;
+            try (InputStream in = Assets.class.getResourceAsStream("/" + name)) {
+                if (in == null) {
+                    throw new IOException("Missing resource: " + name);
+                }
+                decoded = ImageIO.read(in);
+            }
+            if (decoded == null) {
+                throw new IOException("Unsupported image format: " + name);
+            }
+            image = scale(decoded, decoded.getWidth(), decoded.getHeight());
+            images.put(name, image);
+        }
+        return image;
+    }
+
+    /**
+     * Gets a bundled image scaled to a size.
+     *
+     * @param name   Path of the image relative to the classpath root, e.g. {@code crown.png}
+     * @param width  Width in device pixels
+     * @param height Height in device pixels
+     * @return The scaled image in a screen-compatible format
+     * @throws IOException if the image is missing or cannot be decoded
+     */
+    public static synchronized BufferedImage getImage(String name, int width, int height) throws IOException {
+        String key = name + "@" + width + "x" + height;
+        BufferedImage image = images.get(key);
+        if (image == null) {
+            image = scale(getImage(name), width, height);
+            images.put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * Creates an empty translucent image in the pixel format of the default screen.
+     *
+     * @param width  Width in pixels
+     * @param height Height in pixels
+     * @return A new image
+     */
+    public static BufferedImage createImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
+    /**
+     * Scales an image into a new screen-compatible image.
+     * Large reductions are done in halving steps, since a single bilinear step skips most source pixels and
+     * leaves jagged edges.
+     *
+     * @param source The image to scale
+     * @param width  Target width in pixels
+     * @param height Target height in pixels
+     * @return The scaled image
+     */
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage image = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = w > width ? Math.max(width, w / 2) : width;
+            h = h > height ? Math.max(height, h / 2) : height;
+            BufferedImage step = createImage(w, h);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, w, h, null);
+            g.dispose();
+            image = step;
+        } while (w != width || h != height);
+        return image;
+    }
+}
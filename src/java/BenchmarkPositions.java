@@ -0,0 +1,96 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible positions shared by the JMH benchmarks in {@code src/jmh/java} and the thread scaling reports of
+ * the searches: early and middle game positions, international positions with capture sequences and king
+ * endgames.
+ */
+public class BenchmarkPositions {
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private BenchmarkPositions() {
+    }
+
+    /**
+     * Builds a reproducible set of positions by playing random moves from the starting position.
+     *
+     * @return The starting position followed by early and middle game positions
+     */
+    static List<GameState> positions() {
+        List<GameState> positions = new ArrayList<>();
+        Random random = new Random(42);
+        int[] moves = new int[Bitboard.MAX_MOVES];
+        for (int game = 0; game < 6; game++) {
+            GameState state = new GameState();
+            int plies = 4 * game + (game % 2);
+            for (int ply = 0; ply < plies; ply++) {
+                int count = state.generateMoves(moves, 0);
+                if (count == 0) {
+                    break;
+                }
+                state.makeMove(moves[random.nextInt(count)]);
+            }
+            positions.add(state);
+        }
+        return positions;
+    }
+
+    /**
+     * Builds a reproducible set of international draughts positions in which the side to move must capture,
+     * where move generation searches capture sequences.
+     *
+     * @return Positions from random games, each with at least one capture
+     */
+    static List<GameState> capturePositions() {
+        List<GameState> positions = new ArrayList<>();
+        Random random = new Random(42);
+        int[] moves = new int[Bitboard.MAX_MOVES];
+        while (positions.size() < 64) {
+            GameState state = new GameState(Variant.INTERNATIONAL);
+            for (int ply = 0; ply < 120 && positions.size() < 64; ply++) {
+                int count = state.generateMoves(moves, 0);
+                if (count == 0) {
+                    break;
+                }
+                if (Move.isCapture(moves[0])) {
+                    positions.add(new GameState(state));
+                }
+                state.makeMove(moves[random.nextInt(count)]);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Builds a reproducible set of endgame positions in which every piece is a king, where sliding dominates
+     * move generation.
+     *
+     * @return Positions with two to six kings per side
+     */
+    static Bitboard[] kingEndgames() {
+        Random random = new Random(42);
+        Bitboard[] boards = new Bitboard[64];
+        for (int i = 0; i < boards.length; i++) {
+            long red = 0;
+            long black = 0;
+            int pieces = 4 + random.nextInt(9);
+            for (int piece = 0; piece < pieces; piece++) {
+                long bit;
+                do {
+                    bit = 1L << random.nextInt(Bitboard.SQUARES);
+                } while (((red | black) & bit) != 0);
+                if ((piece & 1) == 0) {
+                    red |= bit;
+                } else {
+                    black |= bit;
+                }
+            }
+            boards[i] = new Bitboard();
+            boards[i].setPosition(red, black, red | black);
+        }
+        return boards;
+    }
+}
@@ -0,0 +1,1586 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bitboard representation of a checkers position.
+ * Only the dark squares of the board are stored. Square {@code 0} is the leftmost dark square of row 0
+ * and squares are numbered left to right, top to bottom, four per row on the standard board. The position is
+ * held in three masks: red pieces, black pieces and kings (of either colour). The board size and the rules the
+ * moves are generated by come from the board's {@link Variant}.
+ * Boards larger than 10x10 have more squares than a {@code long} holds, so each mask has a second word for the
+ * squares from 64 on. Their moves are generated square by square from the variant's neighbour table and played
+ * piece by piece; boards up to 10x10 leave the second words empty and keep the whole-mask operations.
+ * Where the variant has multiple jumps, every capture sequence is generated as one move by a depth-first search
+ * that lifts the moving piece and marks jumped pieces in the enemy mask, undoing each jump on the way back;
+ * jumped pieces stay on the board until the sequence ends, so they block and cannot be jumped twice. A flying
+ * king may land on any empty square behind the piece it jumps, and each landing square is searched on.
+ * The generated moves are the only definition of a legal move; checking and finding a move given by its squares
+ * goes through them too.
+ * Besides the hash, every change keeps the sum of the pieces' square values from the board's {@link Evaluator}
+ * up to date, so evaluating a position does not have to scan the board.
+ */
+public class Bitboard {
+    /**
+     * Number of rows and columns of the standard board.
+     */
+    public static final int BOARD_SIZE = 8;
+    /**
+     * Number of playable (dark) squares of the standard board.
+     */
+    public static final int SQUARES = 32;
+    /**
+     * Number of squares of the largest board; every square index on any board is below it.
+     */
+    public static final int MAX_SQUARES = Variant.MAX_BOARD_SIZE * Variant.MAX_BOARD_SIZE / 2;
+    /**
+     * Upper bound on the number of moves written for one position; the size a move buffer needs. Flying kings
+     * where every sequence may be played can have a couple of thousand capture sequences on a 12x12 board.
+     */
+    public static final int MAX_MOVES = 4096;
+
+    /**
+     * Direction towards row 0 and column 0.
+     */
+    public static final int UP_LEFT = 0;
+    /**
+     * Direction towards row 0 and the last column.
+     */
+    public static final int UP_RIGHT = 1;
+    /**
+     * Direction towards the last row and column 0.
+     */
+    public static final int DOWN_LEFT = 2;
+    /**
+     * Direction towards the last row and the last column.
+     */
+    public static final int DOWN_RIGHT = 3;
+
+    /**
+     * Undo flag: the piece captured by the move was a king.
+     */
+    public static final int UNDO_CAPTURED_KING = 1;
+    /**
+     * Undo flag: the moving man was promoted to king.
+     */
+    public static final int UNDO_PROMOTED = 2;
+
+    private static final int MAX_SEQUENCES = MAX_MOVES - 4 * MAX_SQUARES; // Captures one generation keeps, leaving room for quiet moves, at most one per direction onto each square
+    private static final LongAdder LIST_CALLS = MetricsRegistry.DEFAULT.counter("movegen.listCalls"); // Calls of the list-returning wrappers
+
+    private Variant variant; // Board size and rules of the position
+    private long red; // Squares occupied by red pieces
+    private long black; // Squares occupied by black pieces
+    private long kings; // Squares occupied by kings of either colour
+    private long redHigh; // Squares from 64 on occupied by red pieces, shifted down by 64
+    private long blackHigh; // Squares from 64 on occupied by black pieces, shifted down by 64
+    private long kingsHigh; // Squares from 64 on occupied by kings, shifted down by 64
+    private boolean wide; // True if the board has more squares than one mask word holds
+    private long hash; // Zobrist hash of the pieces, kept up to date by every change
+    private Evaluator evaluator = Evaluator.DEFAULT; // Evaluator whose square values are summed
+    private int[] squareValues; // Value of each kind of piece on each square, from the evaluator for the variant
+    private int squareScore; // Red's advantage in square values, kept up to date by every change
+    private long[] sequenceCaptures; // Pieces taken by each capture sequence of the current generation, by buffer slot, or null
+    private long[] sequenceCapturesHigh; // Pieces from square 64 on taken by each capture sequence, or null
+    private int[] sequenceMoves; // Buffer for finding the pieces a sequence takes, or null
+    private int[] lookupMoves; // Buffer for finding a move given by its squares, or null
+    private long[] captureStack; // Pieces taken by the sequences played and not taken back, and which were kings, in pairs per word
+    private int captureDepth; // Number of longs in use on the capture stack
+
+    /**
+     * Constructs an empty standard board.
+     */
+    public Bitboard() {
+        this(Variant.STANDARD);
+    }
+
+    /**
+     * Constructs an empty board of a variant.
+     *
+     * @param variant Board size and rules
+     */
+    public Bitboard(Variant variant) {
+        this.variant = variant;
+        this.wide = variant.getWords() > 1;
+        this.squareValues = evaluator.getSquareTable(variant);
+    }
+
+    /**
+     * Constructs a copy of another board.
+     *
+     * @param other The board to copy
+     */
+    public Bitboard(Bitboard other) {
+        copyFrom(other);
+    }
+
+    /**
+     * Replaces this position with the one held by another board.
+     *
+     * @param other The board to copy
+     */
+    public void copyFrom(Bitboard other) {
+        this.variant = other.variant;
+        this.red = other.red;
+        this.black = other.black;
+        this.kings = other.kings;
+        this.redHigh = other.redHigh;
+        this.blackHigh = other.blackHigh;
+        this.kingsHigh = other.kingsHigh;
+        this.wide = other.wide;
+        this.hash = other.hash;
+        this.evaluator = other.evaluator;
+        this.squareValues = other.squareValues;
+        this.squareScore = other.squareScore;
+        this.captureDepth = other.captureDepth;
+        if (captureDepth > 0) {
+            captureStack = Arrays.copyOf(other.captureStack, other.captureStack.length);
+        }
+    }
+
+    /**
+     * Sets up the starting position: red men on the first rows, black men on the last ones.
+     */
+    public void reset() {
+        reset(variant);
+    }
+
+    /**
+     * Switches to another variant and sets up its starting position.
+     *
+     * @param variant Board size and rules
+     */
+    public void reset(Variant variant) {
+        this.variant = variant;
+        wide = variant.getWords() > 1;
+        squareValues = evaluator.getSquareTable(variant);
+        red = variant.getStart(PieceType.RED, 0);
+        black = variant.getStart(PieceType.BLACK, 0);
+        kings = 0;
+        redHigh = variant.getStart(PieceType.RED, 1);
+        blackHigh = variant.getStart(PieceType.BLACK, 1);
+        kingsHigh = 0;
+        hash = Zobrist.hash(this);
+        squareScore = sumSquareValues();
+        captureDepth = 0;
+    }
+
+    /**
+     * Gets the variant the position is played in.
+     *
+     * @return Board size and rules
+     */
+    public Variant getVariant() {
+        return variant;
+    }
+
+    /**
+     * Sets up an arbitrary position from piece masks, on a board up to 10x10.
+     *
+     * @param red   Squares occupied by red pieces
+     * @param black Squares occupied by black pieces
+     * @param kings Squares occupied by kings of either colour
+     */
+    public void setPosition(long red, long black, long kings) {
+        this.red = red;
+        this.black = black;
+        this.kings = kings;
+        redHigh = 0;
+        blackHigh = 0;
+        kingsHigh = 0;
+        hash = Zobrist.hash(this);
+        squareScore = sumSquareValues();
+        captureDepth = 0;
+    }
+
+    /**
+     * Switches to another evaluator, recomputing the sum of square values once.
+     *
+     * @param evaluator The evaluator whose square values the board keeps summed
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        if (evaluator != this.evaluator) {
+            this.evaluator = evaluator;
+            squareValues = evaluator.getSquareTable(variant);
+            squareScore = sumSquareValues();
+        }
+    }
+
+    /**
+     * Gets the evaluator whose square values the board keeps summed.
+     *
+     * @return The evaluator
+     */
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Gets the sum of the square values of all pieces, red's positive and black's negative.
+     *
+     * @return Red's advantage in square values under the board's evaluator
+     */
+    public int getSquareScore() {
+        return squareScore;
+    }
+
+    /**
+     * Sums the square values of all pieces from scratch.
+     *
+     * @return Red's advantage in square values
+     */
+    private int sumSquareValues() {
+        int score = 0;
+        for (int word = 0; word < variant.getWords(); word++) {
+            for (long pieces = getPieces(PieceType.RED, word) | getPieces(PieceType.BLACK, word); pieces != 0; pieces &= pieces - 1) {
+                int square = word * Long.SIZE + Long.numberOfTrailingZeros(pieces);
+                score += squareValues[Zobrist.kind(getType(square), isKing(square)) * MAX_SQUARES + square];
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Gets the direction opposite to the given one.
+     *
+     * @param direction Direction index
+     * @return The opposite direction
+     */
+    public static int opposite(int direction) {
+        return 3 - direction;
+    }
+
+    /**
+     * Gets the type of the piece standing on a square.
+     *
+     * @param square Square index
+     * @return The type of the piece, or null if the square is empty
+     */
+    public PieceType getType(int square) {
+        long bit = 1L << square; // Shift distances are taken modulo 64, so this is also the bit in the high word
+        if (((square < Long.SIZE ? red : redHigh) & bit) != 0) {
+            return PieceType.RED;
+        }
+        if (((square < Long.SIZE ? black : blackHigh) & bit) != 0) {
+            return PieceType.BLACK;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a king stands on a square.
+     *
+     * @param square Square index
+     * @return True if the square holds a king, otherwise false
+     */
+    public boolean isKing(int square) {
+        return ((square < Long.SIZE ? kings : kingsHigh) & (1L << square)) != 0;
+    }
+
+    /**
+     * Places a piece on an empty square.
+     *
+     * @param square Square index
+     * @param type   Type of the piece
+     * @param king   True to place a king, false to place a man
+     */
+    public void setPiece(int square, PieceType type, boolean king) {
+        long bit = 1L << square;
+        if (square < Long.SIZE) {
+            if (type == PieceType.RED) {
+                red |= bit;
+            } else {
+                black |= bit;
+            }
+            if (king) {
+                kings |= bit;
+            }
+        } else {
+            if (type == PieceType.RED) {
+                redHigh |= bit;
+            } else {
+                blackHigh |= bit;
+            }
+            if (king) {
+                kingsHigh |= bit;
+            }
+        }
+        hash ^= Zobrist.key(Zobrist.kind(type, king), square);
+        squareScore += squareValues[Zobrist.kind(type, king) * MAX_SQUARES + square];
+    }
+
+    /**
+     * Removes whatever piece stands on a square.
+     *
+     * @param square Square index
+     */
+    public void clear(int square) {
+        PieceType type = getType(square);
+        if (type == null) {
+            return;
+        }
+        hash ^= Zobrist.key(Zobrist.kind(type, isKing(square)), square);
+        squareScore -= squareValues[Zobrist.kind(type, isKing(square)) * MAX_SQUARES + square];
+        long bit = ~(1L << square);
+        if (square < Long.SIZE) {
+            red &= bit;
+            black &= bit;
+            kings &= bit;
+        } else {
+            redHigh &= bit;
+            blackHigh &= bit;
+            kingsHigh &= bit;
+        }
+    }
+
+    /**
+     * Gets the squares occupied by one side, on a board up to 10x10.
+     *
+     * @param type Side to query
+     * @return Mask of the side's pieces
+     */
+    public long getPieces(PieceType type) {
+        return type == PieceType.RED ? red : black;
+    }
+
+    /**
+     * Gets the squares held by one mask word that are occupied by one side.
+     *
+     * @param type Side to query
+     * @param word 0 for squares 0 to 63, 1 for the squares from 64 on
+     * @return Mask of the side's pieces, square {@code 64 * word} in bit 0
+     */
+    public long getPieces(PieceType type, int word) {
+        if (word == 0) {
+            return type == PieceType.RED ? red : black;
+        }
+        return type == PieceType.RED ? redHigh : blackHigh;
+    }
+
+    /**
+     * Counts the pieces of one side, on a board of any size.
+     *
+     * @param type Side to count
+     * @return Number of pieces
+     */
+    public int countPieces(PieceType type) {
+        return type == PieceType.RED ? Long.bitCount(red) + Long.bitCount(redHigh)
+                : Long.bitCount(black) + Long.bitCount(blackHigh);
+    }
+
+    /**
+     * Gets the squares occupied by kings of either colour, on a board up to 10x10.
+     *
+     * @return Mask of all kings
+     */
+    public long getKings() {
+        return kings;
+    }
+
+    /**
+     * Gets the squares held by one mask word that are occupied by kings of either colour.
+     *
+     * @param word 0 for squares 0 to 63, 1 for the squares from 64 on
+     * @return Mask of the kings, square {@code 64 * word} in bit 0
+     */
+    public long getKings(int word) {
+        return word == 0 ? kings : kingsHigh;
+    }
+
+    /**
+     * Gets the Zobrist hash of the pieces on the board.
+     * The side to move is not included; combine with {@link Zobrist#side(PieceType)} where it matters.
+     *
+     * @return The position hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the empty squares, on a board up to 10x10.
+     *
+     * @return Mask of all unoccupied playable squares
+     */
+    public long getEmpty() {
+        return ~(red | black) & variant.getFull();
+    }
+
+    /**
+     * Checks if a move is valid, that is one of the generated moves of the piece. A capture names the square
+     * the whole sequence ends on.
+     *
+     * @param from Square of the moving piece
+     * @param to   Destination square
+     * @return True if the move is valid, otherwise false
+     */
+    public boolean isValidMove(int from, int to) {
+        return findGenerated(from, to) != Move.NONE;
+    }
+
+    /**
+     * Moves a piece, removes the enemy pieces it captures and promotes it if it reaches the far row.
+     * The move is expected to be valid.
+     *
+     * @param from Square of the moving piece
+     * @param to   Destination square
+     */
+    public void movePiece(int from, int to) {
+        makeMove(findGenerated(from, to));
+    }
+
+    /**
+     * Builds the packed move that takes the piece on one square to another.
+     *
+     * @param from Square of the moving piece
+     * @param to   Destination square; for a capture sequence, the square it ends on
+     * @return The packed move, or {@link Move#NONE} if the move is not valid
+     */
+    public int findMove(int from, int to) {
+        return findGenerated(from, to);
+    }
+
+    /**
+     * Looks for a move of the piece on a square among the generated moves.
+     * Of several capture sequences ending on the same square, the first one generated is returned.
+     *
+     * @param from Square of the moving piece
+     * @param to   Destination square
+     * @return The packed move, or {@link Move#NONE} if the piece has no move ending there
+     */
+    private int findGenerated(int from, int to) {
+        if (from < 0 || to < 0 || from >= variant.getSquares() || to >= variant.getSquares()) {
+            return Move.NONE;
+        }
+        if (lookupMoves == null) {
+            lookupMoves = new int[MAX_MOVES];
+        }
+        int count = generateMovesForPiece(from, false, lookupMoves, 0);
+        for (int i = 0; i < count; i++) {
+            if (Move.toSquare(lookupMoves[i]) == to) {
+                return lookupMoves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Builds the packed move given by the squares its piece passes: the starting square, every square a jump
+     * lands on and the final square. Capture sequences that take different pieces between the same squares are
+     * told apart by their landing squares. Given only the starting and final squares, a simple move or single
+     * capture is preferred, then the first sequence generated, as {@link #findMove(int, int)} does.
+     *
+     * @param path   Squares of the move in the order they are passed
+     * @param length Number of squares in the path
+     * @return The packed move, or {@link Move#NONE} if the piece has no move along the path
+     */
+    public int findMove(int[] path, int length) {
+        if (length < 2) {
+            return Move.NONE;
+        }
+        for (int i = 0; i < length; i++) {
+            if (path[i] < 0 || path[i] >= variant.getSquares()) {
+                return Move.NONE;
+            }
+        }
+        int from = path[0];
+        int to = path[length - 1];
+        if (lookupMoves == null) {
+            lookupMoves = new int[MAX_MOVES];
+        }
+        int count = generateMovesForPiece(from, false, lookupMoves, 0);
+        if (length == 2) {
+            int found = Move.NONE;
+            for (int i = 0; i < count; i++) {
+                if (Move.toSquare(lookupMoves[i]) == to) {
+                    if (Move.captureCount(lookupMoves[i]) <= 1) {
+                        return lookupMoves[i];
+                    }
+                    found = found == Move.NONE ? lookupMoves[i] : found;
+                }
+            }
+            return found;
+        }
+        if (count == 0) {
+            return Move.NONE;
+        }
+        // Work out the piece every leg jumps; together they tell the sequence apart
+        PieceType type = getType(from);
+        boolean king = isKing(from);
+        int forward = king ? UP_LEFT : type == PieceType.RED ? DOWN_LEFT : UP_LEFT;
+        long taken = 0;
+        long takenHigh = 0;
+        for (int i = 1; i < length; i++) {
+            int over = jumpedSquare(from, path[i - 1], path[i], king, forward, opponent(type), taken, takenHigh);
+            if (over < 0) {
+                return Move.NONE;
+            }
+            if (over < Long.SIZE) {
+                taken |= 1L << over;
+            } else {
+                takenHigh |= 1L << over;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int move = lookupMoves[i];
+            if (Move.toSquare(move) == to && Move.captureCount(move) == length - 1) {
+                int index = findSequence(move);
+                if (sequenceCaptures[index] == taken && sequenceCapturesHigh[index] == takenHigh) {
+                    return move;
+                }
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Writes the squares the piece of a move passes: the starting square, every square a jump lands on and the
+     * final square. Of the ways a capture sequence can take its pieces, the first one found is written.
+     *
+     * @param move The packed move, generated in this position
+     * @param path Receives the squares; needs room for {@link Move#MAX_CAPTURES} + 1 of them
+     * @return Number of squares written
+     * @throws IllegalArgumentException if the move is a capture sequence this position does not have
+     */
+    public int getPath(int move, int[] path) {
+        int from = Move.fromSquare(move);
+        path[0] = from;
+        if (Move.captureCount(move) <= 1) {
+            path[1] = Move.toSquare(move);
+            return 2;
+        }
+        int index = findSequence(move);
+        PieceType type = getType(from);
+        boolean king = isKing(from);
+        int forward = king ? UP_LEFT : type == PieceType.RED ? DOWN_LEFT : UP_LEFT;
+        return tracePath(from, from, king, forward, sequenceCaptures[index], sequenceCapturesHigh[index], 0, 0,
+                Move.toSquare(move), path, 1);
+    }
+
+    /**
+     * Checks if a move cannot be told from another legal move of its piece by the starting and final squares
+     * alone, as happens when capture sequences take different pieces on the way to the same square.
+     *
+     * @param move The packed move
+     * @return True if another legal move of the piece ends on the same square, otherwise false
+     */
+    public boolean isAmbiguous(int move) {
+        if (lookupMoves == null) {
+            lookupMoves = new int[MAX_MOVES];
+        }
+        int count = generateMovesForPiece(Move.fromSquare(move), false, lookupMoves, 0);
+        for (int i = 0; i < count; i++) {
+            if (lookupMoves[i] != move && Move.toSquare(lookupMoves[i]) == Move.toSquare(move)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a packed move is one of the generated moves of its piece, including which pieces a capture
+     * sequence takes.
+     *
+     * @param move The packed move
+     * @return True if the move is legal in this position, otherwise false
+     */
+    public boolean isLegalMove(int move) {
+        if (move == Move.NONE || Move.fromSquare(move) >= variant.getSquares()) {
+            return false;
+        }
+        if (lookupMoves == null) {
+            lookupMoves = new int[MAX_MOVES];
+        }
+        int count = generateMovesForPiece(Move.fromSquare(move), false, lookupMoves, 0);
+        for (int i = 0; i < count; i++) {
+            if (lookupMoves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Plays a packed move produced by the move generator.
+     * The returned undo flags, together with the hash from {@link #getHash()} before the move, are all
+     * {@link #unmakeMove(int, int, long)} needs to restore the previous position. The pieces taken by a capture
+     * sequence are found by generating the moving piece's captures again, and kept on a stack until the move is
+     * taken back, so moves must be taken back in the reverse order they were played.
+     *
+     * @param move The packed move
+     * @return Undo flags: {@link #UNDO_CAPTURED_KING} and {@link #UNDO_PROMOTED}
+     * @throws IllegalArgumentException if the move is a capture sequence this position does not have
+     */
+    public int makeMove(int move) {
+        if (wide) {
+            return makeWideMove(move);
+        }
+        int from = Move.fromSquare(move);
+        int to = Move.toSquare(move);
+        int captured = Move.capturedSquare(move);
+        long fromBit = 1L << from;
+        long toBit = 1L << to;
+        long keep = -1L;
+        int undo = 0;
+        boolean isRed = (red & fromBit) != 0;
+        if (Move.isCapture(move)) {
+            long taken;
+            if (Move.captureCount(move) > 1) {
+                taken = sequenceCaptures[findSequence(move)];
+                pushCaptures(taken, taken & kings);
+            } else {
+                taken = 1L << captured;
+                undo |= (int) (kings >>> captured & 1); // UNDO_CAPTURED_KING
+            }
+            keep = ~taken;
+            int enemyKind = isRed ? 2 : 0;
+            for (long pieces = taken; pieces != 0; pieces &= pieces - 1) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                int kind = enemyKind + (int) (kings >>> square & 1);
+                hash ^= Zobrist.key(kind, square);
+                squareScore -= squareValues[kind * MAX_SQUARES + square];
+            }
+        }
+        long promotion;
+        if (isRed) {
+            red = red ^ fromBit | toBit;
+            black &= keep;
+            promotion = variant.getPromotion(PieceType.RED);
+        } else {
+            black = black ^ fromBit | toBit;
+            red &= keep;
+            promotion = variant.getPromotion(PieceType.BLACK);
+        }
+        int kind = isRed ? 0 : 2;
+        if ((kings & fromBit) != 0) {
+            hash ^= Zobrist.key(kind + 1, from) ^ Zobrist.key(kind + 1, to);
+            squareScore += squareValues[(kind + 1) * MAX_SQUARES + to] - squareValues[(kind + 1) * MAX_SQUARES + from];
+            kings = (kings & ~fromBit | toBit) & keep;
+        } else if ((toBit & promotion) != 0) {
+            hash ^= Zobrist.key(kind, from) ^ Zobrist.key(kind + 1, to);
+            squareScore += squareValues[(kind + 1) * MAX_SQUARES + to] - squareValues[kind * MAX_SQUARES + from];
+            kings = (kings | toBit) & keep;
+            undo |= UNDO_PROMOTED;
+        } else {
+            hash ^= Zobrist.key(kind, from) ^ Zobrist.key(kind, to);
+            squareScore += squareValues[kind * MAX_SQUARES + to] - squareValues[kind * MAX_SQUARES + from];
+            kings &= keep;
+        }
+        return undo;
+    }
+
+    /**
+     * Takes back a move played with {@link #makeMove(int)}.
+     *
+     * @param move         The packed move
+     * @param undo         Undo flags returned by makeMove
+     * @param previousHash Hash of the position before the move
+     */
+    public void unmakeMove(int move, int undo, long previousHash) {
+        if (wide) {
+            unmakeWideMove(move, undo, previousHash);
+            return;
+        }
+        int captured = Move.capturedSquare(move);
+        long fromBit = 1L << Move.fromSquare(move);
+        long toBit = 1L << Move.toSquare(move);
+        boolean wasKing = (kings & toBit) != 0 && (undo & UNDO_PROMOTED) == 0;
+        long restored = 0;
+        long restoredKings = 0;
+        if (Move.captureCount(move) > 1) {
+            restoredKings = captureStack[--captureDepth];
+            restored = captureStack[--captureDepth];
+        } else if (captured != Move.NO_SQUARE) {
+            restored = 1L << captured;
+            restoredKings = (undo & UNDO_CAPTURED_KING) != 0 ? restored : 0;
+        }
+        int kind = (red & toBit) != 0 ? 0 : 2;
+        int kindAfter = kind + (int) (kings >>> Move.toSquare(move) & 1);
+        squareScore += squareValues[(kind + (wasKing ? 1 : 0)) * MAX_SQUARES + Move.fromSquare(move)]
+                - squareValues[kindAfter * MAX_SQUARES + Move.toSquare(move)];
+        for (long pieces = restored; pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            squareScore += squareValues[(2 - kind + (int) (restoredKings >>> square & 1)) * MAX_SQUARES + square];
+        }
+        if ((red & toBit) != 0) {
+            red = red ^ toBit | fromBit;
+            black |= restored;
+        } else {
+            black = black ^ toBit | fromBit;
+            red |= restored;
+        }
+        kings &= ~toBit;
+        if (wasKing) {
+            kings |= fromBit;
+        }
+        kings |= restoredKings;
+        hash = previousHash;
+    }
+
+    /**
+     * Plays a packed move on a board larger than 10x10, piece by piece.
+     *
+     * @param move The packed move
+     * @return Undo flags: {@link #UNDO_CAPTURED_KING} and {@link #UNDO_PROMOTED}
+     * @throws IllegalArgumentException if the move is a capture sequence this position does not have
+     */
+    private int makeWideMove(int move) {
+        int from = Move.fromSquare(move);
+        int to = Move.toSquare(move);
+        int captured = Move.capturedSquare(move);
+        PieceType type = getType(from);
+        boolean king = isKing(from);
+        int undo = 0;
+        if (Move.captureCount(move) > 1) {
+            int index = findSequence(move);
+            long taken = sequenceCaptures[index];
+            long takenHigh = sequenceCapturesHigh[index];
+            pushCaptures(taken, taken & kings);
+            pushCaptures(takenHigh, takenHigh & kingsHigh);
+            clearAll(taken, 0);
+            clearAll(takenHigh, 1);
+        } else if (captured != Move.NO_SQUARE) {
+            undo |= isKing(captured) ? UNDO_CAPTURED_KING : 0;
+            clear(captured);
+        }
+        clear(from);
+        if (!king && variant.isPromotion(type, to)) {
+            king = true;
+            undo |= UNDO_PROMOTED;
+        }
+        setPiece(to, type, king);
+        return undo;
+    }
+
+    /**
+     * Takes back a move played with {@link #makeWideMove(int)}.
+     *
+     * @param move         The packed move
+     * @param undo         Undo flags returned by makeMove
+     * @param previousHash Hash of the position before the move
+     */
+    private void unmakeWideMove(int move, int undo, long previousHash) {
+        int from = Move.fromSquare(move);
+        int to = Move.toSquare(move);
+        int captured = Move.capturedSquare(move);
+        PieceType type = getType(to);
+        boolean king = isKing(to) && (undo & UNDO_PROMOTED) == 0;
+        clear(to);
+        setPiece(from, type, king);
+        PieceType enemy = opponent(type);
+        if (Move.captureCount(move) > 1) {
+            long restoredKingsHigh = captureStack[--captureDepth];
+            long restoredHigh = captureStack[--captureDepth];
+            long restoredKings = captureStack[--captureDepth];
+            long restored = captureStack[--captureDepth];
+            restoreAll(restored, restoredKings, 0, enemy);
+            restoreAll(restoredHigh, restoredKingsHigh, 1, enemy);
+        } else if (captured != Move.NO_SQUARE) {
+            setPiece(captured, enemy, (undo & UNDO_CAPTURED_KING) != 0);
+        }
+        hash = previousHash;
+    }
+
+    /**
+     * Removes the pieces on the squares of one mask word.
+     *
+     * @param pieces Mask of the squares
+     * @param word   Word the mask belongs to
+     */
+    private void clearAll(long pieces, int word) {
+        for (; pieces != 0; pieces &= pieces - 1) {
+            clear(word * Long.SIZE + Long.numberOfTrailingZeros(pieces));
+        }
+    }
+
+    /**
+     * Puts back the pieces a capture sequence took on the squares of one mask word.
+     *
+     * @param pieces Mask of the squares
+     * @param kings  Mask of the squares that held kings
+     * @param word   Word the masks belong to
+     * @param type   Side of the pieces
+     */
+    private void restoreAll(long pieces, long kings, int word, PieceType type) {
+        for (; pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            setPiece(word * Long.SIZE + square, type, (kings >>> square & 1) != 0);
+        }
+    }
+
+    /**
+     * Finds a capture sequence among the captures of its piece, generated again; the sequence is told apart
+     * from others between the same squares by the number it was packed with. The pieces it takes are at the
+     * returned index of {@code sequenceCaptures} (and {@code sequenceCapturesHigh} on a larger board).
+     *
+     * @param move The packed capture sequence
+     * @return Index of the sequence among the piece's captures
+     * @throws IllegalArgumentException if the piece has no such sequence in this position
+     */
+    private int findSequence(int move) {
+        int from = Move.fromSquare(move);
+        PieceType type = getType(from);
+        if (sequenceMoves == null) {
+            sequenceMoves = new int[MAX_MOVES];
+        }
+        int count;
+        if (type == null) {
+            count = 0;
+        } else if (wide) {
+            count = generateWideCaptures(from, type, 0, sequenceMoves, 0);
+        } else {
+            count = generateCaptures(from, type, getPieces(opponent(type)), getEmpty(), sequenceMoves, 0);
+        }
+        for (int i = 0; i < count; i++) {
+            if (sequenceMoves[i] == move) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not a capture sequence of this position: " + Move.toString(move));
+    }
+
+    /**
+     * Finds the landing squares of a capture sequence that takes the given pieces, searching the jumps like
+     * {@link #generateWideJumps} but only over pieces the sequence takes.
+     *
+     * @param from       Square the sequence started from
+     * @param square     Square the last jump landed on, or the starting square before the first jump
+     * @param king       True if the moving piece is a king
+     * @param forward    First forward direction of a man, or {@link #UP_LEFT} for a king
+     * @param target     Mask of the pieces the sequence takes
+     * @param targetHigh Mask of the pieces from square 64 on the sequence takes
+     * @param taken      Mask of the pieces captured so far
+     * @param takenHigh  Mask of the pieces captured so far from square 64 on
+     * @param to         Square the sequence ends on
+     * @param path       Receives the squares passed, the starting square already written
+     * @param length     Number of squares written so far
+     * @return Number of squares in the path, or -1 if the pieces cannot be taken from here
+     */
+    private int tracePath(int from, int square, boolean king, int forward, long target, long targetHigh, long taken,
+                          long takenHigh, int to, int[] path, int length) {
+        if (taken == target && takenHigh == targetHigh) {
+            return square == to ? length : -1;
+        }
+        boolean flying = king && variant.hasFlyingKings();
+        int directions = king || variant.hasBackwardCaptures() ? 4 : 2;
+        for (int i = 0; i < directions; i++) {
+            int direction = (forward + i) & 3;
+            int over = variant.neighbor(square, direction);
+            while (flying && over >= 0 && (over == from || getType(over) == null)) {
+                over = variant.neighbor(over, direction);
+            }
+            if (over < 0 || ((over < Long.SIZE ? target & ~taken : targetHigh & ~takenHigh) & (1L << over)) == 0) {
+                continue;
+            }
+            for (int landing = variant.neighbor(over, direction);
+                 landing >= 0 && (landing == from || getType(landing) == null);
+                 landing = flying ? variant.neighbor(landing, direction) : -1) {
+                path[length] = landing;
+                int end = tracePath(from, landing, king, forward, target, targetHigh,
+                        over < Long.SIZE ? taken | 1L << over : taken,
+                        over < Long.SIZE ? takenHigh : takenHigh | 1L << over, to, path, length + 1);
+                if (end > 0) {
+                    return end;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the piece one jump of a capture sequence takes, going straight from one square to another.
+     *
+     * @param from      Square the sequence started from, which counts as empty
+     * @param square    Square the jump starts on
+     * @param landing   Square the jump lands on
+     * @param king      True if the moving piece is a king
+     * @param forward   First forward direction of a man, or {@link #UP_LEFT} for a king
+     * @param enemy     Side of the pieces to capture
+     * @param taken     Mask of the pieces captured so far, which block but cannot be taken again
+     * @param takenHigh Mask of the pieces captured so far from square 64 on
+     * @return Square of the piece jumped, or -1 if the jump is not a legal capture
+     */
+    private int jumpedSquare(int from, int square, int landing, boolean king, int forward, PieceType enemy,
+                             long taken, long takenHigh) {
+        boolean flying = king && variant.hasFlyingKings();
+        int directions = king || variant.hasBackwardCaptures() ? 4 : 2;
+        for (int i = 0; i < directions; i++) {
+            int direction = (forward + i) & 3;
+            int over = variant.neighbor(square, direction);
+            while (flying && over >= 0 && (over == from || getType(over) == null)) {
+                over = variant.neighbor(over, direction);
+            }
+            if (over < 0 || getType(over) != enemy
+                    || ((over < Long.SIZE ? taken : takenHigh) & (1L << over)) != 0) {
+                continue;
+            }
+            for (int next = variant.neighbor(over, direction); next >= 0 && (next == from || getType(next) == null);
+                 next = flying ? variant.neighbor(next, direction) : -1) {
+                if (next == landing) {
+                    return over;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Keeps the pieces a capture sequence took until it is taken back.
+     *
+     * @param taken      Mask of the captured pieces
+     * @param takenKings Mask of the captured pieces that were kings
+     */
+    private void pushCaptures(long taken, long takenKings) {
+        if (captureStack == null) {
+            captureStack = new long[16];
+        } else if (captureDepth == captureStack.length) {
+            captureStack = Arrays.copyOf(captureStack, captureDepth * 2);
+        }
+        captureStack[captureDepth++] = taken;
+        captureStack[captureDepth++] = takenKings;
+    }
+
+    /**
+     * Checks if a side has at least one legal move, using only mask operations.
+     * A man can move if a forward neighbour is empty or holds an enemy piece with an empty square behind it, or
+     * any neighbour holds one where men capture backwards.
+     * A king can move if any neighbour is empty; otherwise its only possible moves are captures of adjacent
+     * enemy pieces, since a capture further away needs an empty square to slide over first.
+     *
+     * @param type Side to check
+     * @return True if the side can move, otherwise false
+     */
+    public boolean hasMoves(PieceType type) {
+        if (wide) {
+            return hasWideMoves(type);
+        }
+        long own = getPieces(type);
+        long enemy = getPieces(opponent(type));
+        long empty = getEmpty();
+        long men = own & ~kings;
+        long queens = own & kings;
+        int firstForward = type == PieceType.RED ? DOWN_LEFT : UP_LEFT;
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            boolean forward = direction == firstForward || direction == firstForward + 1;
+            long movers = forward ? men | queens : queens;
+            long jumpers = forward || variant.hasBackwardCaptures() ? men | queens : queens;
+            if (jumpers == 0) {
+                continue;
+            }
+            long back = variant.shift(empty, opposite(direction));
+            if ((movers & back) != 0 || (jumpers & variant.shift(enemy & back, opposite(direction))) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a side can capture.
+     * Men and stepping kings are checked with mask operations; flying kings look up the first piece along each
+     * diagonal in the ray tables.
+     *
+     * @param type Side to check
+     * @return True if the side has at least one capture, otherwise false
+     */
+    public boolean hasCaptures(PieceType type) {
+        if (wide) {
+            return hasWideCaptures(type);
+        }
+        long own = getPieces(type);
+        long enemy = getPieces(opponent(type));
+        long empty = getEmpty();
+        long men = own & ~kings;
+        long queens = own & kings;
+        boolean flying = variant.hasFlyingKings();
+        int firstForward = type == PieceType.RED ? DOWN_LEFT : UP_LEFT;
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            boolean forward = direction == firstForward || direction == firstForward + 1;
+            long jumpers = (forward || variant.hasBackwardCaptures() ? men : 0) | (flying ? 0 : queens);
+            if ((variant.shift(variant.shift(jumpers, direction) & enemy, direction) & empty) != 0) {
+                return true;
+            }
+        }
+        if (flying) {
+            for (; queens != 0; queens &= queens - 1) {
+                int square = Long.numberOfTrailingZeros(queens);
+                for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+                    long blockers = variant.ray(square, direction) & ~empty;
+                    if ((blockers & enemy) == 0) {
+                        continue;
+                    }
+                    int blocker = Variant.nearest(blockers, direction);
+                    int landing = variant.neighbor(blocker, direction);
+                    if ((enemy & (1L << blocker)) != 0 && landing >= 0 && (empty & (1L << landing)) != 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes all possible moves for a given side into a caller-owned buffer as packed moves.
+     * Captures are written before simple moves; where capturing is mandatory, simple moves are only written
+     * when there is no capture, and where the longest capture is mandatory, only the sequences capturing the
+     * most pieces are written. Nothing is allocated.
+     *
+     * @param type        Side to move
+     * @param captureOnly Flag to indicate if only capture moves should be considered
+     * @param buffer      Buffer receiving the packed moves; needs {@link #MAX_MOVES} free slots after the offset
+     * @param offset      Index of the first slot to write
+     * @return Index one past the last move written
+     */
+    public int generateMoves(PieceType type, boolean captureOnly, int[] buffer, int offset) {
+        if (wide) {
+            return generateWideMoves(type, captureOnly, buffer, offset);
+        }
+        int start = offset;
+        long own = getPieces(type);
+        long enemy = getPieces(opponent(type));
+        long empty = getEmpty();
+        long men = own & ~kings;
+        int firstForward = type == PieceType.RED ? DOWN_LEFT : UP_LEFT;
+
+        // Men with an enemy piece ahead (or behind, where men capture backwards) and an empty square behind it
+        int jumpDirections = variant.hasBackwardCaptures() ? 4 : 2;
+        for (int i = 0; i < jumpDirections; i++) {
+            int direction = (firstForward + i) & 3;
+            int back = opposite(direction);
+            long jumpers = men & variant.shift(enemy & variant.shift(empty, back), back);
+            for (; jumpers != 0; jumpers &= jumpers - 1) {
+                int from = Long.numberOfTrailingZeros(jumpers);
+                int over = variant.neighbor(from, direction);
+                offset = generateJumps(from, variant.neighbor(over, direction), false, firstForward,
+                        enemy ^ (1L << over), empty | (1L << from), over, 1, 1L << over, start, buffer, offset);
+            }
+        }
+        for (long queens = own & kings; queens != 0; queens &= queens - 1) {
+            offset = generateKingMoves(Long.numberOfTrailingZeros(queens), enemy, empty, true, start, buffer, offset);
+        }
+        if (variant.isMaxCapture() && offset > start) {
+            offset = keepLongest(buffer, start, offset);
+        }
+        if (captureOnly || (variant.isMandatoryCapture() && offset > start)) {
+            return offset;
+        }
+
+        // Men with an empty square ahead
+        for (int direction = firstForward; direction < firstForward + 2; direction++) {
+            for (long movers = men & variant.shift(empty, opposite(direction)); movers != 0; movers &= movers - 1) {
+                int from = Long.numberOfTrailingZeros(movers);
+                buffer[offset++] = Move.encode(from, variant.neighbor(from, direction), Move.NO_SQUARE);
+            }
+        }
+        for (long queens = own & kings; queens != 0; queens &= queens - 1) {
+            offset = generateKingMoves(Long.numberOfTrailingZeros(queens), enemy, empty, false, start, buffer, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Writes all possible moves for the piece on a square into a caller-owned buffer as packed moves, captures
+     * first. Where capturing is mandatory and its side can capture, only the piece's captures are written; where
+     * the longest capture is mandatory, only those of its captures that no other piece can outdo.
+     *
+     * @param square      Square of the piece
+     * @param captureOnly Flag to indicate if only capture moves should be considered
+     * @param buffer      Buffer receiving the packed moves; needs {@link #MAX_MOVES} free slots after the offset
+     * @param offset      Index of the first slot to write
+     * @return Index one past the last move written
+     */
+    public int generateMovesForPiece(int square, boolean captureOnly, int[] buffer, int offset) {
+        PieceType type = square < 0 ? null : getType(square);
+        if (type == null) {
+            return offset;
+        }
+        if (variant.isMaxCapture()) {
+            // Whether a capture is long enough depends on the other pieces too
+            int end = generateMoves(type, captureOnly, buffer, offset);
+            int count = offset;
+            for (int i = offset; i < end; i++) {
+                if (Move.fromSquare(buffer[i]) == square) {
+                    buffer[count++] = buffer[i];
+                }
+            }
+            return count;
+        }
+        int start = offset;
+        if (wide) {
+            offset = generateWideCaptures(square, type, start, buffer, offset);
+            if (captureOnly || (variant.isMandatoryCapture() && (offset > start || hasCaptures(type)))) {
+                return offset;
+            }
+            return generateWideQuietMoves(square, type, buffer, offset);
+        }
+        long enemy = getPieces(opponent(type));
+        long empty = getEmpty();
+        offset = generateCaptures(square, type, enemy, empty, buffer, offset);
+        if (captureOnly || (variant.isMandatoryCapture() && (offset > start || hasCaptures(type)))) {
+            return offset;
+        }
+        if (isKing(square)) {
+            return generateKingMoves(square, enemy, empty, false, start, buffer, offset);
+        }
+        int firstForward = type == PieceType.RED ? DOWN_LEFT : UP_LEFT;
+        for (int direction = firstForward; direction < firstForward + 2; direction++) {
+            int to = variant.neighbor(square, direction);
+            if (to >= 0 && (empty & (1L << to)) != 0) {
+                buffer[offset++] = Move.encode(square, to, Move.NO_SQUARE);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Writes the captures of the piece on a square, in the order {@link #generateMoves} writes them for that
+     * piece, so that sequences between the same squares are numbered the same way by both.
+     *
+     * @param square Square of the piece
+     * @param type   Side of the piece
+     * @param enemy  Mask of enemy pieces
+     * @param empty  Mask of empty squares
+     * @param buffer Buffer receiving the packed moves; needs {@link #MAX_MOVES} free slots after the offset
+     * @param offset Index of the first slot to write
+     * @return Index one past the last move written
+     */
+    private int generateCaptures(int square, PieceType type, long enemy, long empty, int[] buffer, int offset) {
+        int start = offset;
+        if (isKing(square)) {
+            return generateKingMoves(square, enemy, empty, true, start, buffer, offset);
+        }
+        int firstForward = type == PieceType.RED ? DOWN_LEFT : UP_LEFT;
+        int directions = variant.hasBackwardCaptures() ? 4 : 2;
+        for (int i = 0; i < directions; i++) {
+            int direction = (firstForward + i) & 3;
+            int over = variant.neighbor(square, direction);
+            if (over < 0 || (enemy & (1L << over)) == 0) {
+                continue;
+            }
+            int landing = variant.neighbor(over, direction);
+            if (landing >= 0 && (empty & (1L << landing)) != 0) {
+                offset = generateJumps(square, landing, false, firstForward, enemy ^ (1L << over),
+                        empty | (1L << square), over, 1, 1L << over, start, buffer, offset);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Writes either the captures or the quiet moves of a king. A flying king slides over every empty square up
+     * to the first piece in each direction and, when that piece is an enemy, captures it by landing on any of
+     * the empty squares behind it; other kings only look at the neighbouring square. The first piece is found
+     * in the ray tables, and quiet moves and landing squares are taken nearest square first.
+     *
+     * @param square   Square of the king
+     * @param enemy    Mask of enemy pieces
+     * @param empty    Mask of empty squares
+     * @param captures True to write the captures, false to write the quiet moves
+     * @param start    Index of the first move of the current generation
+     * @param buffer   Buffer receiving the packed moves
+     * @param offset   Index of the first slot to write
+     * @return Index one past the last move written
+     */
+    private int generateKingMoves(int square, long enemy, long empty, boolean captures, int start, int[] buffer,
+                                  int offset) {
+        boolean flying = variant.hasFlyingKings();
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            long ray;
+            if (flying) {
+                ray = variant.ray(square, direction);
+            } else {
+                int next = variant.neighbor(square, direction);
+                ray = next < 0 ? 0 : 1L << next;
+            }
+            long blockers = ray & ~empty;
+            int blocker = blockers == 0 ? -1 : Variant.nearest(blockers, direction);
+            if (!captures) {
+                long slide = blocker < 0 ? ray : ray & ~variant.ray(blocker, direction) & ~(1L << blocker);
+                while (slide != 0) {
+                    int to = Variant.nearest(slide, direction);
+                    slide ^= 1L << to;
+                    buffer[offset++] = Move.encode(square, to, Move.NO_SQUARE);
+                }
+            } else if (blocker >= 0 && (enemy & (1L << blocker)) != 0) {
+                long over = 1L << blocker;
+                for (int landing = variant.neighbor(blocker, direction); landing >= 0 && (empty & (1L << landing)) != 0;
+                     landing = flying ? variant.neighbor(landing, direction) : -1) {
+                    offset = generateJumps(square, landing, true, UP_LEFT, enemy ^ over, empty | (1L << square),
+                            blocker, 1, over, start, buffer, offset);
+                }
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Continues a capture sequence from the square a jump landed on, writing one move for every way the
+     * sequence can end. Where the variant has no multiple jumps, the sequence ends after the first jump.
+     * Each further jump takes its piece out of the enemy mask for the deeper search and puts it back afterwards;
+     * the piece is not added to the empty squares, so it still blocks. A flying king goes on from every empty
+     * square behind the piece it jumps, since where it lands decides what it can capture next. A man keeps
+     * capturing as a man even when it passes its promotion row.
+     *
+     * @param from     Square the sequence started from
+     * @param square   Square the last jump landed on
+     * @param king     True if the moving piece is a king
+     * @param forward  First forward direction of a man, or {@link #UP_LEFT} for a king
+     * @param enemy    Enemy pieces that can still be captured
+     * @param empty    Empty squares, including the square the moving piece left
+     * @param first    Square of the piece captured by the first jump
+     * @param captures Number of pieces captured so far
+     * @param taken    Mask of the pieces captured so far
+     * @param start    Index of the first move of the current generation
+     * @param buffer   Buffer receiving the packed moves
+     * @param offset   Index of the first slot to write
+     * @return Index one past the last move written
+     */
+    private int generateJumps(int from, int square, boolean king, int forward, long enemy, long empty,
+                              int first, int captures, long taken, int start, int[] buffer, int offset) {
+        boolean continued = false;
+        if (variant.hasMultiJumps()) {
+            boolean flying = king && variant.hasFlyingKings();
+            int directions = king || variant.hasBackwardCaptures() ? 4 : 2;
+            for (int i = 0; i < directions; i++) {
+                int direction = (forward + i) & 3;
+                int over;
+                if (flying) {
+                    long blockers = variant.ray(square, direction) & ~empty;
+                    over = blockers == 0 ? -1 : Variant.nearest(blockers, direction);
+                } else {
+                    over = variant.neighbor(square, direction);
+                }
+                if (over < 0 || (enemy & (1L << over)) == 0) {
+                    continue;
+                }
+                for (int landing = variant.neighbor(over, direction); landing >= 0 && (empty & (1L << landing)) != 0;
+                     landing = flying ? variant.neighbor(landing, direction) : -1) {
+                    continued = true;
+                    offset = generateJumps(from, landing, king, forward, enemy ^ (1L << over), empty, first,
+                            captures + 1, taken | 1L << over, start, buffer, offset);
+                }
+            }
+        }
+        return continued ? offset : addSequence(from, square, first, captures, taken, 0, start, buffer, offset);
+    }
+
+    /**
+     * Writes a finished capture sequence unless an earlier one of the same generation takes the same pieces
+     * between the same squares, only in another order or landing elsewhere on the way; they are the same move.
+     * A sequence that takes other pieces than earlier ones with the same squares and number of captures is
+     * numbered after them, which is how {@link #makeMove(int)} tells them apart. The number stays below the
+     * moves one generation can hold, so it always fits the packed move. Captures beyond what a move buffer can
+     * hold next to the quiet moves are dropped; no position found so far comes near.
+     *
+     * @param from      Square the sequence started from
+     * @param to        Square the sequence ends on
+     * @param first     Square of the piece captured by the first jump, packed only when it is the only one
+     * @param captures  Number of pieces captured
+     * @param taken     Mask of the captured pieces
+     * @param takenHigh Mask of the captured pieces from square 64 on
+     * @param start     Index of the first move of the current generation
+     * @param buffer    Buffer receiving the packed moves
+     * @param offset    Index of the slot to write
+     * @return Index one past the last move written
+     */
+    private int addSequence(int from, int to, int first, int captures, long taken, long takenHigh, int start,
+                            int[] buffer, int offset) {
+        if (offset - start == MAX_SEQUENCES) {
+            return offset;
+        }
+        if (captures == 1) {
+            buffer[offset] = Move.encode(from, to, first);
+            return offset + 1;
+        }
+        if (sequenceCaptures == null) {
+            sequenceCaptures = new long[MAX_MOVES];
+            sequenceCapturesHigh = new long[MAX_MOVES];
+        }
+        int alternative = 0;
+        for (int i = start; i < offset; i++) {
+            int other = buffer[i];
+            if (Move.fromSquare(other) == from && Move.toSquare(other) == to && Move.captureCount(other) == captures) {
+                if (sequenceCaptures[i - start] == taken && sequenceCapturesHigh[i - start] == takenHigh) {
+                    return offset;
+                }
+                alternative++;
+            }
+        }
+        sequenceCaptures[offset - start] = taken;
+        sequenceCapturesHigh[offset - start] = takenHigh;
+        buffer[offset] = Move.encodeSequence(from, to, captures, alternative);
+        return offset + 1;
+    }
+
+    /**
+     * Writes all possible moves for a given side on a board larger than 10x10, in the same order and by the same
+     * rules as {@link #generateMoves(PieceType, boolean, int[], int)}, walking the neighbour table from each piece.
+     *
+     * @param type        Side to move
+     * @param captureOnly Flag to indicate if only capture moves should be considered
+     * @param buffer      Buffer receiving the packed moves; needs {@link #MAX_MOVES} free slots after the offset
+     * @param offset      Index of the first slot to write
+     * @return Index one past the last move written
+     */
+    private int generateWideMoves(PieceType type, boolean captureOnly, int[] buffer, int offset) {
+        int start = offset;
+        for (int word = 0; word < 2; word++) {
+            for (long pieces = getPieces(type, word); pieces != 0; pieces &= pieces - 1) {
+                offset = generateWideCaptures(word * Long.SIZE + Long.numberOfTrailingZeros(pieces), type, start,
+                        buffer, offset);
+            }
+        }
+        if (variant.isMaxCapture() && offset > start) {
+            offset = keepLongest(buffer, start, offset);
+        }
+        if (captureOnly || (variant.isMandatoryCapture() && offset > start)) {
+            return offset;
+        }
+        for (int word = 0; word < 2; word++) {
+            for (long pieces = getPieces(type, word); pieces != 0; pieces &= pieces - 1) {
+                offset = generateWideQuietMoves(word * Long.SIZE + Long.numberOfTrailingZeros(pieces), type, buffer,
+                        offset);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Writes the captures of the piece on a square of a board larger than 10x10.
+     *
+     * @param square Square of the piece
+     * @param type   Side of the piece
+     * @param start  Index of the first move of the current generation
+     * @param buffer Buffer receiving the packed moves
+     * @param offset Index of the first slot to write
+     * @return Index one past the last move written
+     */
+    private int generateWideCaptures(int square, PieceType type, int start, int[] buffer, int offset) {
+        boolean king = isKing(square);
+        int forward = king ? UP_LEFT : type == PieceType.RED ? DOWN_LEFT : UP_LEFT;
+        return generateWideJumps(square, square, king, forward, opponent(type), Move.NO_SQUARE, 0, 0, 0, start,
+                buffer, offset);
+    }
+
+    /**
+     * Writes the quiet moves of the piece on a square of a board larger than 10x10: steps of a man forward, and
+     * steps or slides of a king in every direction, nearest square first.
+     *
+     * @param square Square of the piece
+     * @param type   Side of the piece
+     * @param buffer Buffer receiving the packed moves
+     * @param offset Index of the first slot to write
+     * @return Index one past the last move written
+     */
+    private int generateWideQuietMoves(int square, PieceType type, int[] buffer, int offset) {
+        if (isKing(square)) {
+            boolean flying = variant.hasFlyingKings();
+            for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+                for (int to = variant.neighbor(square, direction); to >= 0 && getType(to) == null;
+                     to = flying ? variant.neighbor(to, direction) : -1) {
+                    buffer[offset++] = Move.encode(square, to, Move.NO_SQUARE);
+                }
+            }
+            return offset;
+        }
+        int firstForward = type == PieceType.RED ? DOWN_LEFT : UP_LEFT;
+        for (int direction = firstForward; direction < firstForward + 2; direction++) {
+            int to = variant.neighbor(square, direction);
+            if (to >= 0 && getType(to) == null) {
+                buffer[offset++] = Move.encode(square, to, Move.NO_SQUARE);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Searches the capture sequences of a piece on a board larger than 10x10, like
+     * {@link #generateJumps(int, int, boolean, int, long, long, int, int, long, int, int[], int)} but reading the
+     * squares from the board: the moving piece stays on its starting square, which counts as empty, and the
+     * pieces captured so far stay on theirs, marked in the taken masks.
+     *
+     * @param from      Square the sequence started from
+     * @param square    Square the last jump landed on, or the starting square before the first jump
+     * @param king      True if the moving piece is a king
+     * @param forward   First forward direction of a man, or {@link #UP_LEFT} for a king
+     * @param enemy     Side of the pieces to capture
+     * @param first     Square of the piece captured by the first jump, or {@link Move#NO_SQUARE} before it
+     * @param captures  Number of pieces captured so far
+     * @param taken     Mask of the pieces captured so far
+     * @param takenHigh Mask of the pieces captured so far from square 64 on
+     * @param start     Index of the first move of the current generation
+     * @param buffer    Buffer receiving the packed moves
+     * @param offset    Index of the first slot to write
+     * @return Index one past the last move written
+     */
+    private int generateWideJumps(int from, int square, boolean king, int forward, PieceType enemy, int first,
+                                  int captures, long taken, long takenHigh, int start, int[] buffer, int offset) {
+        boolean continued = false;
+        if (captures == 0 || variant.hasMultiJumps()) {
+            boolean flying = king && variant.hasFlyingKings();
+            int directions = king || variant.hasBackwardCaptures() ? 4 : 2;
+            for (int i = 0; i < directions; i++) {
+                int direction = (forward + i) & 3;
+                int over = variant.neighbor(square, direction);
+                while (flying && over >= 0 && (over == from || getType(over) == null)) {
+                    over = variant.neighbor(over, direction);
+                }
+                if (over < 0 || getType(over) != enemy
+                        || ((over < Long.SIZE ? taken : takenHigh) & (1L << over)) != 0) {
+                    continue;
+                }
+                for (int landing = variant.neighbor(over, direction);
+                     landing >= 0 && (landing == from || getType(landing) == null);
+                     landing = flying ? variant.neighbor(landing, direction) : -1) {
+                    continued = true;
+                    offset = generateWideJumps(from, landing, king, forward, enemy, captures == 0 ? over : first,
+                            captures + 1, over < Long.SIZE ? taken | 1L << over : taken,
+                            over < Long.SIZE ? takenHigh : takenHigh | 1L << over, start, buffer, offset);
+                }
+            }
+        }
+        if (continued || captures == 0) {
+            return offset;
+        }
+        return addSequence(from, square, first, captures, taken, takenHigh, start, buffer, offset);
+    }
+
+    /**
+     * Checks if a side has a legal move on a board larger than 10x10.
+     *
+     * @param type Side to check
+     * @return True if the side can move, otherwise false
+     */
+    private boolean hasWideMoves(PieceType type) {
+        int firstForward = type == PieceType.RED ? DOWN_LEFT : UP_LEFT;
+        for (int word = 0; word < 2; word++) {
+            for (long pieces = getPieces(type, word); pieces != 0; pieces &= pieces - 1) {
+                int square = word * Long.SIZE + Long.numberOfTrailingZeros(pieces);
+                boolean king = isKing(square);
+                for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+                    int to = variant.neighbor(square, direction);
+                    boolean forward = direction == firstForward || direction == firstForward + 1;
+                    if ((king || forward) && to >= 0 && getType(to) == null) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return hasWideCaptures(type);
+    }
+
+    /**
+     * Checks if a side can capture on a board larger than 10x10.
+     *
+     * @param type Side to check
+     * @return True if the side has at least one capture, otherwise false
+     */
+    private boolean hasWideCaptures(PieceType type) {
+        PieceType enemy = opponent(type);
+        int firstForward = type == PieceType.RED ? DOWN_LEFT : UP_LEFT;
+        for (int word = 0; word < 2; word++) {
+            for (long pieces = getPieces(type, word); pieces != 0; pieces &= pieces - 1) {
+                int square = word * Long.SIZE + Long.numberOfTrailingZeros(pieces);
+                boolean king = isKing(square);
+                boolean flying = king && variant.hasFlyingKings();
+                for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+                    boolean forward = direction == firstForward || direction == firstForward + 1;
+                    if (!king && !forward && !variant.hasBackwardCaptures()) {
+                        continue;
+                    }
+                    int over = variant.neighbor(square, direction);
+                    while (flying && over >= 0 && getType(over) == null) {
+                        over = variant.neighbor(over, direction);
+                    }
+                    int landing = over < 0 ? -1 : variant.neighbor(over, direction);
+                    if (landing >= 0 && getType(over) == enemy && getType(landing) == null) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops every capture that takes fewer pieces than the longest one, keeping the order of the rest.
+     *
+     * @param buffer Buffer holding packed captures
+     * @param start  Index of the first capture
+     * @param end    Index one past the last capture
+     * @return Index one past the last capture kept
+     */
+    private static int keepLongest(int[] buffer, int start, int end) {
+        int longest = 0;
+        for (int i = start; i < end; i++) {
+            longest = Math.max(longest, Move.captureCount(buffer[i]));
+        }
+        int count = start;
+        for (int i = start; i < end; i++) {
+            if (Move.captureCount(buffer[i]) == longest) {
+                buffer[count++] = buffer[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets all possible moves for a given side.
+     * Convenience wrapper over {@link #generateMoves(PieceType, boolean, int[], int)} for callers outside the
+     * hot path.
+     *
+     * @param type        Side to move
+     * @param captureOnly Flag to indicate if only capture moves should be considered
+     * @return List of all possible moves
+     */
+    public List<Move> getAllPossibleMoves(PieceType type, boolean captureOnly) {
+        LIST_CALLS.increment();
+        if (lookupMoves == null) {
+            lookupMoves = new int[MAX_MOVES];
+        }
+        return toList(lookupMoves, generateMoves(type, captureOnly, lookupMoves, 0), variant);
+    }
+
+    /**
+     * Gets all possible moves for the piece on a square.
+     *
+     * @param square      Square of the piece
+     * @param captureOnly Flag to indicate if only capture moves should be considered
+     * @return List of all possible moves for the piece
+     */
+    public List<Move> getPossibleMovesForPiece(int square, boolean captureOnly) {
+        LIST_CALLS.increment();
+        if (lookupMoves == null) {
+            lookupMoves = new int[MAX_MOVES];
+        }
+        return toList(lookupMoves, generateMovesForPiece(square, captureOnly, lookupMoves, 0), variant);
+    }
+
+    /**
+     * Wraps the packed moves of a buffer into Move views.
+     *
+     * @param buffer  Buffer holding packed moves
+     * @param count   Number of moves in the buffer
+     * @param variant Variant giving the rows and columns of the squares
+     * @return List of moves
+     */
+    private static List<Move> toList(int[] buffer, int count, Variant variant) {
+        List<Move> moves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            moves.add(new Move(buffer[i], variant));
+        }
+        return moves;
+    }
+
+    /**
+     * Gets the opposing side.
+     *
+     * @param type A side
+     * @return The other side
+     */
+    public static PieceType opponent(PieceType type) {
+        return type == PieceType.RED ? PieceType.BLACK : PieceType.RED;
+    }
+}
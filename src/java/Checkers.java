@@ -12,30 +12,48 @@ import java.net.URISyntaxException;
 public class Checkers {
     /**
      * Constructs a new Checkers game.
+     *
+     * @param variant Board size and rules of the first game
      */
-    public Checkers() {
-        // Set up the main frame
+    public Checkers(Variant variant) {
+        // Set up the main frame; the board scales with the window
         JFrame frame = new JFrame("Checkers");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setSize(815, 845);
-        frame.setResizable(false);
 
         // Create the Checkers panel
         CheckersPanel checkersPanel = new CheckersPanel();
+        checkersPanel.setVariant(variant);
         frame.add(checkersPanel);
 
         // Create game menu
         JMenuBar menuBar = new JMenuBar();
         JMenu gameMenu = new JMenu("Game");
+        JMenu variantMenu = new JMenu("Variant");
+        JMenu viewMenu = new JMenu("View");
         JMenu aboutMenu = new JMenu("About");
         JMenuItem restartItem = new JMenuItem("Restart");
+        JMenuItem undoItem = new JMenuItem("Undo");
+        JMenuItem moveNowItem = new JMenuItem("Move Now");
+        JMenuItem exportItem = new JMenuItem("Export PDN...");
         JMenuItem exitItem = new JMenuItem("Exit");
         JMenuItem checkersItem = new JMenuItem("Checkers");
+        JCheckBoxMenuItem statsItem = new JCheckBoxMenuItem("Search Stats");
+        JMenuItem metricsItem = new JMenuItem("Dump Metrics");
         // Add action listener to about menu item
         restartItem.addActionListener(_ -> checkersPanel.restart());
 
+        undoItem.addActionListener(_ -> checkersPanel.undo());
+
+        moveNowItem.addActionListener(_ -> checkersPanel.moveNow());
+
+        exportItem.addActionListener(_ -> checkersPanel.exportPdn());
+
         exitItem.addActionListener(_ -> System.exit(0));
 
+        statsItem.addActionListener(_ -> checkersPanel.setStatsVisible(statsItem.isSelected()));
+
+        metricsItem.addActionListener(_ -> checkersPanel.dumpMetrics());
+
         checkersItem.addActionListener(_ -> {
             if (Desktop.isDesktopSupported() && Desktop.getDesktop().isSupported(Desktop.Action.BROWSE)) {
                 try {
@@ -47,26 +65,50 @@ public class Checkers {
         });
 
         gameMenu.add(restartItem);
+        gameMenu.add(undoItem);
+        gameMenu.add(moveNowItem);
+        gameMenu.add(exportItem);
         gameMenu.add(exitItem);
 
+        ButtonGroup variantGroup = new ButtonGroup();
+        for (Variant preset : Variant.getPresets()) {
+            JRadioButtonMenuItem variantItem = new JRadioButtonMenuItem(preset.getName(), preset.equals(variant));
+            variantItem.addActionListener(_ -> {
+                checkersPanel.setVariant(preset);
+                frame.pack();
+            });
+            variantGroup.add(variantItem);
+            variantMenu.add(variantItem);
+        }
+
+        viewMenu.add(statsItem);
+        viewMenu.add(metricsItem);
+
         aboutMenu.add(checkersItem);
 
         menuBar.add(gameMenu);
+        menuBar.add(variantMenu);
+        menuBar.add(viewMenu);
         menuBar.add(aboutMenu);
 
         frame.setJMenuBar(menuBar);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
         frame.setVisible(true);
     }
 
     /**
      * The main method to start the Checkers game application.
+     * Usage: {@code java Checkers [variant]}, where the variant is a preset name such as {@code international}
+     * or settings such as {@code size=10,rows=4,flying=false,mandatory=true}.
      *
-     * @param args Command-line arguments (not used)
+     * @param args Command-line arguments
      */
     public static void main(String[] args) {
+        Variant variant = args.length > 0 ? Variant.parse(args[0]) : Variant.STANDARD;
         // Set up the FlatLaf Mac Dark theme
         FlatMacDarkLaf.setup();
         // Create a new instance of Checkers
-        new Checkers();
+        new Checkers(variant);
     }
 }
\ No newline at end of file
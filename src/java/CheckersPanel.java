@@ -1,4 +1,3 @@
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
@@ -6,45 +5,82 @@ import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * CheckersPanel class represents the GUI panel for the checkers game.
- * It handles the game logic and rendering.
+ * It renders a {@link GameState} and turns mouse clicks into moves; the rules themselves live in {@link Rules}.
  */
 public class CheckersPanel extends JPanel {
-    private static final int BOARD_SIZE = 8; // Size of the board
-    private static final int TILE_SIZE = 100; // Size of each tile
-    private BufferedImage crown = null; // Image for indicating a queen piece
+    private static final int PREFERRED_TILE_SIZE = 100; // Size of each tile when the window is first shown
+    private static final int THINK_TIME = 1000; // Time the AI spends on a move, in milliseconds
+    private static final String THINKING_TEXT = "AI is thinking..."; // Banner shown while the AI searches
+    private static final int STATS_LINES = 4; // Lines of text in the search statistics overlay
+    private static final String STATS_WIDEST = "nodes 999,999,999 (99,999k/s)"; // Longest expected overlay line, for sizing it
+    private static final LongAdder AI_MOVES = MetricsRegistry.DEFAULT.counter("ai.moves"); // Moves the AI has played
+    private static final LongAdder AI_BOOK_MOVES = MetricsRegistry.DEFAULT.counter("ai.bookMoves"); // Moves answered from the opening book
+    private static final LongAdder AI_THINK_NANOS = MetricsRegistry.DEFAULT.counter("ai.thinkNanos"); // Time the AI has spent searching
     private final Color darkBoardColor = new Color(85, 136, 34); // Dark color for the board tiles
     private final Color lightBoardColor = new Color(255, 238, 187); // Light color for the board tiles
 
-    private Piece[][] board; // 2D array representing the game board
+    private final GameState game = new GameState(); // Position, side to move and move history
+    private final ParallelSearch searchEngine = new ParallelSearch(Runtime.getRuntime().availableProcessors(), 64); // Engine choosing the AI's moves
+    private final Tablebase tablebase = new Tablebase(Paths.get("tablebases")); // Endgame tables, mapped on first use
+    private final OpeningBook openingBook = new OpeningBook(Paths.get("book.bin")); // Prepared replies for the first moves
+    private final Path recordFile = Paths.get("games.cgr"); // Archive every played game is appended to
+    private boolean gameRecorded = false; // Indicates whether the current game has been written to the archive
     private boolean isPlayerTurn = true; // Indicates whether it's the player's turn
+    private int tileSize = PREFERRED_TILE_SIZE; // Size of each tile, fitted to the panel on every paint
     private int selectedRow = -1; // Row of the selected piece
     private int selectedCol = -1; // Column of the selected piece
+    private List<Move> selectedMoves = List.of(); // Moves of the selected piece, highlighted until the selection changes
+    private BufferedImage boardImage; // Pre-rendered tiles, created on first paint
+    private final BufferedImage[] pieceSprites = new BufferedImage[4]; // Pre-rendered pieces by Zobrist.kind, created on first paint
+    private double renderScale = 1; // Device pixels per panel pixel the cached images were rendered for
+
+    private final ExecutorService engineThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkers-ai");
+        thread.setDaemon(true);
+        return thread;
+    }); // Runs searches one at a time, off the Event Dispatch Thread
+    private AtomicBoolean thinkingStop = new AtomicBoolean(); // Stop signal of the AI's current search
+    private AtomicBoolean ponderStop = new AtomicBoolean(); // Stop signal of the search run on the player's time
+    private boolean isThinking = false; // Indicates whether the AI is searching for its move
+    private int gameGeneration = 0; // Incremented on restart so results of abandoned searches are ignored
+    private volatile boolean statsVisible = false; // Indicates whether the search statistics overlay is shown
+    private volatile SearchResult liveStats; // Latest iteration completed by the AI's search or pondering, or null
 
     /**
      * Constructs a new CheckersPanel.
      * Initializes the game board and sets up mouse listener for interaction.
      */
     public CheckersPanel() {
-        try {
-            this.crown = ImageIO.read(new File("./src/res/crown.png"));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        this.board = new Piece[BOARD_SIZE][BOARD_SIZE];
+        searchEngine.setTablebase(tablebase);
+        searchEngine.setEvaluator(Evaluator.loadOrDefault(Paths.get("evaluation.txt")));
+        searchEngine.setNetwork(Network.loadOrNull(Paths.get("network.bin")));
+        searchEngine.setProgressListener(result -> {
+            liveStats = result;
+            if (statsVisible) {
+                SwingUtilities.invokeLater(() -> repaint(statsBounds()));
+            }
+        });
         initializeBoard();
 
         addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
-                int row = e.getY() / TILE_SIZE;
-                int col = e.getX() / TILE_SIZE;
+                int row = e.getY() / tileSize;
+                int col = e.getX() / tileSize;
                 handleMouseClick(row, col);
-                repaint();
             }
         });
     }
@@ -53,24 +89,8 @@ public class CheckersPanel extends JPanel {
      * Initializes the game board with pieces in their starting positions.
      */
     private void initializeBoard() {
-        // Clear the board
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                board[row][col] = null;
-            }
-        }
-        // Set up pieces for both players
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                if ((row + col) % 2 != 0) {
-                    if (row < 3) {
-                        board[row][col] = new Piece(PieceType.RED);
-                    } else if (row > 4) {
-                        board[row][col] = new Piece(PieceType.BLACK);
-                    }
-                }
-            }
-        }
+        game.reset();
+        gameRecorded = false;
     }
 
     /**
@@ -81,156 +101,105 @@ public class CheckersPanel extends JPanel {
      */
     private void handleMouseClick(int row, int col) {
         if (isPlayerTurn) {
+            int square = game.getVariant().square(row, col);
             // If no piece is selected
             if (selectedRow == -1) {
                 // Select the piece if it belongs to the player
-                if (board[row][col] != null && board[row][col].getType() == PieceType.RED) {
-                    selectedRow = row;
-                    selectedCol = col;
+                if (square >= 0 && game.getBoard().getType(square) == PieceType.RED) {
+                    select(row, col);
                 }
             } else {
                 // If a piece is already selected, try to move it to the clicked tile
-                if (isValidMove(selectedRow, selectedCol, row, col)) {
-                    if (board[selectedRow][selectedCol].isQueen()) {
-                        if (Move.hasPassedThroughEnemy(selectedRow, selectedCol, row, col, board)) {
-                            int[] dir = Move.translateMoveDirection(selectedRow, selectedCol, row, col);
-                            board[row - dir[0]][col - dir[1]] = null;
-                        }
-                    }
-                    movePiece(selectedRow, selectedCol, row, col);
+                int move = chooseMove(row, col);
+                if (move != Move.NONE) {
+                    ponderStop.set(true);
+                    game.makeMove(move);
+                    repaintMove(move);
+                    select(-1, -1);
                     if (checkGameEnd()) {
                         return;
                     }
                     isPlayerTurn = false;
-                    handleAIMove();
+                    startAIMove();
                 }
-                selectedRow = -1;
-                selectedCol = -1;
+                select(-1, -1);
             }
         }
     }
 
     /**
-     * Checks if a move is valid.
+     * Picks the move of the selected piece that ends on a tile. Where capture sequences taking different pieces
+     * end there, the player chooses one by the squares it lands on.
      *
-     * @param fromRow Starting row of the piece
-     * @param fromCol Starting column of the piece
-     * @param toRow   Destination row of the piece
-     * @param toCol   Destination column of the piece
-     * @return True if the move is valid, otherwise false
-     */
-    private boolean isValidMove(int fromRow, int fromCol, int toRow, int toCol) {
-// Check if the destination is within the board bounds
-        if (toRow < 0 || toRow >= BOARD_SIZE || toCol < 0 || toCol >= BOARD_SIZE) {
-            return false;
-        }
-        // Check if the destination tile is empty
-        if (board[toRow][toCol] != null) {
-            return false;
-        }
-        // Calculate row and column differences
-        int rowDiff = toRow - fromRow;
-        int colDiff = toCol - fromCol;
-        // Get the type and queen status of the moving piece
-        PieceType type = board[fromRow][fromCol].getType();
-        boolean isQueen = board[fromRow][fromCol].isQueen();
-
-        // Regular piece movement
-        if (!isQueen) {
-            // Check direction and distance
-            if (type == PieceType.RED && rowDiff <= 0) {
-                return false; // White pieces can only move downwards
-            }
-            if (type == PieceType.BLACK && rowDiff >= 0) {
-                return false; // Black pieces can only move upwards
-            }
-
-            if (Math.abs(rowDiff) == 1 && Math.abs(colDiff) == 1) {
-                return true; // Single step movement
-            }
-
-            if (Math.abs(rowDiff) == 2 && Math.abs(colDiff) == 2) {
-                int captureRow = fromRow + rowDiff / 2;
-                int captureCol = fromCol + colDiff / 2;
-                return board[captureRow][captureCol] != null && board[captureRow][captureCol].getType() != type;
-            }
-        } else { // Queen piece movement
-            int[] direction = Move.translateMoveDirection(fromRow, fromCol, toRow, toCol);
-
-            int newRow = fromRow + direction[0];
-            int newCol = fromCol + direction[1];
-            boolean hasCaptured = false;
-
-            while (newRow != toRow || newCol != toCol) {
-                if (board[newRow][newCol] != null) {
-                    if (board[newRow][newCol].getType() == type || hasCaptured) {
-                        return false;
-                    }
-                    hasCaptured = true;
-                }
-                newRow += direction[0];
-                newCol += direction[1];
+     * @param row Row of the destination tile
+     * @param col Column of the destination tile
+     * @return The packed move, or {@link Move#NONE} if the piece cannot move there or the choice was cancelled
+     */
+    private int chooseMove(int row, int col) {
+        List<Integer> moves = new ArrayList<>();
+        List<String> choices = new ArrayList<>();
+        for (Move m : selectedMoves) {
+            if (m.getToRow() == row && m.getToCol() == col) {
+                moves.add(m.getEncoded());
+                choices.add(Rules.toString(game.getBoard(), m.getEncoded()));
             }
-
-            return true;
         }
-
-        return false;
+        if (moves.size() <= 1) {
+            return moves.isEmpty() ? Move.NONE : moves.get(0);
+        }
+        Object choice = JOptionPane.showInputDialog(this, "Several captures end here. Capture along:",
+                "Choose Capture", JOptionPane.QUESTION_MESSAGE, null, choices.toArray(), choices.get(0));
+        return choice == null ? Move.NONE : moves.get(choices.indexOf(choice));
     }
 
     /**
-     * Moves a piece on the board from the starting position to the destination.
-     *
-     * @param fromRow Starting row of the piece
-     * @param fromCol Starting column of the piece
-     * @param toRow   Destination row of the piece
-     * @param toCol   Destination column of the piece
-     */
-    private void movePiece(int fromRow, int fromCol, int toRow, int toCol) {
-        // Handle capturing move
-        int rowDiff = toRow - fromRow;
-        if (Math.abs(rowDiff) == 2) {
-            int captureRow = fromRow + rowDiff / 2;
-            int captureCol = fromCol + (toCol - fromCol) / 2;
-            board[captureRow][captureCol] = null;
-        }
-        // Move the piece to the destination
-        board[toRow][toCol] = board[fromRow][fromCol];
-        board[fromRow][fromCol] = null;
-
-        // Promote piece to queen if it reaches the opposite end
-        if ((board[toRow][toCol].getType() == PieceType.RED && toRow == BOARD_SIZE - 1) ||
-                (board[toRow][toCol].getType() == PieceType.BLACK && toRow == 0)) {
-            board[toRow][toCol].setQueen(true);
-        }
+     * Starts searching for the AI's move on the engine thread.
+     * Positions in the opening book are answered from the book without searching.
+     * The search works on a copy of the board; the chosen move is played on the Event Dispatch Thread by
+     * {@link #handleAIMove(SearchResult, int)}.
+     */
+    private void startAIMove() {
+        AtomicBoolean stop = new AtomicBoolean();
+        thinkingStop = stop;
+        isThinking = true;
+        repaint(thinkingBounds());
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+
+        Bitboard position = new Bitboard(game.getBoard());
+        int generation = gameGeneration;
+        engineThread.execute(() -> {
+            int bookMove = openingBook.probe(position, PieceType.BLACK);
+            SearchResult result;
+            if (bookMove != Move.NONE) {
+                AI_BOOK_MOVES.increment();
+                result = new SearchResult(bookMove, 0, 0, 0, 0);
+            } else {
+                searchEngine.setTimeLimit(THINK_TIME);
+                result = searchEngine.search(position, PieceType.BLACK, stop);
+            }
+            SwingUtilities.invokeLater(() -> handleAIMove(result, generation));
+        });
     }
 
     /**
-     * Handles the AI's move.
+     * Handles the AI's move once the search has finished.
+     *
+     * @param result     Result of the search
+     * @param generation Game generation the search was started in
      */
-    private void handleAIMove() {
-        // Get all possible capture moves for the AI
-        List<Move> captureMoves = getAllPossibleMoves(PieceType.BLACK, true);
-        Move selectedMove = null;
-
-        if (!captureMoves.isEmpty()) {
-            selectedMove = captureMoves.get((int) (Math.random() * captureMoves.size()));
-        } else {
-            // If no capture moves available, select a simple move
-            List<Move> simpleMoves = getAllPossibleMoves(PieceType.BLACK, false);
-            if (!simpleMoves.isEmpty()) {
-                selectedMove = simpleMoves.get((int) (Math.random() * simpleMoves.size()));
-            }
+    private void handleAIMove(SearchResult result, int generation) {
+        if (generation != gameGeneration) {
+            return; // The game was restarted while the AI was thinking
         }
+        isThinking = false;
+        repaint(thinkingBounds());
+        setCursor(Cursor.getDefaultCursor());
+        AI_MOVES.increment();
+        AI_THINK_NANOS.add(result.getElapsedNanos());
         // Perform the selected move
-        if (selectedMove != null) {
-            if (board[selectedMove.getFromRow()][selectedMove.getFromCol()].isQueen()) {
-                if (Move.hasPassedThroughEnemy(selectedMove.getFromRow(), selectedMove.getFromCol(), selectedMove.getToRow(), selectedMove.getToCol(), board)) {
-                    int[] dir = Move.translateMoveDirection(selectedMove.getFromRow(), selectedMove.getFromCol(), selectedMove.getToRow(), selectedMove.getToCol());
-                    board[selectedMove.getToRow() - dir[0]][selectedMove.getToCol() - dir[1]] = null;
-                }
-            }
-            movePiece(selectedMove.getFromRow(), selectedMove.getFromCol(), selectedMove.getToRow(), selectedMove.getToCol());
+        if (result.getBestMove() != SearchEngine.NO_MOVE) {
+            game.makeMove(result.getBestMove());
+            repaintMove(result.getBestMove());
         }
 
         if (checkGameEnd()) {
@@ -238,25 +207,31 @@ public class CheckersPanel extends JPanel {
         }
 
         isPlayerTurn = true;
+        startPondering();
     }
 
     /**
-     * Gets all possible moves for a given piece type.
-     *
-     * @param type        Type of the pieces (RED or BLACK)
-     * @param captureOnly Flag to indicate if only capture moves should be considered
-     * @return List of all possible moves
-     */
-    private List<Move> getAllPossibleMoves(PieceType type, boolean captureOnly) {
-        List<Move> moves = new ArrayList<>();
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                if (board[row][col] != null && board[row][col].getType() == type) {
-                    moves.addAll(getPossibleMovesForPiece(row, col, captureOnly));
-                }
-            }
+     * Keeps the engine searching while the player thinks.
+     * The search runs from the player's point of view, so the replies to the player's likely moves end up in
+     * the transposition table and the AI's next search starts from them. It runs until the player moves.
+     */
+    private void startPondering() {
+        AtomicBoolean stop = new AtomicBoolean();
+        ponderStop = stop;
+        Bitboard position = new Bitboard(game.getBoard());
+        engineThread.execute(() -> {
+            searchEngine.setTimeLimit(0);
+            searchEngine.search(position, PieceType.RED, stop);
+        });
+    }
+
+    /**
+     * Makes the AI play the best move it has found so far instead of using its full thinking time.
+     */
+    public void moveNow() {
+        if (isThinking) {
+            thinkingStop.set(true);
         }
-        return moves;
     }
 
     /**
@@ -268,49 +243,7 @@ public class CheckersPanel extends JPanel {
      * @return List of all possible moves for the piece
      */
     private List<Move> getPossibleMovesForPiece(int row, int col, boolean captureOnly) {
-        List<Move> moves = new ArrayList<>();
-        Piece piece = board[row][col];
-        if (piece == null) {
-            return moves;
-        }
-
-        int[][] directions;
-        if (piece.isQueen()) {
-            directions = new int[][]{{1, -1}, {1, 1}, {-1, -1}, {-1, 1}};
-        } else if (piece.getType() == PieceType.RED) {
-            directions = new int[][]{{1, -1}, {1, 1}};
-        } else {
-            directions = new int[][]{{-1, -1}, {-1, 1}};
-        }
-
-        for (int[] direction : directions) {
-            int newRow = row + direction[0];
-            int newCol = col + direction[1];
-
-            while (newRow >= 0 && newRow < BOARD_SIZE && newCol >= 0 && newCol < BOARD_SIZE) {
-                if (isValidMove(row, col, newRow, newCol)) {
-                    if (!captureOnly) {
-                        moves.add(new Move(row, col, newRow, newCol));
-                    }
-                } else {
-                    int captureRow = newRow + direction[0];
-                    int captureCol = newCol + direction[1];
-                    if (isValidMove(row, col, captureRow, captureCol)) {
-                        moves.add(new Move(row, col, captureRow, captureCol));
-                    }
-                    break;
-                }
-
-                if (piece.isQueen()) {
-                    newRow += direction[0];
-                    newCol += direction[1];
-                } else {
-                    break;
-                }
-            }
-        }
-
-        return moves;
+        return game.getBoard().getPossibleMovesForPiece(game.getVariant().square(row, col), captureOnly);
     }
 
     /**
@@ -319,100 +252,264 @@ public class CheckersPanel extends JPanel {
      * @return True if the game has ended, otherwise false
      */
     private boolean checkGameEnd() {
-        boolean redExists = false;
-        boolean blackExists = false;
-
-        // Check if both players still have pieces on the board
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                if (board[row][col] != null) {
-                    if (board[row][col].getType() == PieceType.RED) {
-                        redExists = true;
-                    } else if (board[row][col].getType() == PieceType.BLACK) {
-                        blackExists = true;
-                    }
-                }
-            }
-        }
-
-        if (!redExists) {
-            new CheckersDialog((Frame) SwingUtilities.getWindowAncestor(this), "Game Over", "Black wins!", this);
-            return true;
-        } else if (!blackExists) {
-            new CheckersDialog((Frame) SwingUtilities.getWindowAncestor(this), "Game Over", "Red wins!", this);
-            return true;
+        GameResult result = game.getResult(tablebase);
+        if (result == GameResult.ONGOING) {
+            return false;
         }
-        // Check if any player has no legal moves left
-        if (getAllPossibleMoves(PieceType.RED, false).isEmpty()) {
-            new CheckersDialog((Frame) SwingUtilities.getWindowAncestor(this), "Game Over", "Black wins! Red has no moves left.", this);
-            return true;
-        } else if (getAllPossibleMoves(PieceType.BLACK, false).isEmpty()) {
-            new CheckersDialog((Frame) SwingUtilities.getWindowAncestor(this), "Game Over", "Red wins! Black has no moves left.", this);
-            return true;
+        recordGame(result);
+        String message;
+        if (result == GameResult.DRAW) {
+            message = "Draw! Neither side can force a win.";
+        } else if (result == GameResult.BLACK_WINS) {
+            message = game.getBoard().countPieces(PieceType.RED) == 0 ? "Black wins!" : "Black wins! Red has no moves left.";
+        } else {
+            message = game.getBoard().countPieces(PieceType.BLACK) == 0 ? "Red wins!" : "Red wins! Black has no moves left.";
         }
+        new CheckersDialog((Frame) SwingUtilities.getWindowAncestor(this), "Game Over", message, this);
+        return true;
+    }
 
-        return false;
+    /**
+     * Gets the size the panel would like to have: tiles of their preferred size, made smaller if the board would
+     * not fit on the screen.
+     *
+     * @return The preferred size
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        int boardSize = game.getVariant().getBoardSize();
+        int tile = PREFERRED_TILE_SIZE;
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (config != null) {
+            tile = Math.min(tile, config.getBounds().height * 4 / 5 / boardSize);
+        }
+        return new Dimension(boardSize * tile + 1, boardSize * tile + 1);
     }
 
     /**
      * Paints the components of the game board.
+     * Tiles are sized to fill the panel. Only the tiles inside the clip are drawn, so repainting a single tile
+     * costs a single tile.
      *
      * @param g Graphics object for drawing
      */
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        double scale = ((Graphics2D) g).getTransform().getScaleX();
+        int tile = Math.max(1, (Math.min(getWidth(), getHeight()) - 1) / game.getVariant().getBoardSize());
+        if (scale != renderScale || tile != tileSize) {
+            // Resized or moved to a screen with another scale factor; render the cached images again
+            renderScale = scale;
+            tileSize = tile;
+            boardImage = null;
+            Arrays.fill(pieceSprites, null);
+        }
         drawBoard(g);
-        drawPieces(g);
+        drawPieces(g, clip);
         drawSelection(g);
+        if (isThinking) {
+            drawThinking(g);
+        }
+        if (statsVisible && liveStats != null) {
+            drawStats(g, liveStats);
+        }
+    }
+
+    /**
+     * Shows or hides the overlay with the statistics of the running search.
+     *
+     * @param visible True to show the overlay
+     */
+    public void setStatsVisible(boolean visible) {
+        statsVisible = visible;
+        repaint(statsBounds());
+    }
+
+    /**
+     * Writes the application's metrics to {@code metrics.json} in the working directory.
+     */
+    public void dumpMetrics() {
+        Path file = Paths.get("metrics.json");
+        try {
+            MetricsRegistry.DEFAULT.dump(file);
+            JOptionPane.showMessageDialog(this, "Metrics written to " + file.toAbsolutePath(), "Dump Metrics",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not write the metrics: " + e.getMessage(), "Dump Metrics",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Draws the statistics of the last completed search iteration below the thinking banner.
+     *
+     * @param g     Graphics object for drawing
+     * @param stats The iteration to show
+     */
+    private void drawStats(Graphics g, SearchResult stats) {
+        Rectangle bounds = statsBounds();
+        g.setColor(new Color(0, 0, 0, 160));
+        g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+        g.setColor(Color.WHITE);
+        String[] lines = {
+                String.format("depth %d, best %s", stats.getDepth(), Move.toString(stats.getBestMove())),
+                String.format("score %d", stats.getScore()),
+                String.format("nodes %,d (%,dk/s)", stats.getNodes(), stats.getNodesPerSecond() / 1000),
+                String.format("TT hit rate %.1f%%", searchEngine.getTranspositionTable().getHitRate() * 100)
+        };
+        FontMetrics metrics = getFontMetrics(getFont());
+        for (int i = 0; i < lines.length; i++) {
+            g.drawString(lines[i], bounds.x + 10, bounds.y + 5 + metrics.getAscent() + i * metrics.getHeight());
+        }
     }
 
     /**
-     * Draws the tiles of the game board.
+     * Gets the area covered by the statistics overlay, just below the thinking banner.
+     *
+     * @return The overlay bounds
+     */
+    private Rectangle statsBounds() {
+        FontMetrics metrics = getFontMetrics(getFont());
+        Rectangle banner = thinkingBounds();
+        return new Rectangle(0, banner.height, metrics.stringWidth(STATS_WIDEST) + 20,
+                STATS_LINES * metrics.getHeight() + 10);
+    }
+
+    /**
+     * Draws a banner telling the player that the AI is thinking.
+     *
+     * @param g Graphics object for drawing
+     */
+    private void drawThinking(Graphics g) {
+        Rectangle bounds = thinkingBounds();
+        g.setColor(new Color(0, 0, 0, 160));
+        g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+        g.setColor(Color.WHITE);
+        g.drawString(THINKING_TEXT, 10, 5 + getFontMetrics(getFont()).getAscent());
+    }
+
+    /**
+     * Gets the area covered by the thinking banner.
+     *
+     * @return The banner bounds
+     */
+    private Rectangle thinkingBounds() {
+        FontMetrics metrics = getFontMetrics(getFont());
+        return new Rectangle(0, 0, metrics.stringWidth(THINKING_TEXT) + 20, metrics.getHeight() + 10);
+    }
+
+    /**
+     * Draws the tiles of the game board from the pre-rendered board image.
      *
      * @param g Graphics object for drawing
      */
     private void drawBoard(Graphics g) {
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                if ((row + col) % 2 == 0) {
-                    g.setColor(lightBoardColor);
-                } else {
-                    g.setColor(darkBoardColor);
+        int boardSize = game.getVariant().getBoardSize();
+        if (boardImage == null) {
+            boardImage = createImage(boardSize * tileSize + 1, boardSize * tileSize + 1, Transparency.OPAQUE);
+            Graphics2D board = boardImage.createGraphics();
+            board.scale(renderScale, renderScale);
+            for (int row = 0; row < boardSize; row++) {
+                for (int col = 0; col < boardSize; col++) {
+                    if ((row + col) % 2 == 0) {
+                        board.setColor(lightBoardColor);
+                    } else {
+                        board.setColor(darkBoardColor);
+                    }
+                    board.fillRect(col * tileSize, row * tileSize, tileSize, tileSize);
+                    board.setColor(Color.BLACK);
+                    board.drawRect(col * tileSize, row * tileSize, tileSize, tileSize);
                 }
-                g.fillRect(col * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
-                g.setColor(Color.BLACK);
-                g.drawRect(col * TILE_SIZE, row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
             }
+            board.dispose();
         }
+        g.drawImage(boardImage, 0, 0, boardSize * tileSize + 1, boardSize * tileSize + 1, null);
     }
 
     /**
-     * Draws the pieces on the game board.
+     * Draws the pieces standing on the tiles inside the clip.
      *
-     * @param g Graphics object for drawing
+     * @param g    Graphics object for drawing
+     * @param clip Area being repainted
      */
-    private void drawPieces(Graphics g) {
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                Piece piece = board[row][col];
-                if (piece != null) {
-                    if (piece.getType() == PieceType.RED) {
-                        g.setColor(Color.RED);
-                    } else {
-                        g.setColor(Color.BLACK);
-                    }
-                    g.fillOval(col * TILE_SIZE + 10, row * TILE_SIZE + 10, TILE_SIZE - 20, TILE_SIZE - 20);
-                    g.setColor(Color.WHITE);
-                    g.drawOval(col * TILE_SIZE + 10, row * TILE_SIZE + 10, TILE_SIZE - 20, TILE_SIZE - 20);
-                    if (piece.isQueen()) {
-                        g.drawImage(crown, col * TILE_SIZE + 15, row * TILE_SIZE + 15, null);
-                    }
+    private void drawPieces(Graphics g, Rectangle clip) {
+        Variant variant = game.getVariant();
+        int firstRow = Math.max(0, clip.y / tileSize);
+        int lastRow = Math.min(variant.getBoardSize() - 1, (clip.y + clip.height) / tileSize);
+        int firstCol = Math.max(0, clip.x / tileSize);
+        int lastCol = Math.min(variant.getBoardSize() - 1, (clip.x + clip.width) / tileSize);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                int square = variant.square(row, col);
+                PieceType type = square < 0 ? null : game.getBoard().getType(square);
+                if (type != null) {
+                    g.drawImage(pieceSprite(type, game.getBoard().isKing(square)),
+                            col * tileSize, row * tileSize, tileSize, tileSize, null);
                 }
             }
         }
     }
 
+    /**
+     * Gets the pre-rendered image of a piece, rendering it on first use.
+     *
+     * @param type Colour of the piece
+     * @param king True for a king, false for a man
+     * @return Image covering one tile, transparent around the piece
+     */
+    private BufferedImage pieceSprite(PieceType type, boolean king) {
+        int kind = Zobrist.kind(type, king);
+        if (pieceSprites[kind] == null) {
+            BufferedImage sprite = createImage(tileSize, tileSize, Transparency.TRANSLUCENT);
+            Graphics2D piece = sprite.createGraphics();
+            piece.scale(renderScale, renderScale);
+            piece.setColor(type == PieceType.RED ? Color.RED : Color.BLACK);
+            int margin = tileSize / 10;
+            piece.fillOval(margin, margin, tileSize - 2 * margin, tileSize - 2 * margin);
+            piece.setColor(Color.WHITE);
+            piece.drawOval(margin, margin, tileSize - 2 * margin, tileSize - 2 * margin);
+            if (king) {
+                int crownSize = tileSize * 7 / 10;
+                int offset = (tileSize - crownSize) / 2;
+                try {
+                    int size = (int) Math.ceil(crownSize * renderScale);
+                    piece.drawImage(Assets.getImage("crown.png", size, size), offset, offset, crownSize, crownSize, null);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            piece.dispose();
+            pieceSprites[kind] = sprite;
+        }
+        return pieceSprites[kind];
+    }
+
+    /**
+     * Creates an image in the pixel format of the screen the panel is shown on, so drawing it needs no
+     * conversion and can be accelerated. The image has one pixel per device pixel, so on scaled screens it is
+     * larger than the area it covers and must be drawn with a scale of {@link #renderScale}.
+     *
+     * @param width        Width in panel pixels
+     * @param height       Height in panel pixels
+     * @param transparency One of the {@link Transparency} constants
+     * @return A new image
+     */
+    private BufferedImage createImage(int width, int height, int transparency) {
+        width = (int) Math.ceil(width * renderScale);
+        height = (int) Math.ceil(height * renderScale);
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (config != null) {
+            return config.createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height, transparency == Transparency.OPAQUE
+                ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+
     /**
      * Draws the selection highlight around the selected piece and its possible moves.
      *
@@ -421,24 +518,176 @@ public class CheckersPanel extends JPanel {
     private void drawSelection(Graphics g) {
         if (selectedRow != -1 && selectedCol != -1) {
             g.setColor(Color.YELLOW);
-            g.drawRect(selectedCol * TILE_SIZE, selectedRow * TILE_SIZE, TILE_SIZE, TILE_SIZE);
-            List<Move> allMoves = getPossibleMovesForPiece(selectedRow, selectedCol, false);
+            g.drawRect(selectedCol * tileSize, selectedRow * tileSize, tileSize, tileSize);
 
             g.setColor(Color.ORANGE);
-            for (Move m : allMoves) {
-                g.drawRect(m.getToCol() * TILE_SIZE, m.getToRow() * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+            for (Move m : selectedMoves) {
+                g.drawRect(m.getToCol() * tileSize, m.getToRow() * tileSize, tileSize, tileSize);
             }
         }
     }
 
+    /**
+     * Changes the selected piece, caching its moves for highlighting and repainting the tiles whose highlight
+     * changes.
+     *
+     * @param row Row of the piece to select, or -1 to clear the selection
+     * @param col Column of the piece to select, or -1 to clear the selection
+     */
+    private void select(int row, int col) {
+        repaintSelection();
+        selectedRow = row;
+        selectedCol = col;
+        selectedMoves = row == -1 ? List.of() : getPossibleMovesForPiece(row, col, false);
+        repaintSelection();
+    }
+
+    /**
+     * Schedules a repaint of the selected tile and the tiles it can move to.
+     */
+    private void repaintSelection() {
+        if (selectedRow != -1 && selectedCol != -1) {
+            repaintTile(selectedRow, selectedCol);
+            for (Move m : selectedMoves) {
+                repaintTile(m.getToRow(), m.getToCol());
+            }
+        }
+    }
+
+    /**
+     * Schedules a repaint of the tiles a move changed.
+     *
+     * @param move The packed move
+     */
+    private void repaintMove(int move) {
+        if (Move.captureCount(move) > 1) {
+            repaint(); // The pieces taken by a capture sequence are no longer known
+            return;
+        }
+        int from = Move.fromSquare(move);
+        int to = Move.toSquare(move);
+        Variant variant = game.getVariant();
+        repaintTile(variant.row(from), variant.col(from));
+        repaintTile(variant.row(to), variant.col(to));
+        if (Move.isCapture(move)) {
+            int captured = Move.capturedSquare(move);
+            repaintTile(variant.row(captured), variant.col(captured));
+        }
+    }
+
+    /**
+     * Schedules a repaint of one tile, including the outline it shares with its neighbours.
+     *
+     * @param row Row of the tile
+     * @param col Column of the tile
+     */
+    private void repaintTile(int row, int col) {
+        repaint(col * tileSize, row * tileSize, tileSize + 1, tileSize + 1);
+    }
+
+    /**
+     * Takes back the player's last move together with the AI's reply.
+     * A search in progress is cancelled.
+     */
+    public void undo() {
+        if (game.getPly() == 0) {
+            return;
+        }
+        cancelSearch();
+        gameRecorded = false;
+        do {
+            game.unmakeMove();
+        } while (game.getPly() > 0 && game.getSideToMove() != PieceType.RED);
+        isPlayerTurn = true;
+        select(-1, -1);
+        repaint();
+        startPondering();
+    }
+
+    /**
+     * Appends the current game to the game archive, once per game.
+     *
+     * @param result Result to store with the game
+     */
+    private void recordGame(GameResult result) {
+        if (gameRecorded || game.getPly() == 0 || !game.getVariant().equals(Variant.STANDARD)) {
+            return; // The archive holds standard games only
+        }
+        gameRecorded = true;
+        try (GameRecordWriter writer = new GameRecordWriter(recordFile)) {
+            writer.write(game, result);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace(); // A game the archive cannot hold must not stop the game from ending
+        }
+    }
+
+    /**
+     * Asks for a file name and saves the moves played so far as PDN.
+     */
+    public void exportPdn() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("game.pdn"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            Files.writeString(chooser.getSelectedFile().toPath(), GameRecord.of(game, game.getResult(tablebase)).toPdn());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not save the game: " + e.getMessage(), "Export PDN",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Stops the AI's search and any pondering, and makes sure their results are ignored.
+     */
+    private void cancelSearch() {
+        thinkingStop.set(true);
+        ponderStop.set(true);
+        gameGeneration++;
+        isThinking = false;
+        setCursor(Cursor.getDefaultCursor());
+    }
+
     /**
      * Restarts the game by resetting the board and other game state.
+     * A search still running for the previous game is cancelled and its result discarded.
      */
     public void restart() {
+        cancelSearch();
+        recordGame(GameResult.ONGOING);
         initializeBoard();
         isPlayerTurn = true;
-        selectedRow = -1;
-        selectedCol = -1;
+        select(-1, -1);
         repaint();
     }
+
+    /**
+     * Starts a new game in another variant.
+     * The panel's preferred size follows the new board; the caller is expected to lay out the window again.
+     *
+     * @param variant Board size and rules of the new game
+     */
+    public void setVariant(Variant variant) {
+        cancelSearch();
+        recordGame(GameResult.ONGOING);
+        select(-1, -1);
+        game.reset(variant);
+        gameRecorded = false;
+        // Positions searched under other rules may look the same but have other values
+        engineThread.execute(() -> searchEngine.getTranspositionTable().clear());
+        boardImage = null;
+        isPlayerTurn = true;
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Gets the variant of the current game.
+     *
+     * @return Board size and rules
+     */
+    public Variant getVariant() {
+        return game.getVariant();
+    }
 }
@@ -0,0 +1,22 @@
+/**
+ * A player that chooses moves by searching, so that different search algorithms can be matched against each
+ * other.
+ */
+public interface Engine {
+    /**
+     * Searches for the best move of a side.
+     * The given board is not modified.
+     *
+     * @param board Position to search
+     * @param side  Side to move
+     * @return The best move found together with search statistics
+     */
+    SearchResult search(Bitboard board, PieceType side);
+
+    /**
+     * Releases the threads the engine owns. The default does nothing, for engines searching on the calling
+     * thread only.
+     */
+    default void shutdown() {
+    }
+}
@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Settings of one engine player, used to set up engines for matches between configurations.
+ * A configuration is written as comma-separated {@code key=value} pairs, for example
+ * {@code depth=8,time=0,tt=16}; keys left out keep their defaults. {@code eval=<file>} plays with evaluation
+ * weights read by {@link Evaluator#load(java.nio.file.Path)}, and {@code nnue=<file>} with a neural network read
+ * by {@link Network#load(java.nio.file.Path)}. {@code mcts=<threads>} plays with {@link MonteCarloSearch}
+ * instead of alpha-beta, limited by {@code time}, {@code playouts} and the tree size {@code tree} in megabytes.
+ */
+public class EngineConfig {
+    private final String name; // Text the configuration was parsed from, used in reports
+    private int maxDepth = 64; // Deepest iteration to start
+    private long timeLimit = 100; // Time budget per move in milliseconds, or 0 for none
+    private long nodeLimit = 0; // Node budget per move, or 0 for none
+    private int tableMb = 16; // Size of the transposition table in megabytes
+    private Evaluator evaluator = Evaluator.DEFAULT; // Static evaluation of the engine
+    private Network network; // Neural network evaluation of the engine, or null to use the evaluator
+    private int mctsThreads = 0; // Threads of the Monte Carlo tree search, or 0 for alpha-beta
+    private long playoutLimit = 0; // Playout budget per move of the Monte Carlo search, or 0 for none
+    private int treeMb = 64; // Size of the Monte Carlo search tree in megabytes
+
+    /**
+     * Constructs a new EngineConfig with default settings.
+     *
+     * @param name Name used in reports
+     */
+    public EngineConfig(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Parses a configuration such as {@code depth=8,time=0,nodes=100000,tt=16}.
+     *
+     * @param text The configuration
+     * @return The parsed configuration
+     * @throws IllegalArgumentException if a key is unknown, a value is not a number or a weight or network file
+     *                                  cannot be read
+     */
+    public static EngineConfig parse(String text) {
+        EngineConfig config = new EngineConfig(text);
+        for (String pair : text.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            String[] parts = pair.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected key=value: " + pair);
+            }
+            if (parts[0].trim().equals("eval")) {
+                try {
+                    config.evaluator = Evaluator.load(Paths.get(parts[1].trim()));
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Cannot read weights: " + pair, e);
+                }
+                continue;
+            }
+            if (parts[0].trim().equals("nnue")) {
+                try {
+                    config.network = Network.load(Paths.get(parts[1].trim()));
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Cannot read network: " + pair, e);
+                }
+                continue;
+            }
+            long value;
+            try {
+                value = Long.parseLong(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value: " + pair, e);
+            }
+            switch (parts[0].trim()) {
+                case "depth":
+                    config.maxDepth = (int) value;
+                    break;
+                case "time":
+                    config.timeLimit = value;
+                    break;
+                case "nodes":
+                    config.nodeLimit = value;
+                    break;
+                case "tt":
+                    config.tableMb = (int) value;
+                    break;
+                case "mcts":
+                    config.mctsThreads = (int) value;
+                    break;
+                case "playouts":
+                    config.playoutLimit = value;
+                    break;
+                case "tree":
+                    config.treeMb = (int) value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting: " + parts[0]);
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Creates an engine with these settings and its own transposition table or search tree.
+     *
+     * @return A new engine
+     */
+    public Engine createEngine() {
+        if (mctsThreads > 0) {
+            MonteCarloSearch search = new MonteCarloSearch(mctsThreads, treeMb);
+            search.setTimeLimit(timeLimit);
+            search.setPlayoutLimit(playoutLimit);
+            return search;
+        }
+        SearchEngine engine = new SearchEngine();
+        engine.setTranspositionTable(new TranspositionTable(tableMb));
+        engine.setMaxDepth(maxDepth);
+        engine.setTimeLimit(timeLimit);
+        engine.setNodeLimit(nodeLimit);
+        engine.setEvaluator(evaluator);
+        engine.setNetwork(network);
+        return engine;
+    }
+
+    /**
+     * Gets the name used in reports.
+     *
+     * @return The configuration text
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the name of the configuration.
+     *
+     * @return The configuration text
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,317 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Static evaluation of checkers positions, as a weighted sum of terms: material (men and kings), how far men
+ * have advanced, men and kings on the centre squares, men still guarding their own back row, and mobility.
+ * Every term except mobility depends only on which piece stands on which square, so those terms are folded
+ * into one table of square values per variant; a {@link Bitboard} keeps the sum of its pieces' values up to
+ * date on every move, and evaluating a position only adds the mobility term, counted with mask operations.
+ * The evaluation is linear in the weights, which is what {@link EvaluatorTuner} relies on to fit them.
+ * Evaluators are immutable and safe to share between threads.
+ */
+public final class Evaluator {
+    /**
+     * Term: value of a man.
+     */
+    public static final int MAN = 0;
+    /**
+     * Term: value of a king.
+     */
+    public static final int KING = 1;
+    /**
+     * Term: bonus per row a man has advanced from its own back row.
+     */
+    public static final int ADVANCE = 2;
+    /**
+     * Term: bonus of a man on a centre square.
+     */
+    public static final int CENTER = 3;
+    /**
+     * Term: bonus of a king on a centre square.
+     */
+    public static final int KING_CENTER = 4;
+    /**
+     * Term: bonus of a man still on its own back row, keeping enemy men from being promoted.
+     */
+    public static final int BACK_RANK = 5;
+    /**
+     * Term: bonus per simple move a side could make.
+     */
+    public static final int MOBILITY = 6;
+    /**
+     * Number of terms.
+     */
+    public static final int TERMS = 7;
+
+    /**
+     * Hand-picked weights, used until tuned weights are loaded.
+     */
+    public static final Evaluator DEFAULT = new Evaluator(new int[]{100, 250, 3, 4, 8, 6, 2});
+
+    private static final String[] NAMES = {"man", "king", "advance", "center", "kingCenter", "backRank", "mobility"}; // Names of the terms in weight files
+
+    private final int[] weights; // Weight of each term
+    private final Map<Variant, int[]> squareTables = new ConcurrentHashMap<>(); // Square values by variant, built on first use
+
+    /**
+     * Constructs a new Evaluator.
+     *
+     * @param weights Weight of each term, indexed by the term constants
+     * @throws IllegalArgumentException if the number of weights does not match {@link #TERMS}
+     */
+    public Evaluator(int[] weights) {
+        if (weights.length != TERMS) {
+            throw new IllegalArgumentException("Expected " + TERMS + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Reads weights written by {@link #save(Path)}: one {@code name=value} line per term. Terms left out keep
+     * their default weights.
+     *
+     * @param file The weight file
+     * @return The evaluator
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a term is unknown or a value is not a number
+     */
+    public static Evaluator load(Path file) throws IOException {
+        int[] weights = DEFAULT.getWeights();
+        for (String line : Files.readAllLines(file)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("=", 2);
+            int term = List.of(NAMES).indexOf(parts[0].trim());
+            if (term < 0 || parts.length != 2) {
+                throw new IllegalArgumentException("Unknown weight: " + line);
+            }
+            try {
+                weights[term] = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value: " + line, e);
+            }
+        }
+        return new Evaluator(weights);
+    }
+
+    /**
+     * Reads weights like {@link #load(Path)}, falling back to the defaults.
+     *
+     * @param file The weight file
+     * @return The evaluator, or {@link #DEFAULT} if the file is missing or invalid
+     */
+    public static Evaluator loadOrDefault(Path file) {
+        if (!Files.isReadable(file)) {
+            return DEFAULT;
+        }
+        try {
+            return load(file);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return DEFAULT;
+        }
+    }
+
+    /**
+     * Writes the weights in the form read by {@link #load(Path)}.
+     *
+     * @param file The weight file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int term = 0; term < TERMS; term++) {
+            lines.add(NAMES[term] + "=" + weights[term]);
+        }
+        Files.write(file, lines);
+    }
+
+    /**
+     * Gets the weight of every term.
+     *
+     * @return A copy of the weights, indexed by the term constants
+     */
+    public int[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Gets the name of a term as written in weight files.
+     *
+     * @param term One of the term constants
+     * @return The name
+     */
+    public static String getName(int term) {
+        return NAMES[term];
+    }
+
+    /**
+     * Evaluates a position.
+     *
+     * @param board The position
+     * @param side  Side to move
+     * @return Score from the point of view of the side to move
+     */
+    public int evaluate(Bitboard board, PieceType side) {
+        int score = board.getEvaluator() == this ? board.getSquareScore() : squareScore(board);
+        score += weights[MOBILITY] * (mobility(board, PieceType.RED) - mobility(board, PieceType.BLACK));
+        return side == PieceType.RED ? score : -score;
+    }
+
+    /**
+     * Gets the table of square values of a variant: the value of every kind of piece (see
+     * {@link Zobrist#kind(PieceType, boolean)}) on every square, at {@code kind * Bitboard.MAX_SQUARES + square}.
+     * Red pieces count positive and black pieces negative, so the sum over a position is red's advantage.
+     *
+     * @param variant The variant
+     * @return The shared table; callers must not modify it
+     */
+    public int[] getSquareTable(Variant variant) {
+        return squareTables.computeIfAbsent(variant, v -> {
+            int[] table = new int[4 * Bitboard.MAX_SQUARES];
+            int[] features = new int[TERMS];
+            for (int kind = 0; kind < 4; kind++) {
+                for (int square = 0; square < v.getSquares(); square++) {
+                    Arrays.fill(features, 0);
+                    addSquareFeatures(v, kind, square, features);
+                    int value = 0;
+                    for (int term = 0; term < TERMS; term++) {
+                        value += weights[term] * features[term];
+                    }
+                    table[kind * Bitboard.MAX_SQUARES + square] = value;
+                }
+            }
+            return table;
+        });
+    }
+
+    /**
+     * Counts the terms of a position, red's count minus black's, so that the evaluation from red's point of
+     * view is the sum of each feature times its weight.
+     *
+     * @param board    The position
+     * @param features Receives one value per term
+     */
+    public static void getFeatures(Bitboard board, int[] features) {
+        Arrays.fill(features, 0);
+        Variant variant = board.getVariant();
+        for (int word = 0; word < variant.getWords(); word++) {
+            long occupied = board.getPieces(PieceType.RED, word) | board.getPieces(PieceType.BLACK, word);
+            for (; occupied != 0; occupied &= occupied - 1) {
+                int square = word * Long.SIZE + Long.numberOfTrailingZeros(occupied);
+                addSquareFeatures(variant, Zobrist.kind(board.getType(square), board.isKing(square)), square, features);
+            }
+        }
+        features[MOBILITY] = mobility(board, PieceType.RED) - mobility(board, PieceType.BLACK);
+    }
+
+    /**
+     * Sums the square values of every piece on a board, the way the board keeps them incrementally.
+     *
+     * @param board The position
+     * @return Red's advantage in square values
+     */
+    private int squareScore(Bitboard board) {
+        int[] table = getSquareTable(board.getVariant());
+        int score = 0;
+        for (int word = 0; word < board.getVariant().getWords(); word++) {
+            long occupied = board.getPieces(PieceType.RED, word) | board.getPieces(PieceType.BLACK, word);
+            for (; occupied != 0; occupied &= occupied - 1) {
+                int square = word * Long.SIZE + Long.numberOfTrailingZeros(occupied);
+                score += table[Zobrist.kind(board.getType(square), board.isKing(square)) * Bitboard.MAX_SQUARES + square];
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Adds the terms of one piece to a feature vector, positive for red and negative for black.
+     *
+     * @param variant  Variant giving the board geometry
+     * @param kind     Kind of the piece, see {@link Zobrist#kind(PieceType, boolean)}
+     * @param square   Square of the piece
+     * @param features Feature vector to add to
+     */
+    private static void addSquareFeatures(Variant variant, int kind, int square, int[] features) {
+        boolean red = kind < 2;
+        int sign = red ? 1 : -1;
+        int size = variant.getBoardSize();
+        int row = variant.row(square);
+        int col = variant.col(square);
+        int margin = size / 4;
+        boolean center = row >= margin && row < size - margin && col >= margin && col < size - margin;
+        if ((kind & 1) == 0) {
+            int advance = red ? row : size - 1 - row;
+            features[MAN] += sign;
+            features[ADVANCE] += sign * advance;
+            features[CENTER] += center ? sign : 0;
+            features[BACK_RANK] += advance == 0 ? sign : 0;
+        } else {
+            features[KING] += sign;
+            features[KING_CENTER] += center ? sign : 0;
+        }
+    }
+
+    /**
+     * Counts the simple moves of a side with mask operations: forward steps of men and steps of kings in
+     * every direction onto empty squares. Boards larger than 10x10 are counted piece by piece.
+     *
+     * @param board The position
+     * @param type  Side to count
+     * @return Number of simple steps, counting a flying king's slides as one step per direction
+     */
+    private static int mobility(Bitboard board, PieceType type) {
+        Variant variant = board.getVariant();
+        if (variant.getWords() > 1) {
+            return wideMobility(board, type);
+        }
+        long own = board.getPieces(type);
+        long queens = own & board.getKings();
+        long men = own & ~queens;
+        long empty = board.getEmpty();
+        int firstForward = type == PieceType.RED ? Bitboard.DOWN_LEFT : Bitboard.UP_LEFT;
+        int count = 0;
+        for (int direction = Bitboard.UP_LEFT; direction <= Bitboard.DOWN_RIGHT; direction++) {
+            boolean forward = direction == firstForward || direction == firstForward + 1;
+            long movers = forward ? men | queens : queens;
+            count += Long.bitCount(variant.shift(movers, direction) & empty);
+        }
+        return count;
+    }
+
+    /**
+     * Counts the simple moves of a side on a board larger than 10x10, the way {@link #mobility} does, from the
+     * neighbour table.
+     *
+     * @param board The position
+     * @param type  Side to count
+     * @return Number of simple steps
+     */
+    private static int wideMobility(Bitboard board, PieceType type) {
+        Variant variant = board.getVariant();
+        int firstForward = type == PieceType.RED ? Bitboard.DOWN_LEFT : Bitboard.UP_LEFT;
+        int count = 0;
+        for (int word = 0; word < 2; word++) {
+            for (long pieces = board.getPieces(type, word); pieces != 0; pieces &= pieces - 1) {
+                int square = word * Long.SIZE + Long.numberOfTrailingZeros(pieces);
+                boolean king = board.isKing(square);
+                for (int direction = Bitboard.UP_LEFT; direction <= Bitboard.DOWN_RIGHT; direction++) {
+                    int to = variant.neighbor(square, direction);
+                    boolean forward = direction == firstForward || direction == firstForward + 1;
+                    if ((king || forward) && to >= 0 && board.getType(to) == null) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fits the weights of the {@link Evaluator} to the results of recorded games (Texel tuning).
+ * Every quiet position of every decided game is labelled with the game's result, and the weights are chosen
+ * so that a logistic function of the evaluation predicts those results as well as possible. Since the
+ * evaluation is linear in the weights, each position is reduced to its feature vector once while loading;
+ * the positions are then kept in flat arrays, and each step of the gradient descent only multiplies and adds
+ * over them, split over a pool of threads.
+ */
+public class EvaluatorTuner {
+    private static final int OPENING_PLIES = 8; // Plies at the start of each game whose positions are skipped
+    private static final int CHUNK = 1 << 16; // Positions per task when computing the error and gradient
+    private static final double LEARNING_RATE = 0.5; // Step size of the gradient descent, in weight units
+    private static final double BETA1 = 0.9; // Decay of the running mean of the gradient
+    private static final double BETA2 = 0.999; // Decay of the running mean of the squared gradient
+
+    private final ExecutorService pool; // Threads sharing each pass over the positions
+    private short[] features = new short[1024 * Evaluator.TERMS]; // Feature vector of each position, back to back
+    private byte[] results = new byte[1024]; // Result of each position's game for red: 0 loss, 1 draw, 2 win
+    private int size; // Number of positions loaded
+
+    /**
+     * Constructs a new EvaluatorTuner.
+     *
+     * @param threads Number of threads to compute the gradient with
+     */
+    public EvaluatorTuner(int threads) {
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads));
+    }
+
+    /**
+     * Adds the positions of every decided game in an archive.
+     *
+     * @param archive Game archive written by {@link GameRecordWriter}
+     * @throws IOException if the archive cannot be read
+     */
+    public void load(Path archive) throws IOException {
+        try (GameRecordReader reader = new GameRecordReader(archive)) {
+            for (GameRecord record = reader.next(); record != null; record = reader.next()) {
+                add(record);
+            }
+        }
+    }
+
+    /**
+     * Adds the quiet positions of a game, skipping its opening. Positions in which the side to move can capture
+     * are left out, since their evaluation is taken in the middle of an exchange.
+     *
+     * @param record The game; ignored if it has no result
+     */
+    public void add(GameRecord record) {
+        byte result;
+        switch (record.getResult()) {
+            case RED_WINS:
+                result = 2;
+                break;
+            case BLACK_WINS:
+                result = 0;
+                break;
+            case DRAW:
+                result = 1;
+                break;
+            default:
+                return;
+        }
+        GameState game = record.getStartFen() == null ? new GameState(record.getVariant())
+                : GameState.fromFen(record.getStartFen(), record.getVariant());
+        int[] vector = new int[Evaluator.TERMS];
+        int[] moves = record.getMoves();
+        for (int i = 0; i <= moves.length; i++) {
+            Bitboard board = game.getBoard();
+            if (i >= OPENING_PLIES && !board.hasCaptures(game.getSideToMove())) {
+                Evaluator.getFeatures(board, vector);
+                add(vector, result);
+            }
+            if (i < moves.length) {
+                game.makeMove(moves[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds one labelled position.
+     *
+     * @param vector Feature vector from {@link Evaluator#getFeatures(Bitboard, int[])}
+     * @param result Result of the game for red: 0 loss, 1 draw, 2 win
+     */
+    private void add(int[] vector, byte result) {
+        if (size == results.length) {
+            results = Arrays.copyOf(results, size * 2);
+            features = Arrays.copyOf(features, size * 2 * Evaluator.TERMS);
+        }
+        for (int term = 0; term < Evaluator.TERMS; term++) {
+            features[size * Evaluator.TERMS + term] = (short) vector[term];
+        }
+        results[size++] = result;
+    }
+
+    /**
+     * Gets the number of positions loaded.
+     *
+     * @return Number of positions
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Computes the mean squared difference between the predicted and actual results.
+     *
+     * @param weights Weight of each term
+     * @param scale   Slope of the logistic function turning evaluations into expected results
+     * @return The error
+     */
+    public double error(double[] weights, double scale) {
+        return pass(weights, scale, false)[Evaluator.TERMS] / size;
+    }
+
+    /**
+     * Finds the slope of the logistic function that fits the results best for the given weights.
+     * The slope stays fixed while the weights are tuned, so it sets the scale the weights are measured in.
+     *
+     * @param weights Weight of each term
+     * @return The best slope
+     */
+    public double fitScale(double[] weights) {
+        double low = 1e-4;
+        double high = 0.1;
+        // The error is unimodal in the slope, so a ternary search on a log scale finds its minimum
+        for (int i = 0; i < 40; i++) {
+            double a = low * Math.pow(high / low, 1 / 3.0);
+            double b = low * Math.pow(high / low, 2 / 3.0);
+            if (error(weights, a) < error(weights, b)) {
+                high = b;
+            } else {
+                low = a;
+            }
+        }
+        return Math.sqrt(low * high);
+    }
+
+    /**
+     * Tunes the weights by gradient descent with adaptive step sizes (Adam).
+     *
+     * @param start      Weights to start from
+     * @param scale      Slope of the logistic function, see {@link #fitScale(double[])}
+     * @param iterations Number of gradient steps
+     * @return The tuned weights
+     */
+    public double[] tune(double[] start, double scale, int iterations) {
+        double[] weights = start.clone();
+        double[] mean = new double[Evaluator.TERMS];
+        double[] variance = new double[Evaluator.TERMS];
+        for (int step = 1; step <= iterations; step++) {
+            double[] gradient = pass(weights, scale, true);
+            for (int term = 0; term < Evaluator.TERMS; term++) {
+                double g = gradient[term] / size;
+                mean[term] = BETA1 * mean[term] + (1 - BETA1) * g;
+                variance[term] = BETA2 * variance[term] + (1 - BETA2) * g * g;
+                double m = mean[term] / (1 - Math.pow(BETA1, step));
+                double v = variance[term] / (1 - Math.pow(BETA2, step));
+                weights[term] -= LEARNING_RATE * m / (Math.sqrt(v) + 1e-12);
+            }
+            if (step % 100 == 0 || step == iterations) {
+                System.out.printf("step %d: error %.6f%n", step, gradient[Evaluator.TERMS] / size);
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Runs one pass over all positions on the thread pool, summing the squared error and, if asked, its
+     * gradient.
+     *
+     * @param weights  Weight of each term
+     * @param scale    Slope of the logistic function
+     * @param gradient True to compute the gradient as well as the error
+     * @return The summed gradient of each term, followed by the summed squared error
+     */
+    private double[] pass(double[] weights, double scale, boolean gradient) {
+        List<Future<double[]>> tasks = new ArrayList<>();
+        for (int from = 0; from < size; from += CHUNK) {
+            int first = from;
+            int last = Math.min(size, from + CHUNK);
+            tasks.add(pool.submit(() -> passRange(weights, scale, gradient, first, last)));
+        }
+        double[] sums = new double[Evaluator.TERMS + 1];
+        try {
+            for (Future<double[]> task : tasks) {
+                double[] part = task.get();
+                for (int i = 0; i < sums.length; i++) {
+                    sums[i] += part[i];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return sums;
+    }
+
+    /**
+     * Sums the squared error and its gradient over a range of positions.
+     *
+     * @param weights  Weight of each term
+     * @param scale    Slope of the logistic function
+     * @param gradient True to compute the gradient as well as the error
+     * @param first    Index of the first position
+     * @param last     Index one past the last position
+     * @return The summed gradient of each term, followed by the summed squared error
+     */
+    private double[] passRange(double[] weights, double scale, boolean gradient, int first, int last) {
+        double[] sums = new double[Evaluator.TERMS + 1];
+        for (int i = first; i < last; i++) {
+            int offset = i * Evaluator.TERMS;
+            double eval = 0;
+            for (int term = 0; term < Evaluator.TERMS; term++) {
+                eval += weights[term] * features[offset + term];
+            }
+            double predicted = 1 / (1 + Math.exp(-scale * eval));
+            double difference = predicted - results[i] * 0.5;
+            sums[Evaluator.TERMS] += difference * difference;
+            if (gradient) {
+                double slope = 2 * difference * predicted * (1 - predicted) * scale;
+                for (int term = 0; term < Evaluator.TERMS; term++) {
+                    sums[term] += slope * features[offset + term];
+                }
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Stops the threads of the pool.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Tunes the evaluation weights from the command line.
+     * Usage: {@code java EvaluatorTuner <archive> [weights file] [iterations] [threads]}; the weights are
+     * written to {@code evaluation.txt} by default, the file the game reads at startup, after 1000 iterations
+     * on all processors. An existing weights file is used as the starting point.
+     *
+     * @param args Command-line arguments
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java EvaluatorTuner <archive> [weights file] [iterations] [threads]");
+            return;
+        }
+        Path output = Paths.get(args.length > 1 ? args[1] : "evaluation.txt");
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        EvaluatorTuner tuner = new EvaluatorTuner(threads);
+        try {
+            long start = System.nanoTime();
+            tuner.load(Paths.get(args[0]));
+            System.out.printf("Loaded %d positions in %.1f s%n", tuner.getSize(), (System.nanoTime() - start) / 1e9);
+            if (tuner.getSize() == 0) {
+                return;
+            }
+
+            int[] initial = Evaluator.loadOrDefault(output).getWeights();
+            double[] weights = new double[Evaluator.TERMS];
+            for (int term = 0; term < Evaluator.TERMS; term++) {
+                weights[term] = initial[term];
+            }
+            double scale = tuner.fitScale(weights);
+            System.out.printf("Scale %.6f, error %.6f%n", scale, tuner.error(weights, scale));
+
+            start = System.nanoTime();
+            weights = tuner.tune(weights, scale, iterations);
+            System.out.printf("Tuned in %.1f s%n", (System.nanoTime() - start) / 1e9);
+
+            int[] tuned = new int[Evaluator.TERMS];
+            for (int term = 0; term < Evaluator.TERMS; term++) {
+                tuned[term] = (int) Math.round(weights[term]);
+                System.out.printf("%-12s %5d -> %5d%n", Evaluator.getName(term), initial[term], tuned[term]);
+            }
+            new Evaluator(tuned).save(output);
+        } finally {
+            tuner.shutdown();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A finished or abandoned game: the position it started from, the moves played and the result.
+ * Records are stored in bulk by {@link GameRecordWriter} and read back by {@link GameRecordReader}, and can be
+ * converted to and from PDN text. PDN squares are numbered 1 to 32 as in {@link GameState#fromFen(String)},
+ * and results are written from red's point of view: {@code 2-0} red wins, {@code 0-2} black wins,
+ * {@code 1-1} draw and {@code *} unfinished. Games of other variants carry a {@code Variant} tag in the form
+ * read by {@link Variant#parse(String)}.
+ */
+public class GameRecord {
+    private static final Pattern TAG = Pattern.compile("\\[(\\w+)\\s+\"([^\"]*)\"]"); // PDN tag pair
+    private static final Pattern MOVE = Pattern.compile("\\d+(?:[-x]\\d+|(?:x\\d+)+)"); // PDN move such as 9-13, 9x18 or 9x18x27
+
+    private final Variant variant; // Board size and rules the game was played by
+    private final String startFen; // Starting position, or null for the standard one
+    private final int[] moves; // Packed moves in the order they were played
+    private final GameResult result; // Result of the game
+
+    /**
+     * Constructs a new GameRecord of a standard game.
+     *
+     * @param startFen Starting position in FEN-like notation, or null for the standard starting position
+     * @param moves    Packed moves in the order they were played
+     * @param result   Result of the game
+     */
+    public GameRecord(String startFen, int[] moves, GameResult result) {
+        this(Variant.STANDARD, startFen, moves, result);
+    }
+
+    /**
+     * Constructs a new GameRecord.
+     *
+     * @param variant  Board size and rules the game was played by
+     * @param startFen Starting position in FEN-like notation, or null for the variant's starting position
+     * @param moves    Packed moves in the order they were played
+     * @param result   Result of the game
+     */
+    public GameRecord(Variant variant, String startFen, int[] moves, GameResult result) {
+        this.variant = variant;
+        this.startFen = startFen;
+        this.moves = moves;
+        this.result = result;
+    }
+
+    /**
+     * Creates a record of the moves played in a game so far.
+     *
+     * @param game   The game; not modified
+     * @param result Result to store
+     * @return The record
+     */
+    public static GameRecord of(GameState game, GameResult result) {
+        GameState start = new GameState(game);
+        int[] moves = new int[game.getPly()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = game.getMove(i);
+        }
+        while (start.getPly() > 0) {
+            start.unmakeMove();
+        }
+        String fen = start.toFen();
+        Variant variant = game.getVariant();
+        return new GameRecord(variant, fen.equals(new GameState(variant).toFen()) ? null : fen, moves, result);
+    }
+
+    /**
+     * Gets the board size and rules the game was played by.
+     *
+     * @return The variant
+     */
+    public Variant getVariant() {
+        return variant;
+    }
+
+    /**
+     * Gets the starting position.
+     *
+     * @return The position in FEN-like notation, or null for the variant's starting position
+     */
+    public String getStartFen() {
+        return startFen;
+    }
+
+    /**
+     * Gets the moves played.
+     *
+     * @return Packed moves in the order they were played; callers must not modify the array
+     */
+    public int[] getMoves() {
+        return moves;
+    }
+
+    /**
+     * Gets the result of the game.
+     *
+     * @return The result
+     */
+    public GameResult getResult() {
+        return result;
+    }
+
+    /**
+     * Plays the recorded moves from the starting position.
+     *
+     * @return The game after the last move, with the full move history
+     */
+    public GameState replay() {
+        GameState game = startFen == null ? new GameState(variant) : GameState.fromFen(startFen, variant);
+        for (int move : moves) {
+            game.makeMove(move);
+        }
+        return game;
+    }
+
+    /**
+     * Writes the game as PDN text. The moves are replayed, so that a capture sequence sharing its squares with
+     * another legal move can be written with every square it lands on.
+     *
+     * @return The game with its tags, moves and result
+     */
+    public String toPdn() {
+        StringBuilder pdn = new StringBuilder();
+        pdn.append("[Event \"Checkers\"]\n");
+        pdn.append("[Result \"").append(resultText()).append("\"]\n");
+        if (!variant.equals(Variant.STANDARD)) {
+            pdn.append("[Variant \"").append(variant).append("\"]\n");
+        }
+        if (startFen != null) {
+            pdn.append("[FEN \"").append(startFen).append("\"]\n");
+        }
+        GameState game = startFen == null ? new GameState(variant) : GameState.fromFen(startFen, variant);
+        int blackFirst = game.getSideToMove() == PieceType.BLACK ? 1 : 0;
+        int lineLength = 0;
+        for (int i = 0; i < moves.length; i++) {
+            String token = Rules.toString(game.getBoard(), moves[i]);
+            game.makeMove(moves[i]);
+            if (i == 0 && blackFirst == 1) {
+                token = "1... " + token;
+            } else if ((i + blackFirst) % 2 == 0) {
+                token = ((i + blackFirst) / 2 + 1) + ". " + token;
+            }
+            if (lineLength + token.length() > 80) {
+                pdn.append('\n');
+                lineLength = 0;
+            } else if (lineLength > 0) {
+                pdn.append(' ');
+                lineLength++;
+            }
+            pdn.append(token);
+            lineLength += token.length();
+        }
+        pdn.append(lineLength > 0 ? " " : "").append(resultText()).append("\n");
+        return pdn.toString();
+    }
+
+    /**
+     * Reads every game from PDN text.
+     *
+     * @param text One or more games in PDN
+     * @return The games in the order they appear
+     * @throws IllegalArgumentException if a move or position is not legal
+     */
+    public static List<GameRecord> fromPdn(String text) {
+        List<GameRecord> games = new ArrayList<>();
+        // Comments never hold moves; drop them before splitting into games
+        String body = text.replaceAll("\\{[^}]*}", " ");
+        Variant variant = Variant.STANDARD;
+        String fen = null;
+        GameState game = null;
+        List<Integer> moves = new ArrayList<>();
+        for (String line : body.split("\\R")) {
+            Matcher tag = TAG.matcher(line.trim());
+            if (tag.matches()) {
+                if (game != null) {
+                    games.add(finish(variant, fen, moves, GameResult.ONGOING));
+                    game = null;
+                    variant = Variant.STANDARD;
+                    fen = null;
+                }
+                if (tag.group(1).equals("FEN")) {
+                    fen = tag.group(2);
+                } else if (tag.group(1).equals("Variant")) {
+                    variant = Variant.parse(tag.group(2));
+                }
+                continue;
+            }
+            for (String token : line.trim().split("\\s+")) {
+                if (token.isEmpty() || token.matches("\\d+\\.+")) {
+                    continue;
+                }
+                GameResult result = parseResult(token);
+                if (result != null) {
+                    games.add(finish(variant, fen, moves, result));
+                    game = null;
+                    variant = Variant.STANDARD;
+                    fen = null;
+                    continue;
+                }
+                if (game == null) {
+                    game = fen == null ? new GameState(variant) : GameState.fromFen(fen, variant);
+                    moves.clear();
+                }
+                String move = token.replaceFirst("^\\d+\\.+", "");
+                if (!MOVE.matcher(move).matches()) {
+                    throw new IllegalArgumentException("Invalid move: " + token);
+                }
+                int packed = Rules.parseMove(game.getBoard(), game.getSideToMove(), move);
+                if (packed == Move.NONE) {
+                    throw new IllegalArgumentException("Illegal move: " + token);
+                }
+                game.makeMove(packed);
+                moves.add(packed);
+            }
+        }
+        if (game != null) {
+            games.add(finish(variant, fen, moves, GameResult.ONGOING));
+        }
+        return games;
+    }
+
+    /**
+     * Builds a record from the state collected while parsing PDN.
+     *
+     * @param variant Board size and rules of the game
+     * @param fen     Starting position, or null for the variant's starting position
+     * @param moves   Moves parsed so far; cleared afterwards
+     * @param result  Result of the game
+     * @return The record
+     */
+    private static GameRecord finish(Variant variant, String fen, List<Integer> moves, GameResult result) {
+        int[] packed = new int[moves.size()];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = moves.get(i);
+        }
+        moves.clear();
+        return new GameRecord(variant, fen, packed, result);
+    }
+
+    /**
+     * Parses a PDN result token.
+     *
+     * @param token The token
+     * @return The result, or null if the token is not a result
+     */
+    private static GameResult parseResult(String token) {
+        switch (token) {
+            case "2-0":
+            case "1-0":
+                return GameResult.RED_WINS;
+            case "0-2":
+            case "0-1":
+                return GameResult.BLACK_WINS;
+            case "1-1":
+            case "1/2-1/2":
+                return GameResult.DRAW;
+            case "*":
+                return GameResult.ONGOING;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Gets the PDN text of the result.
+     *
+     * @return The result token
+     */
+    private String resultText() {
+        switch (result) {
+            case RED_WINS:
+                return "2-0";
+            case BLACK_WINS:
+                return "0-2";
+            case DRAW:
+                return "1-1";
+            default:
+                return "*";
+        }
+    }
+
+    /**
+     * Compares this record with another one.
+     *
+     * @param other The object to compare with
+     * @return True if both records hold the same game, otherwise false
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof GameRecord record)) {
+            return false;
+        }
+        return result == record.result && variant.equals(record.variant) && Arrays.equals(moves, record.moves)
+                && (startFen == null ? record.startFen == null : startFen.equals(record.startFen));
+    }
+
+    /**
+     * Computes a hash code consistent with {@link #equals(Object)}.
+     *
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(moves) * 31 + result.hashCode();
+    }
+}
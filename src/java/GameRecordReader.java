@@ -0,0 +1,256 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streams {@link GameRecord}s out of a binary game archive written by {@link GameRecordWriter}.
+ * The archive is read through one reusable buffer, so archives of any size are replayed with constant
+ * memory. {@link #index()} lists where every game starts without decoding any moves, and
+ * {@link #seek(long)} jumps straight to one of them.
+ */
+public class GameRecordReader implements Closeable {
+    private final FileChannel channel; // Archive being read
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(GameRecordWriter.BUFFER_SIZE); // Bytes read ahead
+    private final int[] legal = new int[Bitboard.MAX_MOVES]; // Legal moves of the position being decoded
+    private long bufferStart; // Archive offset of the first byte in the buffer
+
+    /**
+     * Opens an archive for reading.
+     *
+     * @param file The archive
+     * @throws IOException if the file cannot be opened or is not an archive
+     */
+    public GameRecordReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        checkHeader(channel);
+        seek(GameRecordWriter.HEADER_SIZE);
+    }
+
+    /**
+     * Checks that a channel holds a game archive of the supported version.
+     *
+     * @param channel The archive
+     * @throws IOException if the header is missing or does not match
+     */
+    static void checkHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GameRecordWriter.HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // Keep reading until the header is complete or the file ends
+        }
+        if (header.hasRemaining() || header.getInt(0) != GameRecordWriter.MAGIC) {
+            throw new IOException("Not a game archive");
+        }
+        if (header.getInt(4) != GameRecordWriter.FORMAT_VERSION) {
+            throw new IOException("Unsupported game archive version " + header.getInt(4));
+        }
+    }
+
+    /**
+     * Moves to the game starting at an offset returned by {@link #index()} or {@link #position()}.
+     *
+     * @param offset Archive offset of the game
+     * @throws IOException if the archive cannot be read
+     */
+    public void seek(long offset) throws IOException {
+        channel.position(offset);
+        bufferStart = offset;
+        buffer.clear().limit(0);
+    }
+
+    /**
+     * Gets the archive offset of the next game.
+     *
+     * @return Offset of the next byte to read
+     */
+    public long position() {
+        return bufferStart + buffer.position();
+    }
+
+    /**
+     * Reads and decodes the next game.
+     *
+     * @return The game, or null at the end of the archive
+     * @throws IOException if the archive cannot be read or is truncated
+     */
+    public GameRecord next() throws IOException {
+        if (!fill(1)) {
+            return null;
+        }
+        require(4);
+        int flags = buffer.get();
+        int resultIndex = buffer.get() & 0xFF;
+        if (resultIndex >= GameResult.values().length) {
+            throw new IOException("Corrupt game archive at offset " + (position() - 1));
+        }
+        GameResult result = GameResult.values()[resultIndex];
+        int count = buffer.getShort() & 0xFFFF;
+        String fen = null;
+        if ((flags & GameRecordWriter.FLAG_START_POSITION) != 0) {
+            require(2);
+            byte[] text = new byte[buffer.getShort() & 0xFFFF];
+            require(text.length);
+            buffer.get(text);
+            fen = new String(text, StandardCharsets.UTF_8);
+        }
+
+        GameState game = fen == null ? new GameState() : GameState.fromFen(fen);
+        int[] moves = new int[count];
+        for (int i = 0; i < count; i++) {
+            require(1);
+            int index = buffer.get() & 0xFF;
+            if (index >= game.generateMoves(legal, 0)) {
+                throw new IOException("Corrupt game archive at offset " + (position() - 1));
+            }
+            moves[i] = legal[index];
+            game.makeMove(moves[i]);
+        }
+        return new GameRecord(fen, moves, result);
+    }
+
+    /**
+     * Skips over the next game without decoding its moves.
+     *
+     * @return False at the end of the archive, otherwise true
+     * @throws IOException if the archive cannot be read or is truncated
+     */
+    public boolean skip() throws IOException {
+        if (!fill(1)) {
+            return false;
+        }
+        require(4);
+        int flags = buffer.get();
+        buffer.get();
+        long remaining = buffer.getShort() & 0xFFFF;
+        if ((flags & GameRecordWriter.FLAG_START_POSITION) != 0) {
+            require(2);
+            remaining += buffer.getShort() & 0xFFFF;
+        }
+        while (remaining > 0) {
+            require(1);
+            int step = (int) Math.min(remaining, buffer.remaining());
+            buffer.position(buffer.position() + step);
+            remaining -= step;
+        }
+        return true;
+    }
+
+    /**
+     * Lists the offset of every game from the current position to the end of the archive, then returns to the
+     * current position.
+     *
+     * @return Offsets usable with {@link #seek(long)}
+     * @throws IOException if the archive cannot be read or is truncated
+     */
+    public long[] index() throws IOException {
+        long start = position();
+        long[] offsets = new long[1024];
+        int count = 0;
+        for (long offset = position(); skip(); offset = position()) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = offset;
+        }
+        seek(start);
+        return Arrays.copyOf(offsets, count);
+    }
+
+    /**
+     * Closes the archive.
+     *
+     * @throws IOException if the archive cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads ahead until the buffer holds at least the given number of bytes.
+     *
+     * @param bytes Number of bytes needed, at most the buffer size
+     * @return False if the archive ends first, otherwise true
+     * @throws IOException if the archive cannot be read
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        bufferStart += buffer.position();
+        buffer.compact();
+        while (buffer.position() < bytes && channel.read(buffer) > 0) {
+            // Keep reading until enough bytes arrived or the file ends
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    /**
+     * Reads ahead like {@link #fill(int)}, treating the end of the archive as an error.
+     *
+     * @param bytes Number of bytes needed
+     * @throws IOException if the archive cannot be read or ends first
+     */
+    private void require(int bytes) throws IOException {
+        if (!fill(bytes)) {
+            throw new EOFException("Truncated game archive at offset " + position());
+        }
+    }
+
+    /**
+     * Works with game archives from the command line.
+     * Usage: {@code java GameRecordReader <archive>} to replay every game and print statistics,
+     * {@code java GameRecordReader <archive> --pdn <file>} to export all games as PDN, or
+     * {@code java GameRecordReader <archive> --import <file>} to append the games of a PDN file.
+     *
+     * @param args Command-line arguments
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java GameRecordReader <archive> [--pdn <file> | --import <file>]");
+            return;
+        }
+        Path archive = Paths.get(args[0]);
+        if (args.length > 2 && args[1].equals("--import")) {
+            try (GameRecordWriter writer = new GameRecordWriter(archive)) {
+                for (GameRecord record : GameRecord.fromPdn(Files.readString(Paths.get(args[2])))) {
+                    writer.write(record);
+                }
+                System.out.printf("Imported %d games%n", writer.getGames());
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        long games = 0;
+        long moves = 0;
+        long[] results = new long[GameResult.values().length];
+        try (GameRecordReader reader = new GameRecordReader(archive);
+             Writer pdn = args.length > 2 && args[1].equals("--pdn") ? Files.newBufferedWriter(Paths.get(args[2])) : null) {
+            for (GameRecord record = reader.next(); record != null; record = reader.next()) {
+                games++;
+                moves += record.getMoves().length;
+                results[record.getResult().ordinal()]++;
+                if (pdn != null) {
+                    pdn.write(record.toPdn());
+                    pdn.write('\n');
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d moves in %.2f s (%.0f games/s, %.0f moves/s)%n",
+                games, moves, seconds, games / seconds, moves / seconds);
+        for (GameResult result : GameResult.values()) {
+            System.out.printf("%-12s %d%n", result, results[result.ordinal()]);
+        }
+    }
+}
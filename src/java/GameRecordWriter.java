@@ -0,0 +1,159 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends {@link GameRecord}s to a binary game archive.
+ * An archive starts with an 8-byte header (magic and format version) followed by the games back to back.
+ * Each game is a flags byte (bit 0: custom starting position follows), a result byte, the number of moves as
+ * an unsigned 16-bit value, the starting position as a length-prefixed UTF-8 string if present, and then one
+ * byte per move: its index in the legal move list of the position, in the order {@link Rules} generates them.
+ * Writes go through one reusable buffer, so archives of any size are written with constant memory.
+ */
+public class GameRecordWriter implements Closeable {
+    /**
+     * Version of the archive layout and move ordering; archives of another version cannot be read.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    static final int MAGIC = 0x434B4752; // "CKGR"
+    static final int HEADER_SIZE = 8; // Bytes before the first game
+    static final int FLAG_START_POSITION = 1; // Flag: the game starts from a custom position
+    static final int BUFFER_SIZE = 1 << 16; // Size of the I/O buffer in bytes
+
+    private final FileChannel channel; // Archive being appended to
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE); // Bytes waiting to be written
+    private final int[] legal = new int[Bitboard.MAX_MOVES]; // Legal moves of the position being encoded
+    private byte[] indices = new byte[256]; // Move indices of the game being encoded
+    private long games; // Number of games written by this writer
+
+    /**
+     * Opens an archive for appending, creating it with a header if it does not exist yet.
+     *
+     * @param file The archive
+     * @throws IOException if the file cannot be opened or is not an archive
+     */
+    public GameRecordWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION);
+        } else {
+            GameRecordReader.checkHeader(channel);
+            channel.position(channel.size());
+        }
+    }
+
+    /**
+     * Adds a game to the archive.
+     *
+     * @param record The game
+     * @throws IOException if the archive cannot be written
+     * @throws IllegalArgumentException if the game has more than 65535 moves, is not a standard game or contains an
+     *                                  illegal move; nothing is written then
+     */
+    public void write(GameRecord record) throws IOException {
+        if (!record.getVariant().equals(Variant.STANDARD)) {
+            throw new IllegalArgumentException("Archives hold standard games only: " + record.getVariant());
+        }
+        int[] moves = record.getMoves();
+        if (moves.length > 0xFFFF) {
+            throw new IllegalArgumentException("Game too long: " + moves.length + " moves");
+        }
+        byte[] fen = record.getStartFen() == null ? null : record.getStartFen().getBytes(StandardCharsets.UTF_8);
+        // Every move is checked before anything is buffered, so a rejected game leaves no partial record behind
+        GameState game = fen == null ? new GameState() : GameState.fromFen(record.getStartFen());
+        if (indices.length < moves.length) {
+            indices = new byte[Math.max(moves.length, indices.length * 2)];
+        }
+        for (int i = 0; i < moves.length; i++) {
+            int count = game.generateMoves(legal, 0);
+            int index = 0;
+            while (index < count && legal[index] != moves[i]) {
+                index++;
+            }
+            if (index == count) {
+                throw new IllegalArgumentException("Illegal move in record: " + Move.toString(moves[i]));
+            }
+            indices[i] = (byte) index;
+            game.makeMove(moves[i]);
+        }
+
+        ensure(4 + (fen == null ? 0 : 2 + fen.length));
+        buffer.put((byte) (fen == null ? 0 : FLAG_START_POSITION));
+        buffer.put((byte) record.getResult().ordinal());
+        buffer.putShort((short) moves.length);
+        if (fen != null) {
+            buffer.putShort((short) fen.length).put(fen);
+        }
+        for (int offset = 0; offset < moves.length; ) {
+            ensure(1);
+            int length = Math.min(buffer.remaining(), moves.length - offset);
+            buffer.put(indices, offset, length);
+            offset += length;
+        }
+        games++;
+    }
+
+    /**
+     * Adds the moves played in a game so far to the archive.
+     *
+     * @param game   The game; not modified
+     * @param result Result to store
+     * @throws IOException if the archive cannot be written
+     */
+    public void write(GameState game, GameResult result) throws IOException {
+        write(GameRecord.of(game, result));
+    }
+
+    /**
+     * Gets the number of games written by this writer.
+     *
+     * @return Number of games
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Writes buffered bytes to the archive.
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flushes and closes the archive.
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Makes room in the buffer, flushing it if needed.
+     *
+     * @param bytes Number of bytes about to be written
+     * @throws IOException if the archive cannot be written
+     */
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
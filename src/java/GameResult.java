@@ -0,0 +1,24 @@
+/**
+ * Enum representing the state of a game of checkers.
+ */
+public enum GameResult {
+    /**
+     * The game is still in progress.
+     */
+    ONGOING,
+
+    /**
+     * Red has won: black has no pieces or no legal moves left.
+     */
+    RED_WINS,
+
+    /**
+     * Black has won: red has no pieces or no legal moves left.
+     */
+    BLACK_WINS,
+
+    /**
+     * Neither side can force a win, as shown by the endgame tablebase.
+     */
+    DRAW
+}
@@ -0,0 +1,380 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hosts many games of a human against the engine at once behind a line-based protocol on the loopback interface.
+ * <p>
+ * Every request is one line {@code <game> <command> [arguments]}, where the game is a name the client chooses,
+ * valid on its own connection, so that one connection can carry thousands of games. The commands are
+ * {@code new [red|black] [variant]} to start a game with the human playing the given side (red by default),
+ * {@code move <from>-<to>} (or {@code <from>x<to>}, or {@code <from>x<square>x<to>} naming every square a
+ * capture sequence lands on) to play a move, {@code show} to repeat the position and
+ * {@code quit} to end the game. Except after {@code quit}, which is answered with {@code <game> bye}, the
+ * server answers {@code <game> ok <engine move> <result> <position> <legal moves>}: the engine's reply or
+ * {@code -}, a {@link GameResult} name, the position as written by {@link GameState#toFen()} and the human's
+ * legal moves separated by commas, or {@code -} when it is not the human's turn. Bad requests are answered
+ * with {@code <game> error <message>}. Requests of different games may be sent without waiting, and their
+ * replies can come in any order; a client waits for the reply of a game before sending its next request.
+ * <p>
+ * Connections are read on virtual threads and every request is handled on a virtual thread of its own, so
+ * waiting for the engine blocks no platform thread. The engines themselves search on a fixed pool of platform
+ * threads, one engine each; requests are queued for them first come, first served, and since a game has at
+ * most one move waiting, no game can crowd out the others.
+ */
+public class GameServer implements Closeable {
+    /**
+     * Port the server listens on when none is given.
+     */
+    public static final int DEFAULT_PORT = 7880;
+
+    /**
+     * Engine configuration used when none is given.
+     */
+    public static final String DEFAULT_CONFIG = "depth=6,time=0,tt=4";
+
+    private static final int MAX_PLIES = 300; // Length after which a game is declared drawn
+    private static final LongAdder CONNECTIONS = MetricsRegistry.DEFAULT.counter("server.connections"); // Connections accepted
+    private static final LongAdder GAMES = MetricsRegistry.DEFAULT.counter("server.games"); // Games started
+    private static final LongAdder REQUESTS = MetricsRegistry.DEFAULT.counter("server.requests"); // Requests handled
+    private static final LongAdder ENGINE_MOVES = MetricsRegistry.DEFAULT.counter("server.engineMoves"); // Engine replies played
+    private static final LongAdder ENGINE_NANOS = MetricsRegistry.DEFAULT.counter("server.engineNanos"); // Time from queueing a search to its result
+    private static final AtomicLong ACTIVE_GAMES = MetricsRegistry.DEFAULT.gauge("server.activeGames"); // Games in progress
+
+    private final ExecutorService workers; // Platform threads the engines search on
+    private final BlockingQueue<Engine> engines; // Engines not searching, one per worker
+    private final ExecutorService handlers = Executors.newVirtualThreadPerTaskExecutor(); // Virtual threads serving connections and requests
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet(); // Open client connections
+    private ServerSocket serverSocket; // Listening socket, or null before the server is started
+    private Thread acceptor; // Virtual thread accepting connections
+
+    /**
+     * A game of one client.
+     * The lock keeps requests for the same game from overlapping; it is held while the engine searches, which
+     * blocks nothing but the game itself.
+     */
+    private static class Session {
+        private final GameState game; // Position and moves played
+        private final PieceType human; // Side the client plays
+        private final ReentrantLock lock = new ReentrantLock(); // Held while a request changes the game
+
+        /**
+         * Constructs a new Session.
+         *
+         * @param variant Board size and rules
+         * @param human   Side the client plays
+         */
+        private Session(Variant variant, PieceType human) {
+            this.game = new GameState(variant);
+            this.human = human;
+        }
+    }
+
+    /**
+     * Constructs a new GameServer.
+     *
+     * @param config  Settings of the engines
+     * @param workers Number of engines searching at the same time
+     */
+    public GameServer(EngineConfig config, int workers) {
+        this.workers = Executors.newFixedThreadPool(workers);
+        this.engines = new ArrayBlockingQueue<>(workers);
+        for (int i = 0; i < workers; i++) {
+            engines.add(config.createEngine());
+        }
+    }
+
+    /**
+     * Starts listening on the loopback interface and accepting connections in the background.
+     *
+     * @param port Port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        acceptor = Thread.ofVirtual().name("game-server-acceptor").start(this::accept);
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return The port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Waits until the server is closed.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void awaitClose() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and releases the engines.
+     *
+     * @throws IOException if the listening socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket connection : connections) {
+            connection.close();
+        }
+        handlers.shutdownNow();
+        workers.shutdownNow();
+        engines.forEach(Engine::shutdown);
+    }
+
+    /**
+     * Accepts connections until the listening socket is closed, serving each on a virtual thread.
+     */
+    private void accept() {
+        try {
+            while (true) {
+                Socket connection = serverSocket.accept();
+                connection.setTcpNoDelay(true);
+                CONNECTIONS.increment();
+                connections.add(connection);
+                handlers.submit(() -> serve(connection));
+            }
+        } catch (IOException e) {
+            // The listening socket was closed
+        }
+    }
+
+    /**
+     * Reads the requests of one connection and hands each to a virtual thread of its own, so that a game
+     * waiting for the engine does not hold up the other games of the connection.
+     *
+     * @param connection The client connection
+     */
+    private void serve(Socket connection) {
+        Map<String, Session> sessions = new ConcurrentHashMap<>();
+        ReentrantLock writeLock = new ReentrantLock();
+        try (connection;
+             BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String request = line;
+                handlers.submit(() -> send(out, writeLock, handle(sessions, request)));
+            }
+        } catch (IOException e) {
+            // The client went away or the server is closing
+        } finally {
+            connections.remove(connection);
+            ACTIVE_GAMES.addAndGet(-sessions.size());
+        }
+    }
+
+    /**
+     * Writes one reply line. Replies of different games are written whole, one after another.
+     *
+     * @param out       Output of the connection
+     * @param writeLock Lock of the connection's output
+     * @param reply     The reply without line terminator
+     */
+    private static void send(Writer out, ReentrantLock writeLock, String reply) {
+        writeLock.lock();
+        try {
+            out.write(reply);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            // The client went away; its games are dropped with the connection
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Handles one request.
+     *
+     * @param sessions Games of the connection by name
+     * @param request  The request line
+     * @return The reply line
+     */
+    private String handle(Map<String, Session> sessions, String request) {
+        REQUESTS.increment();
+        String[] words = request.trim().split("\\s+");
+        String id = words[0];
+        if (words.length < 2) {
+            return id + " error expected <game> <command>";
+        }
+        try {
+            if (words[1].equals("new")) {
+                PieceType human = words.length > 2 && words[2].equals("black") ? PieceType.BLACK : PieceType.RED;
+                Variant variant = words.length > 3 ? Variant.parse(words[3]) : Variant.STANDARD;
+                Session session = new Session(variant, human);
+                GAMES.increment();
+                if (sessions.put(id, session) == null) {
+                    ACTIVE_GAMES.incrementAndGet();
+                }
+                session.lock.lock();
+                try {
+                    return reply(id, session, playEngine(session));
+                } finally {
+                    session.lock.unlock();
+                }
+            }
+            Session session = sessions.get(id);
+            if (session == null) {
+                return id + " error no game " + id;
+            }
+            session.lock.lock();
+            try {
+                switch (words[1]) {
+                    case "show":
+                        return reply(id, session, "-");
+                    case "move":
+                        if (words.length < 3) {
+                            return id + " error expected move <from>-<to>";
+                        }
+                        if (result(session.game) != GameResult.ONGOING || session.game.getSideToMove() != session.human) {
+                            return id + " error not your turn";
+                        }
+                        int move = Rules.parseMove(session.game.getBoard(), session.game.getSideToMove(), words[2]);
+                        if (move == Move.NONE) {
+                            return id + " error illegal move " + words[2];
+                        }
+                        session.game.makeMove(move);
+                        return reply(id, session, playEngine(session));
+                    case "quit":
+                        if (sessions.remove(id) != null) {
+                            ACTIVE_GAMES.decrementAndGet();
+                        }
+                        return id + " bye";
+                    default:
+                        return id + " error unknown command " + words[1];
+                }
+            } finally {
+                session.lock.unlock();
+            }
+        } catch (IllegalArgumentException e) {
+            return id + " error " + e.getMessage();
+        } catch (InterruptedException | ExecutionException e) {
+            return id + " error engine failed";
+        }
+    }
+
+    /**
+     * Lets the engine move if it is its turn, waiting for a free engine first.
+     *
+     * @param session The game
+     * @return The move played in text form, or {@code -} if it was not the engine's turn
+     * @throws InterruptedException if the request is interrupted while waiting
+     * @throws ExecutionException   if the search failed
+     */
+    private String playEngine(Session session) throws InterruptedException, ExecutionException {
+        GameState game = session.game;
+        if (game.getSideToMove() == session.human || result(game) != GameResult.ONGOING) {
+            return "-";
+        }
+        long start = System.nanoTime();
+        SearchResult result = workers.submit(() -> {
+            Engine engine = engines.take();
+            try {
+                return engine.search(game.getBoard(), game.getSideToMove());
+            } finally {
+                engines.add(engine);
+            }
+        }).get();
+        ENGINE_NANOS.add(System.nanoTime() - start);
+        ENGINE_MOVES.increment();
+        String text = Rules.toString(game.getBoard(), result.getBestMove());
+        game.makeMove(result.getBestMove());
+        return text;
+    }
+
+    /**
+     * Decides whether a game is over, declaring it drawn once it grows too long.
+     *
+     * @param game The game
+     * @return The winner, {@link GameResult#DRAW} or {@link GameResult#ONGOING}
+     */
+    private static GameResult result(GameState game) {
+        GameResult result = game.getResult();
+        return result == GameResult.ONGOING && game.getPly() >= MAX_PLIES ? GameResult.DRAW : result;
+    }
+
+    /**
+     * Describes a game after a request.
+     *
+     * @param id         Name of the game
+     * @param session    The game
+     * @param engineMove Move the engine just played in text form, or {@code -}
+     * @return The reply line
+     */
+    private static String reply(String id, Session session, String engineMove) {
+        GameState game = session.game;
+        GameResult result = result(game);
+        StringBuilder reply = new StringBuilder(id).append(" ok ")
+                .append(engineMove).append(' ')
+                .append(result).append(' ').append(game.toFen()).append(' ');
+        if (result != GameResult.ONGOING || game.getSideToMove() != session.human) {
+            return reply.append('-').toString();
+        }
+        int[] moves = new int[Bitboard.MAX_MOVES];
+        int count = game.generateMoves(moves, 0);
+        for (int i = 0; i < count; i++) {
+            reply.append(i == 0 ? "" : ",").append(Rules.toString(game.getBoard(), moves[i]));
+        }
+        return reply.toString();
+    }
+
+    /**
+     * Runs a server until the process is stopped.
+     * Usage: {@code java GameServer [port] [--config config] [--workers N]}, where the configuration of the
+     * engines looks like {@code depth=6,time=0} and the number of workers defaults to the number of processors.
+     *
+     * @param args Command-line arguments
+     * @throws IOException          if the port cannot be opened
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = DEFAULT_PORT;
+        EngineConfig config = EngineConfig.parse(DEFAULT_CONFIG);
+        int workers = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--config":
+                    config = EngineConfig.parse(args[++i]);
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    port = Integer.parseInt(args[i]);
+                    break;
+            }
+        }
+        GameServer server = new GameServer(config, workers);
+        server.start(port);
+        System.out.printf("Listening on %s:%d with %d engines (%s)%n",
+                InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(), workers, config);
+        server.awaitClose();
+    }
+}
@@ -0,0 +1,286 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A game of checkers in progress: the position, the side to move and the moves played so far.
+ * Moves can be made and taken back, which makes the class usable both behind the user interface and for
+ * headless simulation. It has no dependency on AWT or Swing.
+ */
+public class GameState {
+    private final Bitboard board; // Current position
+    private PieceType sideToMove; // Side whose turn it is
+    private int[] moves = new int[64]; // Packed moves played so far
+    private int[] undoFlags = new int[64]; // Undo flags returned by Bitboard.makeMove for each move
+    private long[] hashes = new long[64]; // Board hash before each move
+    private int ply; // Number of moves played
+    private GameResult result; // Result of the current position, or null until it is asked for
+
+    /**
+     * Constructs a new GameState set to the starting position of the standard game.
+     */
+    public GameState() {
+        this(Variant.STANDARD);
+    }
+
+    /**
+     * Constructs a new GameState set to the starting position of a variant.
+     *
+     * @param variant Board size and rules
+     */
+    public GameState(Variant variant) {
+        board = new Bitboard(variant);
+        reset();
+    }
+
+    /**
+     * Constructs a copy of another game, including its move history.
+     *
+     * @param other The game to copy
+     */
+    public GameState(GameState other) {
+        this.board = new Bitboard(other.board);
+        this.sideToMove = other.sideToMove;
+        this.moves = other.moves.clone();
+        this.undoFlags = other.undoFlags.clone();
+        this.hashes = other.hashes.clone();
+        this.ply = other.ply;
+        this.result = other.result;
+    }
+
+    /**
+     * Creates a standard game from a position in FEN-like notation, for example {@code R:R1,2,K3:B30,31,32}.
+     * The first field is the side to move ({@code R} or {@code B}); the other two list the squares (1 to 32,
+     * row 0 first) of the red and black pieces, with a {@code K} prefix marking kings.
+     *
+     * @param fen The position
+     * @return A game with that position and no move history
+     * @throws IllegalArgumentException if the text is not a valid position
+     */
+    public static GameState fromFen(String fen) {
+        return fromFen(fen, Variant.STANDARD);
+    }
+
+    /**
+     * Creates a game of a variant from a position in FEN-like notation, with squares numbered from 1 to the
+     * number of squares of the variant's board.
+     *
+     * @param fen     The position
+     * @param variant Board size and rules
+     * @return A game with that position and no move history
+     * @throws IllegalArgumentException if the text is not a valid position
+     */
+    public static GameState fromFen(String fen, Variant variant) {
+        String[] fields = fen.trim().split(":");
+        if (fields.length != 3 || !fields[0].matches("[RB]")) {
+            throw new IllegalArgumentException("Invalid position: " + fen);
+        }
+        GameState game = new GameState(variant);
+        game.sideToMove = fields[0].equals("R") ? PieceType.RED : PieceType.BLACK;
+        for (int square = 0; square < variant.getSquares(); square++) {
+            game.board.clear(square);
+        }
+        for (int i = 1; i < 3; i++) {
+            String field = fields[i];
+            if (field.isEmpty() || !field.substring(0, 1).matches("[RB]")) {
+                throw new IllegalArgumentException("Invalid piece list: " + field);
+            }
+            PieceType type = field.charAt(0) == 'R' ? PieceType.RED : PieceType.BLACK;
+            for (String token : field.substring(1).split(",")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                boolean king = token.charAt(0) == 'K';
+                int square;
+                try {
+                    square = Integer.parseInt(king ? token.substring(1) : token) - 1;
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid square: " + token, e);
+                }
+                if (square < 0 || square >= variant.getSquares() || game.board.getType(square) != null) {
+                    throw new IllegalArgumentException("Invalid square: " + token);
+                }
+                game.board.setPiece(square, type, king);
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Writes the current position in the FEN-like notation read by {@link #fromFen(String)}.
+     *
+     * @return The position as text
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(sideToMove == PieceType.RED ? "R" : "B");
+        for (PieceType type : new PieceType[]{PieceType.RED, PieceType.BLACK}) {
+            fen.append(':').append(type == PieceType.RED ? 'R' : 'B');
+            String separator = "";
+            for (int word = 0; word < board.getVariant().getWords(); word++) {
+                for (long pieces = board.getPieces(type, word); pieces != 0; pieces &= pieces - 1) {
+                    int square = word * Long.SIZE + Long.numberOfTrailingZeros(pieces);
+                    fen.append(separator).append(board.isKing(square) ? "K" : "").append(square + 1);
+                    separator = ",";
+                }
+            }
+        }
+        return fen.toString();
+    }
+
+    /**
+     * Resets the game to the starting position with red to move.
+     */
+    public void reset() {
+        reset(board.getVariant());
+    }
+
+    /**
+     * Switches to another variant and resets the game to its starting position with red to move.
+     *
+     * @param variant Board size and rules
+     */
+    public void reset(Variant variant) {
+        board.reset(variant);
+        sideToMove = PieceType.RED;
+        ply = 0;
+        result = null;
+    }
+
+    /**
+     * Gets the variant the game is played in.
+     *
+     * @return Board size and rules
+     */
+    public Variant getVariant() {
+        return board.getVariant();
+    }
+
+    /**
+     * Gets the current position. Callers must not modify it; use {@link #makeMove(int)} instead.
+     *
+     * @return The board
+     */
+    public Bitboard getBoard() {
+        return board;
+    }
+
+    /**
+     * Gets the side whose turn it is.
+     *
+     * @return The side to move
+     */
+    public PieceType getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Gets the number of moves played.
+     *
+     * @return Number of plies since the start of the game
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Gets a move from the game history.
+     *
+     * @param index Ply of the move, starting at 0
+     * @return The packed move
+     */
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Gets the hash of the position including the side to move.
+     *
+     * @return The position hash
+     */
+    public long getHash() {
+        return board.getHash() ^ Zobrist.side(sideToMove);
+    }
+
+    /**
+     * Writes the legal moves of the side to move into a caller-owned buffer as packed moves.
+     *
+     * @param buffer Buffer receiving the packed moves; needs {@link Bitboard#MAX_MOVES} free slots after the offset
+     * @param offset Index of the first slot to write
+     * @return Index one past the last move written
+     */
+    public int generateMoves(int[] buffer, int offset) {
+        return Rules.generateMoves(board, sideToMove, buffer, offset);
+    }
+
+    /**
+     * Gets the legal moves of the side to move.
+     *
+     * @return List of legal moves
+     */
+    public List<Move> getLegalMoves() {
+        int[] buffer = new int[Bitboard.MAX_MOVES];
+        int count = generateMoves(buffer, 0);
+        List<Move> legal = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            legal.add(new Move(buffer[i], board.getVariant()));
+        }
+        return legal;
+    }
+
+    /**
+     * Plays a move for the side to move and passes the turn.
+     *
+     * @param move A packed legal move
+     */
+    public void makeMove(int move) {
+        if (ply == moves.length) {
+            moves = Arrays.copyOf(moves, ply * 2);
+            undoFlags = Arrays.copyOf(undoFlags, ply * 2);
+            hashes = Arrays.copyOf(hashes, ply * 2);
+        }
+        hashes[ply] = board.getHash();
+        moves[ply] = move;
+        undoFlags[ply++] = board.makeMove(move);
+        sideToMove = Bitboard.opponent(sideToMove);
+        result = null;
+    }
+
+    /**
+     * Takes back the last move played.
+     *
+     * @throws IllegalStateException if no move has been played
+     */
+    public void unmakeMove() {
+        if (ply == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+        ply--;
+        board.unmakeMove(moves[ply], undoFlags[ply], hashes[ply]);
+        sideToMove = Bitboard.opponent(sideToMove);
+        result = null;
+    }
+
+    /**
+     * Decides whether the game is over.
+     * The answer is kept until the next move is made or taken back, so asking repeatedly costs nothing.
+     *
+     * @return The winner, or {@link GameResult#ONGOING}
+     */
+    public GameResult getResult() {
+        if (result == null) {
+            result = Rules.getResult(board, sideToMove);
+        }
+        return result;
+    }
+
+    /**
+     * Decides whether the game is over, declaring a draw when the tablebase shows neither side can force a win.
+     *
+     * @param tablebase Endgame tables to consult, or null
+     * @return The winner, {@link GameResult#DRAW} or {@link GameResult#ONGOING}
+     */
+    public GameResult getResult(Tablebase tablebase) {
+        GameResult result = getResult();
+        return result == GameResult.ONGOING ? Rules.getResult(board, sideToMove, tablebase) : result;
+    }
+}
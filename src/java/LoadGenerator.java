@@ -0,0 +1,336 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Load test of {@link GameServer}: plays many games at once, each on a virtual thread, making random legal moves
+ * and timing every move from sending it to receiving the engine's reply. The games share a few connections, as
+ * the protocol allows, so the test is not limited by the number of open files. Without a port it starts a
+ * server in the same process.
+ */
+public class LoadGenerator {
+    private final String host; // Host of the server
+    private final int port; // Port of the server
+    private final int connections; // Connections the games are spread over
+    private final int movesPerGame; // Moves each game plays before quitting
+    private final long seed; // Seed of the random moves
+
+    /**
+     * Outcome of one run.
+     *
+     * @param games     Games played at once
+     * @param latencies Time of every move in nanoseconds, sorted
+     * @param nanos     Time the whole run took
+     */
+    private record Run(int games, long[] latencies, long nanos) {
+        /**
+         * Gets a percentile of the move times.
+         *
+         * @param percent Percentile between 0 and 100
+         * @return Time of the move at that percentile in milliseconds
+         */
+        private double percentile(double percent) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percent / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    /**
+     * A connection to the server shared by many games. A reader thread hands every reply to the game it
+     * names, whose thread waits for it.
+     */
+    private static class Connection implements Closeable {
+        private static final String CLOSED = "error connection closed"; // Reply of every request once the reader stops
+
+        private final Socket socket; // The connection
+        private final Writer out; // Output of the connection
+        private final ReentrantLock writeLock = new ReentrantLock(); // Lock keeping request lines whole
+        private final Map<String, BlockingQueue<String>> replies = new ConcurrentHashMap<>(); // Reply waiting for each game
+        private final Thread reader; // Virtual thread reading replies
+        private volatile boolean closed; // Set once the reader has stopped and no more replies will come
+
+        /**
+         * Opens a new Connection.
+         *
+         * @param host Host of the server
+         * @param port Port of the server
+         * @throws IOException if the server cannot be reached
+         */
+        private Connection(String host, int port) throws IOException {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            reader = Thread.ofVirtual().start(() -> read(in));
+        }
+
+        /**
+         * Sends a request for a game and waits for the reply.
+         *
+         * @param game    Name of the game
+         * @param command The command and its arguments
+         * @return The reply without the name of the game
+         * @throws IOException          if the request cannot be sent
+         * @throws InterruptedException if the thread is interrupted while waiting
+         */
+        private String request(String game, String command) throws IOException, InterruptedException {
+            BlockingQueue<String> reply = replies.computeIfAbsent(game, _ -> new ArrayBlockingQueue<>(1));
+            writeLock.lock();
+            try {
+                out.write(game + " " + command + "\n");
+                out.flush();
+            } finally {
+                writeLock.unlock();
+            }
+            if (closed) {
+                // The reader may have stopped before this game's queue was added
+                reply.offer(CLOSED);
+            }
+            return reply.take();
+        }
+
+        /**
+         * Reads replies until the connection closes or a reply cannot be delivered, then wakes every game still
+         * waiting with an error.
+         *
+         * @param in Input of the connection
+         */
+        private void read(BufferedReader in) {
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    int space = line.indexOf(' ');
+                    if (space < 0) {
+                        throw new IllegalStateException("Reply without a game: " + line);
+                    }
+                    BlockingQueue<String> reply = replies.get(line.substring(0, space));
+                    if (reply != null) {
+                        // Fails if the game already has a reply it has not taken, which the protocol never does
+                        reply.add(line.substring(space + 1));
+                    }
+                }
+            } catch (IOException e) {
+                // Closed by either side
+            } catch (RuntimeException e) {
+                System.err.println("Connection dropped: " + e.getMessage());
+            }
+            closed = true;
+            try {
+                // Requests sent from now on fail instead of waiting for replies nobody reads
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+            replies.values().forEach(reply -> reply.offer(CLOSED));
+        }
+
+        /**
+         * Closes the connection.
+         *
+         * @throws IOException if the socket cannot be closed
+         */
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Constructs a new LoadGenerator.
+     *
+     * @param host         Host of the server
+     * @param port         Port of the server
+     * @param connections  Connections the games are spread over
+     * @param movesPerGame Moves each game plays before quitting
+     * @param seed         Seed of the random moves
+     */
+    public LoadGenerator(String host, int port, int connections, int movesPerGame, long seed) {
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+        this.movesPerGame = movesPerGame;
+        this.seed = seed;
+    }
+
+    /**
+     * Plays a number of games at once and collects the time of every move.
+     *
+     * @param games Number of games
+     * @return The move times and the time the run took
+     * @throws IOException          if the server cannot be reached
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws ExecutionException   if a game failed
+     */
+    private Run run(int games) throws IOException, InterruptedException, ExecutionException {
+        List<Connection> open = new ArrayList<>();
+        long[] latencies = new long[games * movesPerGame];
+        AtomicInteger count = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < Math.min(connections, games); i++) {
+                open.add(new Connection(host, port));
+            }
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < games; i++) {
+                Connection connection = open.get(i % open.size());
+                String name = "g" + i;
+                Random random = new Random(seed + i);
+                futures.add(executor.submit(() -> {
+                    play(connection, name, random, latencies, count);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            for (Connection connection : open) {
+                connection.close();
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        long[] sorted = Arrays.copyOf(latencies, count.get());
+        Arrays.sort(sorted);
+        return new Run(games, sorted, nanos);
+    }
+
+    /**
+     * Plays one game with random moves, starting a new game whenever one ends, until the moves are used up.
+     *
+     * @param connection Connection of the game
+     * @param name       Name of the game
+     * @param random     Source of the moves
+     * @param latencies  Receives the time of every move
+     * @param count      Number of times recorded so far
+     * @throws IOException          if a request cannot be sent
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private void play(Connection connection, String name, Random random, long[] latencies, AtomicInteger count)
+            throws IOException, InterruptedException {
+        String[] reply = check(connection.request(name, "new"));
+        for (int i = 0; i < movesPerGame; i++) {
+            if (!reply[2].equals(GameResult.ONGOING.name())) {
+                reply = check(connection.request(name, "new"));
+            }
+            String[] legal = reply[4].split(",");
+            String move = legal[random.nextInt(legal.length)];
+            long start = System.nanoTime();
+            reply = check(connection.request(name, "move " + move));
+            latencies[count.getAndIncrement()] = System.nanoTime() - start;
+        }
+        connection.request(name, "quit");
+    }
+
+    /**
+     * Splits a reply into its words, failing on an error.
+     *
+     * @param reply The reply without the name of the game
+     * @return The words {@code ok}, engine move, result, position and legal moves
+     * @throws IllegalStateException if the server answered with an error
+     */
+    private static String[] check(String reply) {
+        String[] words = reply.split(" ");
+        if (!words[0].equals("ok") || words.length != 5) {
+            throw new IllegalStateException("Unexpected reply: " + reply);
+        }
+        return words;
+    }
+
+    /**
+     * Runs the load test for different numbers of games and prints the median and 99th percentile move times.
+     * Usage: {@code java LoadGenerator [games...] [--port N] [--host host] [--connections N] [--moves N]
+     * [--config config] [--workers N] [--seed N]}. The games default to 1000 and 10000; without a port a server
+     * with the given engine configuration and number of workers is started in the same process.
+     *
+     * @param args Command-line arguments
+     * @throws IOException          if the server cannot be reached or started
+     * @throws InterruptedException if the main thread is interrupted
+     * @throws ExecutionException   if a game failed
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        List<Integer> gameCounts = new ArrayList<>();
+        String host = "localhost";
+        int port = 0;
+        int connections = 64;
+        int moves = 10;
+        EngineConfig config = EngineConfig.parse(GameServer.DEFAULT_CONFIG);
+        int workers = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--connections":
+                    connections = Integer.parseInt(args[++i]);
+                    break;
+                case "--moves":
+                    moves = Integer.parseInt(args[++i]);
+                    break;
+                case "--config":
+                    config = EngineConfig.parse(args[++i]);
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    gameCounts.add(Integer.parseInt(args[i]));
+                    break;
+            }
+        }
+        if (gameCounts.isEmpty()) {
+            gameCounts.addAll(List.of(1000, 10000));
+        }
+        GameServer server = null;
+        if (port == 0) {
+            server = new GameServer(config, workers);
+            server.start(0);
+            port = server.getPort();
+            System.out.printf("Server on port %d with %d engines (%s)%n", port, workers, config);
+        }
+        try {
+            LoadGenerator generator = new LoadGenerator(host, port, connections, moves, seed);
+            System.out.printf("%d moves per game over %d connections%n", moves, connections);
+            System.out.printf("%8s %10s %10s %10s %10s %10s%n", "games", "moves", "moves/s", "p50 ms", "p99 ms", "max ms");
+            for (int games : gameCounts) {
+                Run run = generator.run(games);
+                System.out.printf("%8d %10d %10.0f %10.2f %10.2f %10.2f%n", run.games(), run.latencies().length,
+                        run.latencies().length * 1e9 / run.nanos(), run.percentile(50), run.percentile(99),
+                        run.percentile(100));
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counters and gauges collected in-process, readable at any time and written out as JSON.
+ * Counters only grow and are striped so that threads can add to them without contention; gauges hold the last
+ * value set. Callers look a metric up once and keep it, so recording costs one addition.
+ */
+public class MetricsRegistry {
+    /**
+     * Registry shared by the whole application.
+     */
+    public static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>(); // Counters by name
+    private final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>(); // Gauges by name
+
+    /**
+     * Gets a counter, creating it at zero on first use.
+     *
+     * @param name Name of the counter, dotted like {@code search.nodes}
+     * @return The counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, _ -> new LongAdder());
+    }
+
+    /**
+     * Gets a gauge, creating it at zero on first use.
+     *
+     * @param name Name of the gauge, dotted like {@code search.lastDepth}
+     * @return The gauge
+     */
+    public AtomicLong gauge(String name) {
+        return gauges.computeIfAbsent(name, _ -> new AtomicLong());
+    }
+
+    /**
+     * Reads every metric.
+     *
+     * @return Current value of each counter and gauge, sorted by name
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.get()));
+        return values;
+    }
+
+    /**
+     * Sets every metric back to zero.
+     */
+    public void reset() {
+        counters.values().forEach(LongAdder::reset);
+        gauges.values().forEach(gauge -> gauge.set(0));
+    }
+
+    /**
+     * Formats every metric as a JSON object with one numeric member per metric.
+     *
+     * @return The JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, Long> metric : snapshot().entrySet()) {
+            json.append(json.length() == 1 ? "\n" : ",\n");
+            json.append("  \"").append(metric.getKey()).append("\": ").append(metric.getValue());
+        }
+        return json.append("\n}\n").toString();
+    }
+
+    /**
+     * Writes every metric to a file as JSON.
+     *
+     * @param file The file
+     * @throws IOException if the file cannot be written
+     */
+    public void dump(Path file) throws IOException {
+        Files.writeString(file, toJson());
+    }
+}
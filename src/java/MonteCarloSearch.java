@@ -0,0 +1,408 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monte Carlo tree search (UCT) as an alternative to the alpha-beta {@link SearchEngine}.
+ * Each playout walks down the tree choosing the child with the best upper confidence bound, expands the leaf,
+ * finishes the game with random moves that prefer captures, and adds the result to every node on the way.
+ * All threads grow one shared tree. A thread adds a virtual loss to the nodes it passes, so the others spread
+ * over different branches. Node statistics are updated with atomic additions and nodes are expanded by the
+ * thread that claims them with a compare-and-set, so no locks are taken.
+ * The nodes live in preallocated arrays (an arena) of a size set in megabytes rather than as one object each;
+ * when the arena is full the tree stops growing and playouts continue from its leaves.
+ */
+public class MonteCarloSearch implements Engine {
+    /**
+     * Bytes the arena uses per node.
+     */
+    public static final int BYTES_PER_NODE = 20;
+
+    private static final long UNEXPANDED = 0; // Link of a node whose children have not been created
+    private static final long EXPANDING = -1; // Link of a node whose children are being created by a thread
+    private static final int COUNT_BITS = 16; // Bits of a link holding the number of children
+    private static final int VIRTUAL_LOSS = 3; // Lost visits added to a node while a playout passes through it
+    private static final int EXPAND_VISITS = VIRTUAL_LOSS + 1; // Visits, virtual ones included, before a node is expanded
+    private static final double EXPLORATION = 1.4; // Weight of the exploration term of the upper confidence bound
+    private static final int MAX_TREE_DEPTH = 256; // Deepest path followed through the tree
+    private static final int MAX_ROLLOUT_PLIES = 200; // Random moves after which a rollout counts as a draw
+
+    private final int capacity; // Number of nodes the arena holds
+    private final int[] moves; // Move leading to each node
+    private final AtomicLongArray links; // First child and number of children of each node, or UNEXPANDED or EXPANDING
+    private final AtomicLongArray stats; // Visits (high 32 bits) and results in half points (low 32 bits) of each node, for the side that moved into it
+    private final AtomicInteger allocated = new AtomicInteger(); // Nodes of the arena in use
+    private volatile boolean full; // Set once the arena has no room for another expansion
+    private final List<Worker> workers = new ArrayList<>(); // State of each thread, the calling thread's first
+    private final ExecutorService pool; // Pool running the helper threads, or null for one thread
+    private long timeLimit = 500; // Time budget per search in milliseconds, or 0 for none
+    private long playoutLimit = 0; // Playout budget per search, or 0 for none
+
+    /**
+     * Constructs a new MonteCarloSearch.
+     *
+     * @param threads  Number of search threads, including the calling thread
+     * @param memoryMb Size of the node arena in megabytes
+     */
+    public MonteCarloSearch(int threads, int memoryMb) {
+        threads = Math.max(1, threads);
+        this.capacity = (int) Math.min(Integer.MAX_VALUE - Bitboard.MAX_MOVES, ((long) memoryMb << 20) / BYTES_PER_NODE);
+        this.moves = new int[capacity];
+        this.links = new AtomicLongArray(capacity);
+        this.stats = new AtomicLongArray(capacity);
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Worker(i));
+        }
+        pool = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "mcts-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the time budget of each search.
+     *
+     * @param millis Budget in milliseconds, or 0 for none
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimit = millis;
+    }
+
+    /**
+     * Sets the playout budget of each search, counted over all threads.
+     *
+     * @param playouts Budget in playouts, or 0 for none
+     */
+    public void setPlayoutLimit(long playouts) {
+        this.playoutLimit = playouts;
+    }
+
+    /**
+     * Gets the number of nodes the arena holds.
+     *
+     * @return Capacity in nodes
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of nodes the last search created.
+     *
+     * @return Node count
+     */
+    public int getTreeSize() {
+        return Math.min(allocated.get(), capacity);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Without a time or playout budget the search runs until the arena is full.
+     */
+    @Override
+    public SearchResult search(Bitboard board, PieceType side) {
+        return search(board, side, new AtomicBoolean());
+    }
+
+    /**
+     * Searches for the best move of a side on all threads until the budget runs out or the stop signal is
+     * raised. The given board is not modified.
+     *
+     * @param board      Position to search
+     * @param side       Side to move
+     * @param stopSignal Flag that ends the search once set
+     * @return The most visited move, its expected result scaled to plus or minus 1000 as the score, the deepest
+     * path through the tree as the depth and the number of playouts as the node count
+     */
+    public SearchResult search(Bitboard board, PieceType side, AtomicBoolean stopSignal) {
+        long start = System.nanoTime();
+        long deadline = timeLimit > 0 ? start + timeLimit * 1_000_000L : Long.MAX_VALUE;
+        allocated.set(1);
+        full = false;
+        moves[0] = SearchEngine.NO_MOVE;
+        links.set(0, UNEXPANDED);
+        stats.set(0, 0);
+
+        AtomicLong playouts = new AtomicLong();
+        AtomicBoolean helpersStop = new AtomicBoolean();
+        List<Future<?>> helpers = new ArrayList<>();
+        for (int i = 1; i < workers.size(); i++) {
+            Worker worker = workers.get(i);
+            helpers.add(pool.submit(() -> worker.run(board, side, playouts, deadline, helpersStop)));
+        }
+        workers.get(0).run(board, side, playouts, deadline, stopSignal);
+        helpersStop.set(true);
+        try {
+            for (Future<?> helper : helpers) {
+                helper.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+
+        int depth = 0;
+        for (Worker worker : workers) {
+            depth = Math.max(depth, worker.maxDepth);
+        }
+        int bestMove = SearchEngine.NO_MOVE;
+        int score = -1000;
+        long link = links.get(0);
+        if (link != UNEXPANDED && link != EXPANDING) {
+            int first = (int) (link >>> COUNT_BITS);
+            int count = (int) (link & ((1 << COUNT_BITS) - 1));
+            long mostVisits = -1;
+            for (int child = first; child < first + count; child++) {
+                long visits = stats.get(child) >>> 32;
+                if (visits > mostVisits) {
+                    mostVisits = visits;
+                    bestMove = moves[child];
+                    score = visits == 0 ? 0 : (int) (1000 * ((stats.get(child) & 0xFFFFFFFFL) / (double) visits - 1));
+                }
+            }
+        } else {
+            // Not even the root was expanded: play any legal move
+            int[] buffer = new int[Bitboard.MAX_MOVES];
+            if (board.generateMoves(side, false, buffer, 0) > 0) {
+                bestMove = buffer[0];
+                score = 0;
+            }
+        }
+        return new SearchResult(bestMove, score, depth, playouts.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Creates the children of a node unless another thread is already doing so or the arena is full.
+     *
+     * @param node   The node
+     * @param board  Position of the node
+     * @param side   Side to move in the position
+     * @param buffer Buffer for the generated moves
+     * @return True if this thread created the children
+     */
+    private boolean expand(int node, Bitboard board, PieceType side, int[] buffer) {
+        if (full || !links.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+            return false;
+        }
+        int count = board.generateMoves(side, false, buffer, 0);
+        int first = allocated.getAndAdd(count);
+        if (first + count > capacity) {
+            full = true;
+            links.set(node, UNEXPANDED);
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            moves[first + i] = buffer[i];
+            links.set(first + i, UNEXPANDED);
+            stats.set(first + i, 0);
+        }
+        // Publishing the link makes the children visible to the other threads; first is never 0
+        links.set(node, (long) first << COUNT_BITS | count);
+        return true;
+    }
+
+    /**
+     * Picks the child with the highest upper confidence bound. A child nobody has visited yet is picked first.
+     *
+     * @param link         Link of the parent
+     * @param parentVisits Visits of the parent
+     * @return The chosen child
+     */
+    private int select(long link, long parentVisits) {
+        int first = (int) (link >>> COUNT_BITS);
+        int count = (int) (link & ((1 << COUNT_BITS) - 1));
+        double logVisits = Math.log(Math.max(1, parentVisits));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < first + count; child++) {
+            long stat = stats.get(child);
+            long visits = stat >>> 32;
+            if (visits == 0) {
+                return child;
+            }
+            double value = (stat & 0xFFFFFFFFL) / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Stops the helper threads for good.
+     */
+    @Override
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * State of one search thread.
+     */
+    private class Worker {
+        private final Bitboard board = new Bitboard(); // Position of the current playout
+        private final int[] buffer = new int[Bitboard.MAX_MOVES]; // Generated moves
+        private final int[] path = new int[MAX_TREE_DEPTH + 1]; // Nodes visited by the current playout
+        private final SplittableRandom random; // Source of the rollout moves
+        private int maxDepth; // Deepest path through the tree in the current search
+
+        /**
+         * Constructs a new Worker.
+         *
+         * @param index Number of the thread, used to seed its random moves
+         */
+        Worker(int index) {
+            this.random = new SplittableRandom(index * 0x9E3779B97F4A7C15L);
+        }
+
+        /**
+         * Runs playouts until the budget is used up or the stop signal is raised. The signal is only read, so a
+         * flag shared with the caller stays as the caller left it.
+         *
+         * @param root       Position to search
+         * @param side       Side to move
+         * @param playouts   Playouts run so far by all threads
+         * @param deadline   System.nanoTime() at which to stop
+         * @param stopSignal Flag that ends the search once set
+         */
+        void run(Bitboard root, PieceType side, AtomicLong playouts, long deadline, AtomicBoolean stopSignal) {
+            maxDepth = 0;
+            while (!stopSignal.get()) {
+                long done = playouts.incrementAndGet();
+                if ((playoutLimit > 0 && done > playoutLimit) || System.nanoTime() >= deadline
+                        || (full && playoutLimit == 0 && timeLimit == 0)) {
+                    playouts.decrementAndGet();
+                    return;
+                }
+                playout(root, side);
+            }
+        }
+
+        /**
+         * Runs one playout: selection and expansion down the tree, a random rollout from the leaf and the update
+         * of every node on the path.
+         *
+         * @param root     Position to search
+         * @param rootSide Side to move at the root
+         */
+        private void playout(Bitboard root, PieceType rootSide) {
+            board.copyFrom(root);
+            PieceType side = rootSide;
+            int node = 0;
+            int length = 0;
+            path[length++] = node;
+            stats.getAndAdd(node, (long) VIRTUAL_LOSS << 32);
+            PieceType winner = null;
+            boolean finished = false;
+            while (length <= MAX_TREE_DEPTH) {
+                long link = links.get(node);
+                if (link == UNEXPANDED) {
+                    if ((node != 0 && stats.get(node) >>> 32 < EXPAND_VISITS) || !expand(node, board, side, buffer)) {
+                        break;
+                    }
+                    link = links.get(node);
+                }
+                if (link == EXPANDING) {
+                    break;
+                }
+                if ((link & ((1 << COUNT_BITS) - 1)) == 0) {
+                    winner = Bitboard.opponent(side); // No legal move: the side to move has lost
+                    finished = true;
+                    break;
+                }
+                node = select(link, stats.get(node) >>> 32);
+                board.makeMove(moves[node]);
+                side = Bitboard.opponent(side);
+                stats.getAndAdd(node, (long) VIRTUAL_LOSS << 32);
+                path[length++] = node;
+            }
+            maxDepth = Math.max(maxDepth, length - 1);
+            if (!finished) {
+                winner = rollout(side);
+            }
+
+            // The root's statistics are for the side that moved into it, then the sides alternate
+            PieceType mover = Bitboard.opponent(rootSide);
+            for (int i = 0; i < length; i++) {
+                int points = winner == null ? 1 : winner == mover ? 2 : 0;
+                stats.getAndAdd(path[i], ((long) (1 - VIRTUAL_LOSS) << 32) + points);
+                mover = Bitboard.opponent(mover);
+            }
+        }
+
+        /**
+         * Finishes the game with random moves, choosing a capture whenever one is available.
+         *
+         * @param side Side to move
+         * @return The winner, or null for a draw when the game runs too long
+         */
+        private PieceType rollout(PieceType side) {
+            for (int ply = 0; ply < MAX_ROLLOUT_PLIES; ply++) {
+                int count = board.generateMoves(side, true, buffer, 0);
+                if (count == 0) {
+                    count = board.generateMoves(side, false, buffer, 0);
+                    if (count == 0) {
+                        return Bitboard.opponent(side);
+                    }
+                }
+                board.makeMove(buffer[random.nextInt(count)]);
+                side = Bitboard.opponent(side);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Measures playouts per second at different thread counts.
+     *
+     * @param args Optional time per position in milliseconds (default 1000), tree size in megabytes (default
+     *             256) and list of thread counts (default 1 2 4 8)
+     */
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int memoryMb = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int[] threadCounts = {1, 2, 4, 8};
+        if (args.length > 2) {
+            threadCounts = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                threadCounts[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+        List<GameState> positions = BenchmarkPositions.positions();
+
+        System.out.printf("%d ms per position, %d positions, %d MB tree, %d cores%n", millis, positions.size(),
+                memoryMb, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %14s %14s %12s %8s%n", "threads", "playouts", "playouts/s", "tree nodes", "depth");
+        for (int threads : threadCounts) {
+            MonteCarloSearch search = new MonteCarloSearch(threads, memoryMb);
+            search.setTimeLimit(millis);
+            long playouts = 0;
+            long nanos = 0;
+            long nodes = 0;
+            int depth = 0;
+            for (GameState position : positions) {
+                SearchResult result = search.search(position.getBoard(), position.getSideToMove());
+                playouts += result.getNodes();
+                nanos += result.getElapsedNanos();
+                nodes += search.getTreeSize();
+                depth = Math.max(depth, result.getDepth());
+            }
+            System.out.printf("%8d %14d %14.0f %12d %8d%n", threads, playouts, playouts * 1e9 / nanos,
+                    nodes / positions.size(), depth);
+            search.shutdown();
+        }
+    }
+}
@@ -1,14 +1,42 @@
 /**
  * Represents a move in a checkers game.
+ * A move is stored as a single packed int holding its starting square, destination square and the square of
+ * the captured piece (see {@link Bitboard} for square numbering). A capture sequence that takes several pieces
+ * stores the number of captures and, in place of a captured square, which of the sequences between the same
+ * squares with that count it is, numbered in the order the generator finds them; {@link Bitboard#makeMove(int)}
+ * works out the pieces it takes from the position. Move generation works on the packed form directly; a Move
+ * object is only a view over it for code that prefers rows and columns.
  */
 public class Move {
-    private final int fromRow;
-    private final int fromCol;
-    private final int toRow;
-    private final int toCol;
+    /**
+     * Value of the captured field for moves that capture nothing.
+     */
+    public static final int NO_SQUARE = 0x7F;
+    /**
+     * Value used in place of a packed move where there is none.
+     */
+    public static final int NONE = -1;
+    /**
+     * Most pieces one packed move can capture. No sequence on any supported board takes more: a piece on the edge
+     * cannot be jumped, and a 12x12 board has only 50 dark squares off the edge.
+     */
+    public static final int MAX_CAPTURES = 64;
+    /**
+     * Most capture sequences that can share the starting and final squares and the number of captures while
+     * taking different pieces. More than one generation of moves can hold, so the numbering never runs out.
+     */
+    public static final int MAX_ALTERNATIVES = 1 << 12;
+
+    private static final int SQUARE_BITS = 7; // Bits used by each square field
+    private static final int SQUARE_MASK = 0x7F; // Mask of a single square field
+    private static final int CAPTURED_SHIFT = 2 * SQUARE_BITS; // Position of the captured square, or of the alternative of a sequence
+    private static final int CAPTURES_SHIFT = 26; // Position of the number of captures after the first, the top 6 bits
+
+    private final int encoded; // Packed representation of the move
+    private final Variant variant; // Variant giving the rows and columns of the squares
 
     /**
-     * Constructs a new Move object.
+     * Constructs a new Move object on the standard board.
      *
      * @param fromRow The row index of the piece before the move
      * @param fromCol The column index of the piece before the move
@@ -16,73 +44,148 @@ public class Move {
      * @param toCol   The column index of the destination position after the move
      */
     public Move(int fromRow, int fromCol, int toRow, int toCol) {
-        this.fromRow = fromRow;
-        this.fromCol = fromCol;
-        this.toRow = toRow;
-        this.toCol = toCol;
+        this(encode(Variant.STANDARD.square(fromRow, fromCol), Variant.STANDARD.square(toRow, toCol), NO_SQUARE));
     }
 
     /**
-     * Translates the move direction from the starting position to the destination position.
+     * Constructs a view over a packed move on the standard board.
      *
-     * @param fromRow The starting row index
-     * @param fromCol The starting column index
-     * @param toRow   The destination row index
-     * @param toCol   The destination column index
-     * @return An array containing the row and column direction of the move, or null if the move is invalid
+     * @param encoded The packed move, as produced by {@link #encode(int, int, int)}
      */
-    public static int[] translateMoveDirection(int fromRow, int fromCol, int toRow, int toCol) {
-        int rowDiff = toRow - fromRow;
-        int colDiff = toCol - fromCol;
+    public Move(int encoded) {
+        this(encoded, Variant.STANDARD);
+    }
 
-        if (Math.abs(rowDiff) != Math.abs(colDiff)) {
-            return null;
-        }
-        int rowDirection;
-        if (rowDiff > 0) {
-            rowDirection = 1;
-        } else {
-            rowDirection = -1;
-        }
-        int colDirection;
-        if (colDiff > 0) {
-            colDirection = 1;
-        } else {
-            colDirection = -1;
-        }
+    /**
+     * Constructs a view over a packed move.
+     *
+     * @param encoded The packed move, as produced by {@link #encode(int, int, int)}
+     * @param variant Variant the move is played in
+     */
+    public Move(int encoded, Variant variant) {
+        this.encoded = encoded;
+        this.variant = variant;
+    }
 
-        return new int[]{rowDirection, colDirection};
+    /**
+     * Packs a move into a single int.
+     *
+     * @param from     The starting square
+     * @param to       The destination square
+     * @param captured The square of the captured piece, or {@link #NO_SQUARE}
+     * @return The packed move
+     */
+    public static int encode(int from, int to, int captured) {
+        return from | (to << SQUARE_BITS) | (captured << CAPTURED_SHIFT);
     }
 
     /**
-     * Checks if the move has passed through an enemy piece.
+     * Packs a capture sequence of at least two captures into a single int. The number of captures sets the top
+     * bits, so the alternative can never read as {@link #NO_SQUARE} and make the move look like a simple one.
      *
-     * @param fromRow The starting row index
-     * @param fromCol The starting column index
-     * @param toRow   The destination row index
-     * @param toCol   The destination column index
-     * @param board   The current state of the game board
-     * @return True if the move passes through an enemy piece, false otherwise
+     * @param from        The starting square
+     * @param to          The square the sequence ends on
+     * @param captures    Number of pieces captured, from 2 to {@link #MAX_CAPTURES}
+     * @param alternative Number of earlier generated sequences with the same squares and number of captures that
+     *                    take other pieces, below {@link #MAX_ALTERNATIVES}
+     * @return The packed move
      */
-    public static boolean hasPassedThroughEnemy(int fromRow, int fromCol, int toRow, int toCol, Piece[][] board) {
-        int rowDiff = toRow - fromRow;
-        int colDiff = toCol - fromCol;
+    public static int encodeSequence(int from, int to, int captures, int alternative) {
+        return from | (to << SQUARE_BITS) | (alternative << CAPTURED_SHIFT) | (captures - 1) << CAPTURES_SHIFT;
+    }
 
-        int rowDirection = rowDiff > 0 ? 1 : -1;
-        int colDirection = colDiff > 0 ? 1 : -1;
+    /**
+     * Gets the starting square of a packed move.
+     *
+     * @param move The packed move
+     * @return The starting square
+     */
+    public static int fromSquare(int move) {
+        return move & SQUARE_MASK;
+    }
 
-        int newRow = fromRow + rowDirection;
-        int newCol = fromCol + colDirection;
+    /**
+     * Gets the destination square of a packed move.
+     *
+     * @param move The packed move
+     * @return The destination square
+     */
+    public static int toSquare(int move) {
+        return (move >>> SQUARE_BITS) & SQUARE_MASK;
+    }
 
-        while (newRow != toRow || newCol != toCol) {
-            if (board[newRow][newCol] != null && board[newRow][newCol].getType() != board[fromRow][fromCol].getType()) {
-                return true; // Enemy piece found in the path
-            }
-            newRow += rowDirection;
-            newCol += colDirection;
-        }
+    /**
+     * Gets the square of the piece captured by a packed move that captures one piece.
+     * A capture sequence keeps no captured square; the pieces it takes and the squares it lands on are found
+     * from the position, see {@link Bitboard#getPath(int, int[])}.
+     *
+     * @param move The packed move
+     * @return The captured square, or {@link #NO_SQUARE} if the move captures nothing
+     */
+    public static int capturedSquare(int move) {
+        return (move >>> CAPTURED_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * Checks if a packed move captures a piece.
+     * Above the destination a simple move holds only {@link #NO_SQUARE}; a single capture holds a smaller
+     * square, and a capture sequence sets higher bits.
+     *
+     * @param move The packed move
+     * @return True if the move is a capture, otherwise false
+     */
+    public static boolean isCapture(int move) {
+        return move >>> CAPTURED_SHIFT != NO_SQUARE;
+    }
 
-        return false; // No enemy piece found in the path
+    /**
+     * Gets the number of pieces a packed move captures.
+     *
+     * @param move The packed move
+     * @return Number of captured pieces, 0 for a simple move
+     */
+    public static int captureCount(int move) {
+        return isCapture(move) ? (move >>> CAPTURES_SHIFT) + 1 : 0;
+    }
+
+    /**
+     * Formats a packed move in standard checkers notation, with squares numbered 1 to 32:
+     * {@code 9-13} for a simple move and {@code 9x18} for a capture. Capture sequences that share both squares
+     * need the position to be told apart; see {@link Rules#toString(Bitboard, int)}.
+     *
+     * @param move The packed move
+     * @return The move in text form
+     */
+    public static String toString(int move) {
+        return (fromSquare(move) + 1) + (isCapture(move) ? "x" : "-") + (toSquare(move) + 1);
+    }
+
+    /**
+     * Formats the move in standard checkers notation.
+     *
+     * @return The move in text form
+     */
+    @Override
+    public String toString() {
+        return toString(encoded);
+    }
+
+    /**
+     * Gets the packed representation of the move.
+     *
+     * @return The packed move
+     */
+    public int getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Checks if the move captures a piece.
+     *
+     * @return True if the move is a capture, otherwise false
+     */
+    public boolean isCapture() {
+        return isCapture(encoded);
     }
 
     /**
@@ -91,7 +194,7 @@ public class Move {
      * @return The starting row index
      */
     public int getFromRow() {
-        return fromRow;
+        return variant.row(fromSquare(encoded));
     }
 
     /**
@@ -100,7 +203,7 @@ public class Move {
      * @return The starting column index
      */
     public int getFromCol() {
-        return fromCol;
+        return variant.col(fromSquare(encoded));
     }
 
     /**
@@ -109,7 +212,7 @@ public class Move {
      * @return The destination row index
      */
     public int getToRow() {
-        return toRow;
+        return variant.row(toSquare(encoded));
     }
 
     /**
@@ -118,6 +221,6 @@ public class Move {
      * @return The destination column index
      */
     public int getToCol() {
-        return toCol;
+        return variant.col(toSquare(encoded));
     }
 }
@@ -0,0 +1,26 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event summarising the move generation of one search. The counts are gathered in plain fields
+ * while searching and reported once per search, so the generator itself carries no instrumentation.
+ */
+@Name("checkers.MoveGeneration")
+@Label("Move Generation")
+@Category({"Checkers", "Search"})
+@Description("Move generator calls and generated moves of one search")
+@StackTrace(false)
+public class MoveGenerationEvent extends Event {
+    @Label("Calls")
+    long calls; // Calls generating every move
+
+    @Label("Capture Calls")
+    long captureCalls; // Calls generating captures only, in the quiescence search
+
+    @Label("Moves")
+    long moves; // Moves generated by all calls
+}
@@ -0,0 +1,345 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Small neural network evaluating checkers positions in the style of NNUE (efficiently updatable neural
+ * networks). The inputs are one feature per kind of piece (see {@link Zobrist#kind(PieceType, boolean)}) on
+ * each square, so a move only switches a few of them; the first layer's output, the accumulator, is the sum of
+ * the weight rows of the active features and is updated by {@link NetworkAccumulator} with a few additions and
+ * subtractions per move instead of being recomputed. It is followed by a clipped ReLU, a small dense layer,
+ * another clipped ReLU and the output. Weights and activations are 16-bit integers, so the arithmetic maps
+ * directly onto SIMD instructions through a {@link NetworkKernel}. The evaluation is from red's point of view.
+ * Networks are immutable and safe to share between threads.
+ *
+ * <p>Weight files start with the magic number, format version, board size, accumulator size and dense layer
+ * size as big-endian ints, followed by the input weights (one row of accumulator size per feature) and biases
+ * as shorts, the dense weights (one row per output) as shorts and biases as ints, then the output weights as
+ * shorts and the output bias as an int.</p>
+ */
+public final class Network {
+    /**
+     * Version of the weight file layout; files written with another version are rejected.
+     */
+    public static final int FORMAT_VERSION = 1;
+    /**
+     * Squares of each kind of piece in the input; networks cover boards whose squares fit in one mask word.
+     */
+    public static final int SQUARES = Long.SIZE;
+    /**
+     * Number of input features: one per kind of piece and square.
+     */
+    public static final int INPUTS = 4 * SQUARES;
+    /**
+     * Upper limit of the clipped ReLU activations.
+     */
+    public static final int ACTIVATION_MAX = 127;
+
+    static final int MAGIC = 0x434B4E4E; // "CKNN"
+    private static final int HEADER_SIZE = 20; // Bytes before the first weight
+    private static final int HIDDEN_SHIFT = 6; // Right shift scaling the dense layer's sums back to activations
+    private static final int OUTPUT_DIVISOR = 16; // Divisor scaling the output to evaluation units
+
+    private final int boardSize; // Board size of the variant the network was trained for
+    private final int hidden; // Size of the accumulator
+    private final int dense; // Size of the dense layer
+    private final short[] inputWeights; // Row of accumulator weights per feature
+    private final short[] inputBiases; // Initial value of the accumulator
+    private final short[] denseWeights; // Row of weights over the activations per dense output
+    private final int[] denseBiases; // Bias of each dense output
+    private final short[] outputWeights; // Weight of each dense activation in the output
+    private final int outputBias; // Bias of the output
+    private final NetworkKernel kernel; // Arithmetic used to evaluate the network
+
+    /**
+     * Constructs a new Network.
+     *
+     * @param boardSize     Board size of the variant the network was trained for
+     * @param hidden        Size of the accumulator
+     * @param dense         Size of the dense layer
+     * @param inputWeights  Row of accumulator weights per feature, {@code INPUTS * hidden} values
+     * @param inputBiases   Initial value of the accumulator, {@code hidden} values
+     * @param denseWeights  Row of weights per dense output, {@code dense * hidden} values
+     * @param denseBiases   Bias of each dense output, {@code dense} values
+     * @param outputWeights Weight of each dense activation, {@code dense} values
+     * @param outputBias    Bias of the output
+     * @param kernel        Arithmetic used to evaluate the network
+     * @throws IllegalArgumentException if an array does not have the expected length
+     */
+    public Network(int boardSize, int hidden, int dense, short[] inputWeights, short[] inputBiases,
+                   short[] denseWeights, int[] denseBiases, short[] outputWeights, int outputBias,
+                   NetworkKernel kernel) {
+        if (hidden <= 0 || dense <= 0 || inputWeights.length != INPUTS * hidden || inputBiases.length != hidden
+                || denseWeights.length != dense * hidden || denseBiases.length != dense
+                || outputWeights.length != dense) {
+            throw new IllegalArgumentException("Layer sizes do not match");
+        }
+        this.boardSize = boardSize;
+        this.hidden = hidden;
+        this.dense = dense;
+        this.inputWeights = inputWeights;
+        this.inputBiases = inputBiases;
+        this.denseWeights = denseWeights;
+        this.denseBiases = denseBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+        this.kernel = kernel;
+    }
+
+    /**
+     * Reads a weight file, evaluated with the fastest kernel available.
+     *
+     * @param file The weight file
+     * @return The network
+     * @throws IOException if the file cannot be read or is not a valid weight file
+     */
+    public static Network load(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new IOException("Not a network weight file: " + file);
+        }
+        int boardSize = buffer.getInt();
+        int hidden = buffer.getInt();
+        int dense = buffer.getInt();
+        long expected = HEADER_SIZE + 2L * (INPUTS * (long) hidden + hidden + dense * (long) hidden + dense)
+                + 4L * dense + 4;
+        if (hidden <= 0 || dense <= 0 || buffer.capacity() != expected) {
+            throw new IOException("Truncated or corrupt network weight file: " + file);
+        }
+        short[] inputWeights = readShorts(buffer, INPUTS * hidden);
+        short[] inputBiases = readShorts(buffer, hidden);
+        short[] denseWeights = readShorts(buffer, dense * hidden);
+        int[] denseBiases = new int[dense];
+        buffer.asIntBuffer().get(denseBiases);
+        buffer.position(buffer.position() + 4 * dense);
+        short[] outputWeights = readShorts(buffer, dense);
+        int outputBias = buffer.getInt();
+        return new Network(boardSize, hidden, dense, inputWeights, inputBiases, denseWeights, denseBiases,
+                outputWeights, outputBias, NetworkKernel.create());
+    }
+
+    /**
+     * Reads a weight file like {@link #load(Path)}, if there is one.
+     *
+     * @param file The weight file
+     * @return The network, or null if the file is missing or invalid
+     */
+    public static Network loadOrNull(Path file) {
+        if (!Files.isReadable(file)) {
+            return null;
+        }
+        try {
+            return load(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Reads shorts from a buffer and advances past them.
+     *
+     * @param buffer The buffer, positioned at the first short
+     * @param count  Number of shorts
+     * @return The shorts
+     */
+    private static short[] readShorts(ByteBuffer buffer, int count) {
+        short[] values = new short[count];
+        buffer.asShortBuffer().get(values);
+        buffer.position(buffer.position() + 2 * count);
+        return values;
+    }
+
+    /**
+     * Writes the weights in the form read by {@link #load(Path)}.
+     *
+     * @param file The weight file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 * (inputWeights.length + hidden
+                + denseWeights.length + dense) + 4 * dense + 4);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(boardSize).putInt(hidden).putInt(dense);
+        buffer.asShortBuffer().put(inputWeights).put(inputBiases).put(denseWeights);
+        buffer.position(buffer.position() + 2 * (inputWeights.length + hidden + denseWeights.length));
+        buffer.asIntBuffer().put(denseBiases);
+        buffer.position(buffer.position() + 4 * dense);
+        buffer.asShortBuffer().put(outputWeights);
+        buffer.position(buffer.position() + 2 * dense);
+        buffer.putInt(outputBias);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Creates a network with random weights in the ranges a trained network would use, for benchmarks and
+     * for testing weight files.
+     *
+     * @param variant Variant the network is for
+     * @param hidden  Size of the accumulator
+     * @param dense   Size of the dense layer
+     * @param seed    Seed of the random weights
+     * @return The network, evaluated with the fastest kernel available
+     */
+    public static Network random(Variant variant, int hidden, int dense, long seed) {
+        Random random = new Random(seed);
+        short[] inputWeights = new short[INPUTS * hidden];
+        for (int i = 0; i < inputWeights.length; i++) {
+            inputWeights[i] = (short) (random.nextInt(65) - 32);
+        }
+        short[] inputBiases = new short[hidden];
+        for (int i = 0; i < hidden; i++) {
+            inputBiases[i] = (short) random.nextInt(64);
+        }
+        short[] denseWeights = new short[dense * hidden];
+        for (int i = 0; i < denseWeights.length; i++) {
+            denseWeights[i] = (short) (random.nextInt(129) - 64);
+        }
+        int[] denseBiases = new int[dense];
+        short[] outputWeights = new short[dense];
+        for (int i = 0; i < dense; i++) {
+            denseBiases[i] = random.nextInt(1025) - 512;
+            outputWeights[i] = (short) (random.nextInt(257) - 128);
+        }
+        return new Network(variant.getBoardSize(), hidden, dense, inputWeights, inputBiases, denseWeights,
+                denseBiases, outputWeights, 0, NetworkKernel.create());
+    }
+
+    /**
+     * Gets a network with the same weights evaluated with another kernel.
+     *
+     * @param kernel The kernel
+     * @return A network sharing this network's weights
+     */
+    public Network withKernel(NetworkKernel kernel) {
+        return new Network(boardSize, hidden, dense, inputWeights, inputBiases, denseWeights, denseBiases,
+                outputWeights, outputBias, kernel);
+    }
+
+    /**
+     * Gets the kernel evaluating the network.
+     *
+     * @return The kernel
+     */
+    public NetworkKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Gets the size of the accumulator.
+     *
+     * @return Number of first-layer outputs
+     */
+    public int getHidden() {
+        return hidden;
+    }
+
+    /**
+     * Gets the size of the dense layer.
+     *
+     * @return Number of dense outputs
+     */
+    public int getDense() {
+        return dense;
+    }
+
+    /**
+     * Checks whether the network was trained for the board of a variant.
+     *
+     * @param variant The variant
+     * @return True if the board sizes match and the board is no larger than 10x10
+     */
+    public boolean supports(Variant variant) {
+        return variant.getBoardSize() == boardSize && variant.getWords() == 1;
+    }
+
+    /**
+     * Gets the input feature of a piece.
+     *
+     * @param kind   Kind of the piece, see {@link Zobrist#kind(PieceType, boolean)}
+     * @param square Square of the piece
+     * @return Index of the feature
+     */
+    public static int feature(int kind, int square) {
+        return kind * SQUARES + square;
+    }
+
+    /**
+     * Computes the accumulator of a position from scratch.
+     *
+     * @param board       The position
+     * @param accumulator Receives {@link #getHidden()} values
+     * @param offset      Index of the first value
+     */
+    public void refresh(Bitboard board, short[] accumulator, int offset) {
+        System.arraycopy(inputBiases, 0, accumulator, offset, hidden);
+        long occupied = board.getPieces(PieceType.RED) | board.getPieces(PieceType.BLACK);
+        for (; occupied != 0; occupied &= occupied - 1) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            addFeature(accumulator, offset, feature(Zobrist.kind(board.getType(square), board.isKing(square)), square));
+        }
+    }
+
+    /**
+     * Adds an input feature to an accumulator.
+     *
+     * @param accumulator The accumulator
+     * @param offset      Index of its first value
+     * @param feature     The feature, see {@link #feature(int, int)}
+     */
+    public void addFeature(short[] accumulator, int offset, int feature) {
+        kernel.add(accumulator, offset, inputWeights, feature * hidden, hidden);
+    }
+
+    /**
+     * Removes an input feature from an accumulator.
+     *
+     * @param accumulator The accumulator
+     * @param offset      Index of its first value
+     * @param feature     The feature, see {@link #feature(int, int)}
+     */
+    public void removeFeature(short[] accumulator, int offset, int feature) {
+        kernel.subtract(accumulator, offset, inputWeights, feature * hidden, hidden);
+    }
+
+    /**
+     * Evaluates the layers after the accumulator.
+     *
+     * @param accumulator The accumulator
+     * @param offset      Index of its first value
+     * @param scratch     Working space of {@code getHidden() + dense size} values, owned by the caller so that
+     *                    threads can share the network
+     * @return Score from red's point of view
+     */
+    public int evaluate(short[] accumulator, int offset, short[] scratch) {
+        kernel.clip(accumulator, offset, scratch, 0, hidden, ACTIVATION_MAX);
+        for (int i = 0; i < dense; i++) {
+            int sum = kernel.dot(scratch, 0, denseWeights, i * hidden, hidden) + denseBiases[i];
+            scratch[hidden + i] = (short) Math.min(Math.max(sum >> HIDDEN_SHIFT, 0), ACTIVATION_MAX);
+        }
+        return (kernel.dot(scratch, hidden, outputWeights, 0, dense) + outputBias) / OUTPUT_DIVISOR;
+    }
+
+    /**
+     * Evaluates a position without an incrementally updated accumulator.
+     *
+     * @param board The position
+     * @param side  Side to move
+     * @return Score from the point of view of the side to move
+     */
+    public int evaluate(Bitboard board, PieceType side) {
+        short[] scratch = new short[2 * hidden + dense];
+        refresh(board, scratch, hidden + dense);
+        int score = evaluate(scratch, hidden + dense, scratch);
+        return side == PieceType.RED ? score : -score;
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Stack of {@link Network} accumulators following a search: one accumulator per ply, each derived from the
+ * one below it by adding the weight rows of the pieces a move placed and subtracting those of the pieces it
+ * removed. The changed pieces are found by comparing the piece masks before and after the move, which covers
+ * simple moves, promotions and whole capture sequences alike. Not thread-safe; each search owns one.
+ */
+public class NetworkAccumulator {
+    private final Network network; // Network whose accumulators are kept
+    private final int hidden; // Size of each accumulator
+    private final short[] accumulators; // Accumulator of each ply, back to back
+    private final long[] pieces; // Masks of the four kinds of pieces at each ply
+    private final short[] scratch; // Working space for the layers after the accumulator
+    private int ply; // Current ply
+
+    /**
+     * Constructs a new NetworkAccumulator.
+     *
+     * @param network  The network
+     * @param maxDepth Maximum number of moves pushed at once
+     */
+    public NetworkAccumulator(Network network, int maxDepth) {
+        this.network = network;
+        this.hidden = network.getHidden();
+        this.accumulators = new short[(maxDepth + 1) * hidden];
+        this.pieces = new long[(maxDepth + 1) * 4];
+        this.scratch = new short[hidden + network.getDense()];
+    }
+
+    /**
+     * Gets the network.
+     *
+     * @return The network
+     */
+    public Network getNetwork() {
+        return network;
+    }
+
+    /**
+     * Computes the accumulator of a root position from scratch and clears the stack.
+     *
+     * @param board The position
+     */
+    public void reset(Bitboard board) {
+        ply = 0;
+        network.refresh(board, accumulators, 0);
+        storePieces(board, 0);
+    }
+
+    /**
+     * Updates the accumulator after a move was made on the board.
+     *
+     * @param board The position after the move
+     */
+    public void push(Bitboard board) {
+        int previous = ply * hidden;
+        ply++;
+        int offset = ply * hidden;
+        System.arraycopy(accumulators, previous, accumulators, offset, hidden);
+        storePieces(board, ply);
+        for (int kind = 0; kind < 4; kind++) {
+            long before = pieces[(ply - 1) * 4 + kind];
+            long after = pieces[ply * 4 + kind];
+            for (long removed = before & ~after; removed != 0; removed &= removed - 1) {
+                network.removeFeature(accumulators, offset, Network.feature(kind, Long.numberOfTrailingZeros(removed)));
+            }
+            for (long added = after & ~before; added != 0; added &= added - 1) {
+                network.addFeature(accumulators, offset, Network.feature(kind, Long.numberOfTrailingZeros(added)));
+            }
+        }
+    }
+
+    /**
+     * Returns to the accumulator before the last move, after the move was unmade on the board.
+     */
+    public void pop() {
+        ply--;
+    }
+
+    /**
+     * Evaluates the current position.
+     *
+     * @param side Side to move
+     * @return Score from the point of view of the side to move
+     */
+    public int evaluate(PieceType side) {
+        int score = network.evaluate(accumulators, ply * hidden, scratch);
+        return side == PieceType.RED ? score : -score;
+    }
+
+    /**
+     * Records the masks of the four kinds of pieces of a position, indexed like
+     * {@link Zobrist#kind(PieceType, boolean)}.
+     *
+     * @param board The position
+     * @param ply   Ply to record them for
+     */
+    private void storePieces(Bitboard board, int ply) {
+        long kings = board.getKings();
+        long red = board.getPieces(PieceType.RED);
+        long black = board.getPieces(PieceType.BLACK);
+        pieces[ply * 4] = red & ~kings;
+        pieces[ply * 4 + 1] = red & kings;
+        pieces[ply * 4 + 2] = black & ~kings;
+        pieces[ply * 4 + 3] = black & kings;
+    }
+}
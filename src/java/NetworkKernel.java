@@ -0,0 +1,74 @@
+/**
+ * Arithmetic on 16-bit vectors used by {@link Network}: adding and subtracting weight rows to and from an
+ * accumulator, the clipped ReLU activation and dot products for the dense layers.
+ * All operations are integer arithmetic, so every implementation returns exactly the same results.
+ */
+public interface NetworkKernel {
+    /**
+     * Adds a row of weights to an accumulator.
+     *
+     * @param accumulator Accumulator to add to
+     * @param offset      Index of the first element of the accumulator
+     * @param weights     Weight matrix
+     * @param row         Index of the first weight of the row
+     * @param length      Number of elements
+     */
+    void add(short[] accumulator, int offset, short[] weights, int row, int length);
+
+    /**
+     * Subtracts a row of weights from an accumulator.
+     *
+     * @param accumulator Accumulator to subtract from
+     * @param offset      Index of the first element of the accumulator
+     * @param weights     Weight matrix
+     * @param row         Index of the first weight of the row
+     * @param length      Number of elements
+     */
+    void subtract(short[] accumulator, int offset, short[] weights, int row, int length);
+
+    /**
+     * Applies the clipped ReLU: copies values, limited to {@code [0, max]}.
+     *
+     * @param source       Values to clip
+     * @param sourceOffset Index of the first value
+     * @param target       Receives the clipped values
+     * @param targetOffset Index of the first clipped value
+     * @param length       Number of values
+     * @param max          Upper limit
+     */
+    void clip(short[] source, int sourceOffset, short[] target, int targetOffset, int length, int max);
+
+    /**
+     * Computes the dot product of two vectors, summed in 32-bit integers.
+     *
+     * @param a       First vector
+     * @param aOffset Index of the first element of the first vector
+     * @param b       Second vector
+     * @param bOffset Index of the first element of the second vector
+     * @param length  Number of elements
+     * @return The dot product
+     */
+    int dot(short[] a, int aOffset, short[] b, int bOffset, int length);
+
+    /**
+     * Gets the name of the implementation, for reports.
+     *
+     * @return The name
+     */
+    String getName();
+
+    /**
+     * Gets the fastest kernel available: the SIMD kernel when the JVM was started with
+     * {@code --add-modules jdk.incubator.vector}, otherwise the scalar one.
+     *
+     * @return The kernel
+     */
+    static NetworkKernel create() {
+        try {
+            // Loaded by name, so that this class still links when the vector module is missing
+            return (NetworkKernel) Class.forName("VectorNetworkKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarNetworkKernel();
+        }
+    }
+}
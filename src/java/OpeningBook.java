@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opening book: moves to play in known positions without searching.
+ * The book is a file of fixed-size records (position hash, packed move, weight) sorted by hash, behind a
+ * 16-byte header. It is memory-mapped and looked up by binary search, so a probe costs a few dozen memory
+ * reads and allocates nothing. Books are written by {@link OpeningBookBuilder}.
+ */
+public class OpeningBook {
+    /**
+     * Version of the file layout and hashing; files written with another version are ignored.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    static final int HEADER_SIZE = 16; // Bytes before the first record
+    static final int RECORD_SIZE = 16; // Bytes per record: hash, move and weight
+    static final int MAGIC = 0x434B424B; // "CKBK"
+
+    private final ByteBuffer records; // Mapped file, or an empty buffer if there is no usable book
+    private final int size; // Number of records
+
+    /**
+     * Constructs a new OpeningBook from a book file.
+     *
+     * @param file The book file; if it is missing or invalid the book is empty
+     */
+    public OpeningBook(Path file) {
+        ByteBuffer mapped = ByteBuffer.allocate(0);
+        int count = 0;
+        if (Files.isReadable(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                long records = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+                if (buffer.capacity() >= HEADER_SIZE && buffer.getInt(0) == MAGIC
+                        && buffer.getInt(4) == FORMAT_VERSION && buffer.getLong(8) == records) {
+                    mapped = buffer;
+                    count = (int) records;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        this.records = mapped;
+        this.size = count;
+    }
+
+    /**
+     * Gets the number of moves in the book.
+     *
+     * @return Number of records
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Picks a book move for a position. When the book has several moves for the position, one is chosen at
+     * random in proportion to its weight.
+     *
+     * @param board The position
+     * @param side  Side to move
+     * @return A packed legal move, or {@link Move#NONE} if the position is not in the book
+     */
+    public int probe(Bitboard board, PieceType side) {
+        if (!board.getVariant().equals(Variant.STANDARD)) {
+            return Move.NONE; // Books are built for the standard game only
+        }
+        long hash = board.getHash() ^ Zobrist.side(side);
+        int first = findFirst(hash);
+        int totalWeight = 0;
+        int end = first;
+        for (; end < size && hashAt(end) == hash; end++) {
+            totalWeight += weightAt(end);
+        }
+        if (totalWeight <= 0) {
+            return Move.NONE;
+        }
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = first; i < end; i++) {
+            pick -= weightAt(i);
+            if (pick < 0) {
+                int move = moveAt(i);
+                // Guard against hash collisions and books built for other rules
+                return Rules.isLegalMove(board, side, move) ? move : Move.NONE;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Finds the first record whose hash is not less than the given one.
+     *
+     * @param hash Position hash
+     * @return Index of the record, or the number of records if there is none
+     */
+    private int findFirst(long hash) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (hashAt(middle) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads the hash of a record.
+     *
+     * @param index Record index
+     * @return Position hash
+     */
+    private long hashAt(int index) {
+        return records.getLong(HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    /**
+     * Reads the move of a record.
+     *
+     * @param index Record index
+     * @return Packed move
+     */
+    private int moveAt(int index) {
+        return records.getInt(HEADER_SIZE + index * RECORD_SIZE + 8);
+    }
+
+    /**
+     * Reads the weight of a record.
+     *
+     * @param index Record index
+     * @return Relative weight of the move
+     */
+    private int weightAt(int index) {
+        return records.getInt(HEADER_SIZE + index * RECORD_SIZE + 12);
+    }
+}
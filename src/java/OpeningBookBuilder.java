@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds an {@link OpeningBook} offline from deep searches.
+ * Starting from the initial position, every move of a book position is searched to a fixed depth. Moves
+ * scoring within a margin of the best one go into the book, weighted by how close they come, and the
+ * positions they lead to are expanded in turn until the book reaches the requested number of plies.
+ */
+public class OpeningBookBuilder {
+    private final SearchEngine engine = new SearchEngine(); // Engine scoring the candidate moves
+    private final int margin; // Largest score loss against the best move still accepted into the book
+    private final List<long[]> records = new ArrayList<>(); // Hash, move and weight of every book move
+    private final Set<Long> expanded = new HashSet<>(); // Hashes of positions already expanded
+    private int searches; // Number of searches run so far
+
+    /**
+     * Constructs a new OpeningBookBuilder.
+     *
+     * @param searchDepth Depth each candidate move is searched to
+     * @param margin      Largest score loss against the best move still accepted into the book
+     */
+    public OpeningBookBuilder(int searchDepth, int margin) {
+        this.margin = margin;
+        engine.setTimeLimit(0);
+        engine.setMaxDepth(Math.max(1, searchDepth - 1));
+        engine.setTranspositionTable(new TranspositionTable(64));
+    }
+
+    /**
+     * Adds every position up to a number of plies from the starting position to the book.
+     *
+     * @param plies Number of plies to cover
+     */
+    public void build(int plies) {
+        expand(new GameState(), plies);
+    }
+
+    /**
+     * Scores the moves of a position, records the good ones and expands the positions they lead to.
+     *
+     * @param game  The position; restored before returning
+     * @param plies Number of plies still to cover
+     */
+    private void expand(GameState game, int plies) {
+        if (plies == 0 || !expanded.add(game.getHash())) {
+            return;
+        }
+        int[] moves = new int[Bitboard.MAX_MOVES];
+        int count = game.generateMoves(moves, 0);
+        int[] scores = new int[count];
+        int best = -SearchEngine.WIN_SCORE - 1;
+        for (int i = 0; i < count; i++) {
+            game.makeMove(moves[i]);
+            scores[i] = -engine.search(game.getBoard(), game.getSideToMove()).getScore();
+            game.unmakeMove();
+            best = Math.max(best, scores[i]);
+            searches++;
+        }
+        for (int i = 0; i < count; i++) {
+            if (best - scores[i] <= margin) {
+                records.add(new long[]{game.getHash(), moves[i], margin + 1 - (best - scores[i])});
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (best - scores[i] <= margin) {
+                game.makeMove(moves[i]);
+                expand(game, plies - 1);
+                game.unmakeMove();
+            }
+        }
+    }
+
+    /**
+     * Writes the book sorted by hash, heaviest move first within a position.
+     *
+     * @param file Destination file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        records.sort(Comparator.<long[]>comparingLong(record -> record[0]).thenComparingLong(record -> -record[2]));
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_SIZE + records.size() * OpeningBook.RECORD_SIZE);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.FORMAT_VERSION).putLong(records.size());
+        for (long[] record : records) {
+            buffer.putLong(record[0]).putInt((int) record[1]).putInt((int) record[2]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Builds a book from the command line.
+     * Usage: {@code java OpeningBookBuilder <file> [plies] [search depth] [margin]}, with defaults 6, 10 and 20.
+     *
+     * @param args Command-line arguments
+     * @throws IOException if the book cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java OpeningBookBuilder <file> [plies] [search depth] [margin]");
+            return;
+        }
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int margin = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        long start = System.nanoTime();
+        OpeningBookBuilder builder = new OpeningBookBuilder(depth, margin);
+        builder.build(plies);
+        builder.write(Paths.get(args[0]));
+        System.out.printf("%d positions, %d moves, %d searches in %.1f s%n", builder.expanded.size(),
+                builder.records.size(), builder.searches, (System.nanoTime() - start) / 1e9);
+    }
+}
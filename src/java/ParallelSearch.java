@@ -0,0 +1,283 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Multi-threaded search using Lazy SMP.
+ * Every thread runs its own {@link SearchEngine} on the same position, all sharing one
+ * {@link TranspositionTable}. Helper threads start their iterative deepening at staggered depths, so they
+ * fill the table with results the main thread then finds instead of searching. The main thread decides the
+ * move; helpers are stopped as soon as it finishes.
+ */
+public class ParallelSearch implements Engine {
+    private final TranspositionTable table; // Table shared by every thread
+    private final List<SearchEngine> engines = new ArrayList<>(); // Engine of each thread, the main one first
+    private ExecutorService workers; // Pool running the helper engines
+    private int maxDepth = 64; // Deepest iteration to start
+    private long timeLimit = 500; // Time budget per search in milliseconds, or 0 for none
+    private long nodeLimit = 0; // Node budget of the main thread, or 0 for none
+    private Tablebase tablebase; // Endgame tables probed by every thread, or null
+    private Evaluator evaluator = Evaluator.DEFAULT; // Static evaluation used by every thread
+    private Network network; // Neural network evaluation used by every thread, or null
+    private Consumer<SearchResult> progressListener; // Receives the main thread's completed iterations, or null
+
+    /**
+     * Constructs a new ParallelSearch.
+     *
+     * @param threads Number of search threads, including the calling thread
+     * @param tableMb Size of the shared transposition table in megabytes
+     */
+    public ParallelSearch(int threads, int tableMb) {
+        this.table = new TranspositionTable(tableMb);
+        setThreads(threads);
+    }
+
+    /**
+     * Sets the number of search threads.
+     *
+     * @param threads Number of search threads, including the calling thread
+     */
+    public void setThreads(int threads) {
+        threads = Math.max(1, threads);
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        engines.clear();
+        for (int i = 0; i < threads; i++) {
+            SearchEngine engine = new SearchEngine();
+            engine.setTranspositionTable(table);
+            engine.setTablebase(tablebase);
+            engine.setEvaluator(evaluator);
+            engine.setNetwork(network);
+            engine.setProgressListener(i == 0 ? progressListener : null);
+            // Odd helpers run one iteration ahead of the main thread
+            engine.setStartDepth(1 + (i & 1));
+            engines.add(engine);
+        }
+        workers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        applyLimits();
+    }
+
+    /**
+     * Gets the number of search threads.
+     *
+     * @return Number of search threads, including the calling thread
+     */
+    public int getThreads() {
+        return engines.size();
+    }
+
+    /**
+     * Sets the deepest iteration the search may start.
+     *
+     * @param maxDepth Depth limit in plies
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        applyLimits();
+    }
+
+    /**
+     * Sets the time budget of a search.
+     *
+     * @param millis Time limit in milliseconds, or 0 for no limit
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimit = millis;
+        applyLimits();
+    }
+
+    /**
+     * Sets the node budget of the main thread.
+     *
+     * @param nodeLimit Maximum number of positions the main thread visits, or 0 for no limit
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+        applyLimits();
+    }
+
+    /**
+     * Sets the endgame tablebase probed by every thread.
+     *
+     * @param tablebase The tablebase to use, or null for none
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        for (SearchEngine engine : engines) {
+            engine.setTablebase(tablebase);
+        }
+    }
+
+    /**
+     * Sets the evaluator used by every thread.
+     *
+     * @param evaluator The evaluator to use
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        for (SearchEngine engine : engines) {
+            engine.setEvaluator(evaluator);
+        }
+    }
+
+    /**
+     * Sets a listener told about every iteration the main thread completes, see
+     * {@link SearchEngine#setProgressListener(Consumer)}.
+     *
+     * @param progressListener The listener, or null for none
+     */
+    public void setProgressListener(Consumer<SearchResult> progressListener) {
+        this.progressListener = progressListener;
+        engines.get(0).setProgressListener(progressListener);
+    }
+
+    /**
+     * Sets the neural network used by every thread instead of the evaluator. Each thread keeps its own
+     * accumulators but shares the weights.
+     *
+     * @param network The network to use, or null to use the evaluator
+     */
+    public void setNetwork(Network network) {
+        this.network = network;
+        for (SearchEngine engine : engines) {
+            engine.setNetwork(network);
+        }
+    }
+
+    /**
+     * Gets the transposition table shared by the threads.
+     *
+     * @return The shared table
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * Passes the configured limits on to every engine. Helpers get no budget of their own; they run until
+     * the main thread stops them.
+     */
+    private void applyLimits() {
+        for (int i = 0; i < engines.size(); i++) {
+            SearchEngine engine = engines.get(i);
+            engine.setMaxDepth(maxDepth);
+            engine.setTimeLimit(i == 0 ? timeLimit : 0);
+            engine.setNodeLimit(i == 0 ? nodeLimit : 0);
+        }
+    }
+
+    /**
+     * Searches for the best move of a side on all threads.
+     * The given board is not modified.
+     *
+     * @param board Position to search
+     * @param side  Side to move
+     * @return The main thread's best move, with the node count summed over all threads
+     */
+    @Override
+    public SearchResult search(Bitboard board, PieceType side) {
+        return search(board, side, new AtomicBoolean());
+    }
+
+    /**
+     * Searches for the best move of a side on all threads until the budget runs out or the stop signal is
+     * raised.
+     *
+     * @param board      Position to search
+     * @param side       Side to move
+     * @param stopSignal Flag that ends the search once set
+     * @return The main thread's best move, with the node count summed over all threads
+     */
+    public SearchResult search(Bitboard board, PieceType side, AtomicBoolean stopSignal) {
+        table.newSearch();
+        AtomicBoolean helpersStop = new AtomicBoolean();
+        List<Future<SearchResult>> helpers = new ArrayList<>();
+        for (int i = 1; i < engines.size(); i++) {
+            SearchEngine engine = engines.get(i);
+            Bitboard copy = new Bitboard(board);
+            helpers.add(workers.submit(() -> engine.search(copy, side, helpersStop)));
+        }
+
+        SearchResult main;
+        try {
+            main = engines.get(0).search(board, side, stopSignal);
+        } finally {
+            helpersStop.set(true); // The helpers have no limits of their own
+        }
+
+        long nodes = main.getNodes();
+        for (Future<SearchResult> helper : helpers) {
+            try {
+                nodes += helper.get().getNodes();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return new SearchResult(main.getBestMove(), main.getScore(), main.getDepth(), nodes, main.getElapsedNanos());
+    }
+
+    /**
+     * Stops the helper threads for good.
+     */
+    @Override
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Measures how search speed scales with the number of threads.
+     * Each thread count searches the same positions to a fixed depth with a fresh table; the time to reach
+     * that depth and the node rate are compared with the single-threaded run.
+     *
+     * @param args Optional search depth (default 14) and list of thread counts (default 1 2 4 8 16)
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 14;
+        int[] threadCounts = {1, 2, 4, 8, 16};
+        if (args.length > 1) {
+            threadCounts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                threadCounts[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+        List<GameState> positions = BenchmarkPositions.positions();
+
+        System.out.printf("Depth %d, %d positions, %d cores%n", depth, positions.size(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %12s %14s %14s %10s %10s%n", "threads", "time ms", "nodes", "nodes/s", "speedup", "nps ratio");
+        double baseTime = 0;
+        double baseNps = 0;
+        for (int threads : threadCounts) {
+            ParallelSearch search = new ParallelSearch(threads, 64);
+            search.setTimeLimit(0);
+            search.setMaxDepth(depth);
+            long nodes = 0;
+            long start = System.nanoTime();
+            for (GameState position : positions) {
+                nodes += search.search(position.getBoard(), position.getSideToMove()).getNodes();
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            double nps = nodes / elapsed;
+            if (baseTime == 0) {
+                baseTime = elapsed;
+                baseNps = nps;
+            }
+            System.out.printf("%8d %12.0f %14d %14.0f %10.2f %10.2f%n",
+                    threads, elapsed * 1000, nodes, nps, baseTime / elapsed, nps / baseNps);
+            search.shutdown();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Perft: counts the positions reachable in a fixed number of moves.
+ * The counts depend on every detail of the move generator, so comparing them with known values catches
+ * generator bugs quickly, and the time taken measures raw generator throughput.
+ */
+public class Perft {
+    /**
+     * Positions with known perft counts, as variant and FEN followed by the counts for depth 1, 2, 3 and so on.
+     * The English and international start counts are the published ones; the king positions need flying kings
+     * landing beyond the captured piece and, in the last one, a capture sequence of 13 pieces.
+     */
+    private static final String[][] REFERENCE = {
+            {"standard", "R:R1,2,3,4,5,6,7,8,9,10,11,12:B21,22,23,24,25,26,27,28,29,30,31,32",
+                    "7", "49", "379", "2872", "23582", "189143", "1585096", "13019316"},
+            {"standard", "R:RK1,14:B18,27,K32", "9", "42", "356", "2188", "18109", "135310", "1120238", "9602075"},
+            {"standard", "B:R9,10,11,K29:B13,14,K4,23,24",
+                    "12", "101", "975", "8708", "84642", "747782", "7632232", "66134784"},
+            {"english", "R:R1,2,3,4,5,6,7,8,9,10,11,12:B21,22,23,24,25,26,27,28,29,30,31,32",
+                    "7", "49", "302", "1469", "7361", "36768", "179740", "845931", "3963680"},
+            {"international", "R:R1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20:"
+                    + "B31,32,33,34,35,36,37,38,39,40,41,42,43,44,45,46,47,48,49,50",
+                    "9", "81", "658", "4265", "27117", "167140", "1049442", "6483961"},
+            {"international", "R:RK1,K46,22,27:B12,13,18,19,29,30,33,38,39",
+                    "3", "33", "227", "1591", "8519", "57509", "352800"},
+            {"international", "R:RK7:B5,6,8,9,11,15,21,23,24,25,28,30,32,33,34,35,41,42,43,44,50",
+                    "1", "8", "67", "547", "4314", "35627"},
+    };
+    /**
+     * Variants {@code --verify} plays, covering every rule switch and both board representations.
+     */
+    private static final String[] VERIFY_VARIANTS = {
+            "standard", "english", "international", "size=10,flying=true,mandatory=false,multijump=true,backward=true",
+            "size=12", "international,size=12", "size=12,flying=true,mandatory=true,multijump=true,backward=true",
+    };
+    private static final int VERIFY_PLIES = 200; // Longest random game --verify plays
+    private static final int VERIFY_PERFT_DEPTH = 4; // Depth of the perft counts --verify compares from each start position
+    private static final int VERIFY_REPORTS = 3; // Differences printed in full for each variant
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private Perft() {
+    }
+
+    /**
+     * Counts the leaf positions reachable in a fixed number of moves.
+     *
+     * @param game  The game to expand; restored before returning
+     * @param depth Number of plies to expand
+     * @return Number of leaf positions
+     */
+    public static long perft(GameState game, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        return perft(game, depth, new int[Bitboard.MAX_MOVES * depth], 0);
+    }
+
+    /**
+     * Counts the leaf positions reachable in a fixed number of moves, using a slice of a shared move buffer.
+     *
+     * @param game   The game to expand; restored before returning
+     * @param depth  Number of plies to expand, at least 1
+     * @param moves  Move buffer shared by all plies
+     * @param offset Start of this ply's slice of the buffer
+     * @return Number of leaf positions
+     */
+    private static long perft(GameState game, int depth, int[] moves, int offset) {
+        int end = game.generateMoves(moves, offset);
+        if (depth == 1) {
+            return end - offset;
+        }
+        long leaves = 0;
+        for (int i = offset; i < end; i++) {
+            game.makeMove(moves[i]);
+            leaves += perft(game, depth - 1, moves, end);
+            game.unmakeMove();
+        }
+        return leaves;
+    }
+
+    /**
+     * Counts the leaf positions below each root move, splitting the root moves over a pool of threads.
+     *
+     * @param game    The game to expand; not modified
+     * @param depth   Number of plies to expand, at least 1
+     * @param threads Number of threads to use
+     * @return Packed root moves and their leaf counts, in generation order
+     */
+    public static List<long[]> divide(GameState game, int depth, int threads) {
+        int[] rootMoves = new int[Bitboard.MAX_MOVES];
+        int count = game.generateMoves(rootMoves, 0);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Long>> counts = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                GameState child = new GameState(game);
+                child.makeMove(rootMoves[i]);
+                counts.add(pool.submit(() -> perft(child, depth - 1)));
+            }
+            List<long[]> result = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                result.add(new long[]{rootMoves[i], counts.get(i).get()});
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs perft from the command line.
+     * Usage: {@code java Perft <depth> [fen] [--divide] [--threads N] [--variant variant]}, or
+     * {@code java Perft --check [depth]} to compare the generator against the reference counts of every variant,
+     * or {@code java Perft --verify [games] [seed]} to compare it with {@link ReferenceGenerator} on random games.
+     *
+     * @param args Command-line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java Perft <depth> [fen] [--divide] [--threads N] [--variant variant]");
+            System.out.println("       java Perft --check [max depth]");
+            System.out.println("       java Perft --verify [games per variant] [seed]");
+            return;
+        }
+        if (args[0].equals("--check")) {
+            int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+            System.exit(check(maxDepth) ? 0 : 1);
+        }
+        if (args[0].equals("--verify")) {
+            int games = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+            System.exit(verify(games, seed) ? 0 : 1);
+        }
+
+        int depth = Integer.parseInt(args[0]);
+        String fen = null;
+        boolean showDivide = false;
+        int threads = 1;
+        Variant variant = Variant.STANDARD;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--divide")) {
+                showDivide = true;
+            } else if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--variant")) {
+                variant = Variant.parse(args[++i]);
+            } else {
+                fen = args[i];
+            }
+        }
+        GameState game = fen == null ? new GameState(variant) : GameState.fromFen(fen, variant);
+
+        long start = System.nanoTime();
+        long total;
+        if (showDivide || threads > 1) {
+            total = 0;
+            for (long[] entry : divide(game, depth, threads)) {
+                if (showDivide) {
+                    System.out.printf("%-8s %d%n", Move.toString((int) entry[0]), entry[1]);
+                }
+                total += entry[1];
+            }
+        } else {
+            total = perft(game, depth);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Depth %d: %d nodes in %.3f s (%.0f nodes/s)%n", depth, total, seconds, total / seconds);
+    }
+
+    /**
+     * Compares perft counts of the reference positions with the known values.
+     *
+     * @param maxDepth Deepest depth to check
+     * @return True if every count matches, otherwise false
+     */
+    private static boolean check(int maxDepth) {
+        boolean passed = true;
+        for (String[] reference : REFERENCE) {
+            GameState game = GameState.fromFen(reference[1], Variant.parse(reference[0]));
+            for (int depth = 1; depth < reference.length - 1 && depth <= maxDepth; depth++) {
+                long expected = Long.parseLong(reference[depth + 1]);
+                long actual = perft(game, depth);
+                boolean ok = actual == expected;
+                passed &= ok;
+                System.out.printf("%-4s %s %s depth %d: %d (expected %d)%n", ok ? "ok" : "FAIL", reference[0], reference[1],
+                        depth, actual, expected);
+            }
+        }
+        return passed;
+    }
+
+    /**
+     * Compares the generator with {@link ReferenceGenerator}: perft counts from the start position of every
+     * variant, then every position of random games. In each position the moves must match, counting which
+     * pieces each capture takes, and every move must keep the hash up to date when played, restore the
+     * position, hash and square score when taken back, and be found again from its text.
+     *
+     * @param games Random games per variant
+     * @param seed  Seed of the random moves
+     * @return True if nothing differs, otherwise false
+     */
+    private static boolean verify(int games, long seed) {
+        boolean passed = true;
+        int[] moves = new int[Bitboard.MAX_MOVES];
+        for (String name : VERIFY_VARIANTS) {
+            Variant variant = Variant.parse(name);
+            ReferenceGenerator reference = new ReferenceGenerator(variant);
+            GameState start = new GameState(variant);
+            for (int depth = 1; depth <= VERIFY_PERFT_DEPTH; depth++) {
+                long actual = perft(start, depth);
+                long expected = reference.perft(reference.grid(start.getBoard()), start.getSideToMove(), depth);
+                passed &= actual == expected;
+                System.out.printf("%-4s %s depth %d: %d (reference %d)%n", actual == expected ? "ok" : "FAIL", variant,
+                        depth, actual, expected);
+            }
+            Random random = new Random(seed);
+            long positions = 0;
+            long checked = 0;
+            int differences = 0;
+            for (int i = 0; i < games; i++) {
+                GameState game = new GameState(variant);
+                for (int ply = 0; ply < VERIFY_PLIES; ply++) {
+                    Bitboard board = game.getBoard();
+                    PieceType side = game.getSideToMove();
+                    int count = game.generateMoves(moves, 0);
+                    Set<ReferenceGenerator.Line> actual = new HashSet<>();
+                    String problem = null;
+                    for (int j = 0; j < count; j++) {
+                        String fen = game.toFen();
+                        long hash = board.getHash();
+                        int score = board.getSquareScore();
+                        String text = Rules.toString(board, moves[j]);
+                        if (Rules.parseMove(board, side, text) != moves[j]) {
+                            problem = "text " + text + " finds another move";
+                        }
+                        BitSet before = occupied(board);
+                        int undo = board.makeMove(moves[j]);
+                        BitSet taken = (BitSet) before.clone();
+                        taken.andNot(occupied(board));
+                        taken.clear(Move.fromSquare(moves[j]));
+                        if (board.getHash() != Zobrist.hash(board)) {
+                            problem = "hash after " + text + " is stale";
+                        }
+                        board.unmakeMove(moves[j], undo, hash);
+                        if (!game.toFen().equals(fen) || board.getHash() != hash || board.getSquareScore() != score) {
+                            problem = "taking back " + text + " leaves another position";
+                        }
+                        int from = Move.fromSquare(moves[j]);
+                        if (!actual.add(new ReferenceGenerator.Line(from, Move.toSquare(moves[j]), taken))) {
+                            problem = "two moves " + text + " take the same pieces";
+                        }
+                    }
+                    if (problem == null && !actual.equals(new HashSet<>(reference.moves(reference.grid(board), side)))) {
+                        problem = "moves differ from the reference";
+                    }
+                    positions++;
+                    checked += count;
+                    if (problem != null && differences++ < VERIFY_REPORTS) {
+                        System.out.printf("FAIL %s %s: %s%n", variant, game.toFen(), problem);
+                    }
+                    if (count == 0) {
+                        break;
+                    }
+                    game.makeMove(moves[random.nextInt(count)]);
+                }
+            }
+            passed &= differences == 0;
+            System.out.printf("%-4s %s: %d positions, %d moves, %d differences%n", differences == 0 ? "ok" : "FAIL",
+                    variant, positions, checked, differences);
+        }
+        return passed;
+    }
+
+    /**
+     * Lists the occupied squares of a position.
+     *
+     * @param board The position
+     * @return The squares holding a piece of either side
+     */
+    private static BitSet occupied(Bitboard board) {
+        BitSet squares = new BitSet();
+        for (int square = 0; square < board.getVariant().getSquares(); square++) {
+            if (board.getType(square) != null) {
+                squares.set(square);
+            }
+        }
+        return squares;
+    }
+}
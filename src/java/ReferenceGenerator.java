@@ -0,0 +1,214 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * A deliberately plain move generator for checking {@link Bitboard}. It works on a grid of rows and columns,
+ * with none of the masks, ray tables, packed moves or sequence numbering of the real generator, and describes
+ * every move by its starting and final squares and the set of pieces it takes. Only the square numbering of
+ * {@link Variant} is shared. It is far too slow to play with; {@link Perft} compares the two.
+ */
+public class ReferenceGenerator {
+    private static final int[][] DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}}; // Row and column steps of the four diagonals
+
+    private final Variant variant; // Board size and rules
+    private final int size; // Rows and columns of the board
+
+    /**
+     * A move as the reference generator sees it.
+     *
+     * @param from  Square of the moving piece
+     * @param to    Square the move ends on
+     * @param taken Squares of the pieces it captures, empty for a simple move
+     */
+    public record Line(int from, int to, BitSet taken) {
+    }
+
+    /**
+     * Constructs a new ReferenceGenerator.
+     *
+     * @param variant Board size and rules
+     */
+    public ReferenceGenerator(Variant variant) {
+        this.variant = variant;
+        this.size = variant.getBoardSize();
+    }
+
+    /**
+     * Copies a position into a grid.
+     *
+     * @param board The position
+     * @return Grid by row and column: 1 for a red man, 2 for a red king, -1 and -2 for black, 0 for empty
+     */
+    public int[][] grid(Bitboard board) {
+        int[][] grid = new int[size][size];
+        for (int square = 0; square < variant.getSquares(); square++) {
+            PieceType type = board.getType(square);
+            if (type != null) {
+                int piece = board.isKing(square) ? 2 : 1;
+                grid[variant.row(square)][variant.col(square)] = type == PieceType.RED ? piece : -piece;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Lists the legal moves of a side, by the same rules as the real generator but in no particular order.
+     * Capture sequences that take the same pieces between the same squares are one move.
+     *
+     * @param grid The position, see {@link #grid(Bitboard)}
+     * @param side Side to move
+     * @return The moves
+     */
+    public List<Line> moves(int[][] grid, PieceType side) {
+        int sign = side == PieceType.RED ? 1 : -1;
+        List<Line> captures = new ArrayList<>();
+        List<Line> quiet = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int piece = grid[row][col] * sign;
+                if (piece <= 0) {
+                    continue;
+                }
+                boolean king = piece == 2;
+                int from = variant.square(row, col);
+                // The moving piece leaves its square, which it may pass or land on again
+                grid[row][col] = 0;
+                jumps(grid, sign, king, from, row, col, new BitSet(), captures);
+                grid[row][col] = piece * sign;
+                for (int[] direction : DIRECTIONS) {
+                    if (!king && direction[0] != sign) {
+                        continue;
+                    }
+                    int r = row + direction[0];
+                    int c = col + direction[1];
+                    while (inside(r, c) && grid[r][c] == 0) {
+                        quiet.add(new Line(from, variant.square(r, c), new BitSet()));
+                        if (!king || !variant.hasFlyingKings()) {
+                            break;
+                        }
+                        r += direction[0];
+                        c += direction[1];
+                    }
+                }
+            }
+        }
+        List<Line> moves = new ArrayList<>(new LinkedHashSet<>(captures));
+        if (variant.isMaxCapture() && !moves.isEmpty()) {
+            int longest = moves.stream().mapToInt(move -> move.taken().cardinality()).max().getAsInt();
+            moves.removeIf(move -> move.taken().cardinality() != longest);
+        }
+        if (moves.isEmpty() || !variant.isMandatoryCapture()) {
+            moves.addAll(quiet);
+        }
+        return moves;
+    }
+
+    /**
+     * Follows every way a capture sequence can go on from a square, adding each finished sequence.
+     * Captured pieces stay on the grid until the sequence ends, so they block but are not taken twice.
+     *
+     * @param grid  The position, without the moving piece
+     * @param sign  1 for red, -1 for black
+     * @param king  True if the moving piece is a king
+     * @param from  Square the sequence started from
+     * @param row   Row the piece stands on
+     * @param col   Column the piece stands on
+     * @param taken Pieces captured so far
+     * @param out   Receives the finished sequences
+     */
+    private void jumps(int[][] grid, int sign, boolean king, int from, int row, int col, BitSet taken,
+                       List<Line> out) {
+        boolean flying = king && variant.hasFlyingKings();
+        boolean continued = false;
+        if (taken.isEmpty() || variant.hasMultiJumps()) {
+            for (int[] direction : DIRECTIONS) {
+                if (!king && direction[0] != sign && !variant.hasBackwardCaptures()) {
+                    continue;
+                }
+                int r = row + direction[0];
+                int c = col + direction[1];
+                while (flying && inside(r, c) && grid[r][c] == 0) {
+                    r += direction[0];
+                    c += direction[1];
+                }
+                if (!inside(r, c) || grid[r][c] * sign >= 0 || taken.get(variant.square(r, c))) {
+                    continue;
+                }
+                int over = variant.square(r, c);
+                r += direction[0];
+                c += direction[1];
+                while (inside(r, c) && grid[r][c] == 0) {
+                    continued = true;
+                    BitSet next = (BitSet) taken.clone();
+                    next.set(over);
+                    jumps(grid, sign, king, from, r, c, next, out);
+                    if (!flying) {
+                        break;
+                    }
+                    r += direction[0];
+                    c += direction[1];
+                }
+            }
+        }
+        if (!continued && !taken.isEmpty()) {
+            out.add(new Line(from, variant.square(row, col), taken));
+        }
+    }
+
+    /**
+     * Plays a move on a grid, promoting a man that ends on the far row.
+     *
+     * @param grid The position; changed in place
+     * @param move The move
+     * @param side Side making the move
+     */
+    public void play(int[][] grid, Line move, PieceType side) {
+        int piece = grid[variant.row(move.from())][variant.col(move.from())];
+        grid[variant.row(move.from())][variant.col(move.from())] = 0;
+        for (int square = move.taken().nextSetBit(0); square >= 0; square = move.taken().nextSetBit(square + 1)) {
+            grid[variant.row(square)][variant.col(square)] = 0;
+        }
+        if (Math.abs(piece) == 1 && variant.row(move.to()) == (side == PieceType.RED ? size - 1 : 0)) {
+            piece *= 2;
+        }
+        grid[variant.row(move.to())][variant.col(move.to())] = piece;
+    }
+
+    /**
+     * Counts the leaf positions reachable in a fixed number of moves.
+     *
+     * @param grid  The position; not modified
+     * @param side  Side to move
+     * @param depth Number of plies to expand, at least 1
+     * @return Number of leaf positions
+     */
+    public long perft(int[][] grid, PieceType side, int depth) {
+        List<Line> moves = moves(grid, side);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long leaves = 0;
+        for (Line move : moves) {
+            int[][] child = new int[size][];
+            for (int row = 0; row < size; row++) {
+                child[row] = grid[row].clone();
+            }
+            play(child, move, side);
+            leaves += perft(child, Bitboard.opponent(side), depth - 1);
+        }
+        return leaves;
+    }
+
+    /**
+     * Checks if a row and column lie on the board.
+     *
+     * @param row Row index
+     * @param col Column index
+     * @return True if the square is on the board, otherwise false
+     */
+    private boolean inside(int row, int col) {
+        return row >= 0 && col >= 0 && row < size && col < size;
+    }
+}
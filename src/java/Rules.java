@@ -0,0 +1,167 @@
+import java.util.regex.Pattern;
+
+/**
+ * The rules of checkers, independent of any user interface.
+ * Red moves first from the top rows towards the last row; black starts on the bottom rows. Men move and
+ * capture one step diagonally forward. Kings slide along diagonals and may jump one enemy piece on the way, or
+ * move like men in every direction where the {@link Variant} has no flying kings. Capturing is optional unless
+ * the variant makes it mandatory. Variants with multiple jumps play a whole capture sequence as one move, and
+ * may let men capture backwards or make the longest sequence mandatory. A side that has no legal move,
+ * including a side without pieces, loses.
+ */
+public final class Rules {
+    private static final Pattern MOVE = Pattern.compile("\\d+(?:[-x]\\d+|(?:x\\d+)+)"); // Move such as 9-13, 9x18 or 9x18x27
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private Rules() {
+    }
+
+    /**
+     * Writes the legal moves of a side into a caller-owned buffer as packed moves, captures first.
+     *
+     * @param board  The position
+     * @param side   Side to move
+     * @param buffer Buffer receiving the packed moves; needs {@link Bitboard#MAX_MOVES} free slots after the offset
+     * @param offset Index of the first slot to write
+     * @return Index one past the last move written
+     */
+    public static int generateMoves(Bitboard board, PieceType side, int[] buffer, int offset) {
+        return board.generateMoves(side, false, buffer, offset);
+    }
+
+    /**
+     * Checks if a side has at least one legal move.
+     *
+     * @param board The position
+     * @param side  Side to check
+     * @return True if the side can move, otherwise false
+     */
+    public static boolean hasMoves(Bitboard board, PieceType side) {
+        return board.hasMoves(side);
+    }
+
+    /**
+     * Checks if moving the piece on one square to another is allowed.
+     *
+     * @param board The position
+     * @param from  Square of the moving piece
+     * @param to    Destination square
+     * @return True if the move is valid, otherwise false
+     */
+    public static boolean isValidMove(Bitboard board, int from, int to) {
+        return board.isValidMove(from, to);
+    }
+
+    /**
+     * Builds the packed move that takes a side's piece from one square to another.
+     *
+     * @param board The position
+     * @param side  Side to move
+     * @param from  Square of the moving piece
+     * @param to    Destination square; for a capture sequence, the square it ends on
+     * @return The packed move, or {@link Move#NONE} if the move is not valid
+     */
+    public static int findMove(Bitboard board, PieceType side, int from, int to) {
+        if (from < 0 || to < 0 || board.getType(from) != side) {
+            return Move.NONE;
+        }
+        return board.findMove(from, to);
+    }
+
+    /**
+     * Checks if a packed move is legal for a side, including which pieces a capture sequence takes.
+     *
+     * @param board The position
+     * @param side  Side to move
+     * @param move  The packed move
+     * @return True if the move is legal, otherwise false
+     */
+    public static boolean isLegalMove(Bitboard board, PieceType side, int move) {
+        return move != Move.NONE && board.getType(Move.fromSquare(move)) == side && board.isLegalMove(move);
+    }
+
+    /**
+     * Formats a legal move in standard checkers notation with squares numbered from 1, as {@link Move#toString(int)}
+     * does. A capture sequence that another legal move of the piece shares both squares with is written with
+     * every square it lands on, such as {@code 9x18x27}, so that {@link #parseMove} finds it again.
+     *
+     * @param board The position before the move
+     * @param move  The packed move
+     * @return The move in text form
+     */
+    public static String toString(Bitboard board, int move) {
+        if (Move.captureCount(move) < 2 || !board.isAmbiguous(move)) {
+            return Move.toString(move);
+        }
+        int[] path = new int[Move.MAX_CAPTURES + 1];
+        int length = board.getPath(move, path);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(i == 0 ? "" : "x").append(path[i] + 1);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Finds a legal move of a side given in standard checkers notation with squares numbered from 1:
+     * {@code <from>-<to>} or {@code <from>x<to>}, or a capture sequence with every square it lands on such as
+     * {@code 9x18x27}. Given only the starting and final squares, a single capture is preferred over capture
+     * sequences between them, and of several sequences the first generated is taken.
+     *
+     * @param board The position
+     * @param side  Side to move
+     * @param text  The move
+     * @return The packed move, or {@link Move#NONE} if it is not legal
+     */
+    public static int parseMove(Bitboard board, PieceType side, String text) {
+        if (!MOVE.matcher(text).matches()) {
+            return Move.NONE;
+        }
+        String[] squares = text.split("[-x]");
+        int[] path = new int[squares.length];
+        try {
+            for (int i = 0; i < squares.length; i++) {
+                path[i] = Integer.parseInt(squares[i]) - 1;
+            }
+        } catch (NumberFormatException e) {
+            return Move.NONE;
+        }
+        if (path.length > Move.MAX_CAPTURES + 1 || path[0] < 0 || path[0] >= board.getVariant().getSquares()
+                || board.getType(path[0]) != side) {
+            return Move.NONE;
+        }
+        return board.findMove(path, path.length);
+    }
+
+    /**
+     * Decides whether the game is over.
+     *
+     * @param board      The position
+     * @param sideToMove Side whose turn it is
+     * @return The winner, or {@link GameResult#ONGOING}
+     */
+    public static GameResult getResult(Bitboard board, PieceType sideToMove) {
+        if (board.countPieces(sideToMove) != 0 && hasMoves(board, sideToMove)) {
+            return GameResult.ONGOING;
+        }
+        return sideToMove == PieceType.RED ? GameResult.BLACK_WINS : GameResult.RED_WINS;
+    }
+
+    /**
+     * Decides whether the game is over, declaring a draw when the tablebase shows neither side can force a win.
+     *
+     * @param board      The position
+     * @param sideToMove Side whose turn it is
+     * @param tablebase  Endgame tables to consult, or null
+     * @return The winner, {@link GameResult#DRAW} or {@link GameResult#ONGOING}
+     */
+    public static GameResult getResult(Bitboard board, PieceType sideToMove, Tablebase tablebase) {
+        GameResult result = getResult(board, sideToMove);
+        if (result == GameResult.ONGOING && tablebase != null && Tablebase.isDraw(tablebase.probe(board, sideToMove))) {
+            return GameResult.DRAW;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Plain Java implementation of {@link NetworkKernel}, used when the Vector API is not available. The loops
+ * are simple enough for the JIT to vectorise some of them on its own.
+ */
+public class ScalarNetworkKernel implements NetworkKernel {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(short[] accumulator, int offset, short[] weights, int row, int length) {
+        for (int i = 0; i < length; i++) {
+            accumulator[offset + i] += weights[row + i];
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void subtract(short[] accumulator, int offset, short[] weights, int row, int length) {
+        for (int i = 0; i < length; i++) {
+            accumulator[offset + i] -= weights[row + i];
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clip(short[] source, int sourceOffset, short[] target, int targetOffset, int length, int max) {
+        for (int i = 0; i < length; i++) {
+            target[targetOffset + i] = (short) Math.min(Math.max(source[sourceOffset + i], 0), max);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int dot(short[] a, int aOffset, short[] b, int bOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
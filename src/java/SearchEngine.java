@@ -0,0 +1,583 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Game-tree search for choosing computer moves.
+ * Runs an iterative-deepening negamax search with alpha-beta pruning and a capture-only quiescence search.
+ * Moves are ordered captures first, then killer moves, then by the history heuristic. The search stops at
+ * the configured depth, time or node budget, whichever comes first.
+ * Every completed iteration is reported as a {@link SearchIterationEvent} to Flight Recorder and to an optional
+ * progress listener, and every search adds its counts to {@link MetricsRegistry#DEFAULT}. The counts are kept in
+ * plain fields while searching, so the instrumentation costs nothing per node beyond an increment.
+ */
+public class SearchEngine implements Engine {
+    /**
+     * Value returned in place of a move when the side to move has none.
+     */
+    public static final int NO_MOVE = Move.NONE;
+    /**
+     * Score of a won position at the root; wins found deeper in the tree score slightly less.
+     */
+    public static final int WIN_SCORE = 100000;
+
+    private static final int MAX_PLY = 128; // Deepest ply the search can reach, including quiescence
+    private static final int INFINITY = WIN_SCORE + 1; // Bound outside every reachable score
+    private static final int HASH_MOVE_ORDER = 1 << 29; // Ordering score of the transposition table move
+    private static final int CAPTURE_ORDER = 1 << 28; // Ordering score of captures
+    private static final int KILLER_ORDER = 1 << 27; // Ordering score of the first killer move
+    private static final LongAdder SEARCHES = MetricsRegistry.DEFAULT.counter("search.searches"); // Searches run
+    private static final LongAdder ITERATIONS = MetricsRegistry.DEFAULT.counter("search.iterations"); // Iterations completed
+    private static final LongAdder NODES = MetricsRegistry.DEFAULT.counter("search.nodes"); // Positions visited
+    private static final LongAdder SEARCH_NANOS = MetricsRegistry.DEFAULT.counter("search.nanos"); // Time spent searching
+    private static final LongAdder TT_PROBES = MetricsRegistry.DEFAULT.counter("search.ttProbes"); // Transposition table lookups
+    private static final LongAdder TT_HITS = MetricsRegistry.DEFAULT.counter("search.ttHits"); // Lookups that found their position
+    private static final LongAdder GENERATOR_CALLS = MetricsRegistry.DEFAULT.counter("movegen.calls"); // Calls generating every move
+    private static final LongAdder CAPTURE_CALLS = MetricsRegistry.DEFAULT.counter("movegen.captureCalls"); // Calls generating captures only
+    private static final LongAdder MOVES_GENERATED = MetricsRegistry.DEFAULT.counter("movegen.moves"); // Moves generated
+    private static final AtomicLong LAST_DEPTH = MetricsRegistry.DEFAULT.gauge("search.lastDepth"); // Depth of the last search
+    private static final AtomicLong LAST_NPS = MetricsRegistry.DEFAULT.gauge("search.lastNodesPerSecond"); // Speed of the last search
+
+    private int maxDepth = 64; // Deepest iteration to start
+    private long timeLimitNanos = 500_000_000L; // Time budget per search, or 0 for none
+    private long nodeLimit = 0; // Node budget per search, or 0 for none
+    private TranspositionTable table = new TranspositionTable(32); // Cache of earlier search results
+    private Tablebase tablebase; // Exact endgame results, or null
+    private Evaluator evaluator = Evaluator.DEFAULT; // Static evaluation of the positions at the leaves
+    private NetworkAccumulator accumulator; // Network evaluation updated along the search, or null to use the evaluator
+
+    private final Bitboard position = new Bitboard(); // Position being searched, updated by make and unmake
+    private final int[] moves = new int[(MAX_PLY + 1) * Bitboard.MAX_MOVES]; // Move buffer sliced per ply
+    private final int[] orderScores = new int[moves.length]; // Ordering score of each buffered move
+    private final int[][] killers = new int[MAX_PLY + 1][2]; // Quiet moves that caused cut-offs, per ply
+    private final int[][] history = new int[2][Bitboard.MAX_SQUARES * Bitboard.MAX_SQUARES]; // Cut-off counts by side, from and to
+
+    private long nodes; // Positions visited by the current search
+    private long deadline; // System.nanoTime() at which the current search must stop
+    private boolean useNetwork; // Whether the current search evaluates with the network
+    private boolean aborted; // Set once the budget of the current search is exhausted
+    private AtomicBoolean stopSignal; // Signal another thread sets to end the current search, or null
+    private int startDepth = 1; // First iteration to search
+    private int rootBestMove; // Best root move of the iteration in progress
+    private long ttProbes; // Transposition table lookups of the current search
+    private long ttHits; // Lookups of the current search that found their position
+    private long generatorCalls; // Calls generating every move in the current search
+    private long captureCalls; // Calls generating captures only in the current search
+    private long movesGenerated; // Moves generated in the current search
+    private Consumer<SearchResult> progressListener; // Receives every completed iteration, or null
+
+    /**
+     * Constructs a new SearchEngine with a 500 ms time budget.
+     */
+    public SearchEngine() {
+    }
+
+    /**
+     * Sets the deepest iteration the search may start.
+     *
+     * @param maxDepth Depth limit in plies
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_PLY / 2));
+    }
+
+    /**
+     * Sets the time budget of a search.
+     *
+     * @param millis Time limit in milliseconds, or 0 for no limit
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimitNanos = millis * 1_000_000L;
+    }
+
+    /**
+     * Sets the node budget of a search.
+     *
+     * @param nodeLimit Maximum number of positions to visit, or 0 for no limit
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Sets the first iteration of the iterative deepening loop.
+     * Helper threads of a parallel search start at different depths so that they explore different parts of
+     * the tree.
+     *
+     * @param startDepth Depth of the first iteration
+     */
+    void setStartDepth(int startDepth) {
+        this.startDepth = Math.max(1, startDepth);
+    }
+
+    /**
+     * Sets the transposition table the engine reads and writes.
+     *
+     * @param table The table to use
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Gets the transposition table the engine reads and writes.
+     *
+     * @return The table in use
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * Sets the endgame tablebase probed during the search.
+     *
+     * @param tablebase The tablebase to use, or null for none
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Sets the evaluator scoring the positions where the search stops.
+     *
+     * @param evaluator The evaluator to use
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Gets the evaluator scoring the positions where the search stops.
+     *
+     * @return The evaluator in use
+     */
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Sets a listener told about every completed iteration, for showing the progress of a search. It is called
+     * on the searching thread and must return quickly.
+     *
+     * @param progressListener Receives the best move, score, depth, nodes and time so far, or null for none
+     */
+    public void setProgressListener(Consumer<SearchResult> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Sets a neural network to score the positions where the search stops instead of the evaluator. The network
+     * is only used for variants with the board size it was trained for.
+     *
+     * @param network The network to use, or null to use the evaluator
+     */
+    public void setNetwork(Network network) {
+        this.accumulator = network == null ? null : new NetworkAccumulator(network, MAX_PLY);
+    }
+
+    /**
+     * Gets the neural network scoring the positions where the search stops.
+     *
+     * @return The network in use, or null if the evaluator is used
+     */
+    public Network getNetwork() {
+        return accumulator == null ? null : accumulator.getNetwork();
+    }
+
+    /**
+     * Searches for the best move of a side.
+     * The given board is not modified.
+     *
+     * @param board Position to search
+     * @param side  Side to move
+     * @return The best move found together with search statistics
+     */
+    @Override
+    public SearchResult search(Bitboard board, PieceType side) {
+        table.newSearch();
+        return search(board, side, null);
+    }
+
+    /**
+     * Searches for the best move of a side until the budget runs out or another thread raises the stop signal.
+     * Unlike {@link #search(Bitboard, PieceType)} this does not start a new transposition table generation,
+     * so several engines can share one table during the same search.
+     *
+     * @param board      Position to search
+     * @param side       Side to move
+     * @param stopSignal Flag that ends the search once set, or null
+     * @return The best move found together with search statistics
+     */
+    SearchResult search(Bitboard board, PieceType side, AtomicBoolean stopSignal) {
+        long start = System.nanoTime();
+        deadline = timeLimitNanos > 0 ? start + timeLimitNanos : Long.MAX_VALUE;
+        nodes = 0;
+        ttProbes = 0;
+        ttHits = 0;
+        generatorCalls = 1;
+        captureCalls = 0;
+        aborted = stopSignal != null && stopSignal.get();
+        this.stopSignal = stopSignal;
+        position.copyFrom(board);
+        position.setEvaluator(evaluator);
+        useNetwork = accumulator != null && accumulator.getNetwork().supports(board.getVariant());
+        if (useNetwork) {
+            accumulator.reset(position);
+        }
+        for (int[] killer : killers) {
+            killer[0] = NO_MOVE;
+            killer[1] = NO_MOVE;
+        }
+        for (int[] table : history) {
+            Arrays.fill(table, 0);
+        }
+
+        int rootCount = board.generateMoves(side, false, moves, 0);
+        movesGenerated = rootCount;
+        int bestMove = rootCount > 0 ? moves[0] : NO_MOVE;
+        int bestScore = rootCount > 0 ? 0 : -WIN_SCORE;
+        int completedDepth = 0;
+        rootBestMove = bestMove;
+        // A forced or missing move needs no search
+        for (int depth = Math.min(startDepth, maxDepth); depth <= maxDepth && rootCount > 1; depth++) {
+            SearchIterationEvent event = new SearchIterationEvent();
+            event.begin();
+            int score = negamax(depth, 0, -INFINITY, INFINITY, side);
+            if (aborted) {
+                break;
+            }
+            bestMove = rootBestMove;
+            bestScore = score;
+            completedDepth = depth;
+            reportIteration(event, new SearchResult(bestMove, score, depth, nodes, System.nanoTime() - start));
+            if (Math.abs(score) >= WIN_SCORE - MAX_PLY) {
+                break; // Forced win or loss found; deeper iterations cannot change it
+            }
+        }
+        SearchResult result = new SearchResult(bestMove, bestScore, completedDepth, nodes, System.nanoTime() - start);
+        recordSearch(result);
+        return result;
+    }
+
+    /**
+     * Reports a completed iteration to Flight Recorder and the progress listener.
+     *
+     * @param event  Event begun when the iteration started
+     * @param result Best move, score and counts of the search so far
+     */
+    private void reportIteration(SearchIterationEvent event, SearchResult result) {
+        ITERATIONS.increment();
+        if (event.shouldCommit()) {
+            event.depth = result.getDepth();
+            event.score = result.getScore();
+            event.bestMove = Move.toString(result.getBestMove());
+            event.nodes = result.getNodes();
+            event.nodesPerSecond = result.getNodesPerSecond();
+            event.ttHitRate = ttProbes == 0 ? 0 : (float) ttHits / ttProbes;
+            event.elapsed = result.getElapsedNanos();
+            event.commit();
+        }
+        if (progressListener != null) {
+            progressListener.accept(result);
+        }
+    }
+
+    /**
+     * Adds the counts of a finished search to the metrics and reports its move generation to Flight Recorder.
+     *
+     * @param result Result of the search
+     */
+    private void recordSearch(SearchResult result) {
+        SEARCHES.increment();
+        NODES.add(nodes);
+        SEARCH_NANOS.add(result.getElapsedNanos());
+        TT_PROBES.add(ttProbes);
+        TT_HITS.add(ttHits);
+        GENERATOR_CALLS.add(generatorCalls);
+        CAPTURE_CALLS.add(captureCalls);
+        MOVES_GENERATED.add(movesGenerated);
+        LAST_DEPTH.set(result.getDepth());
+        LAST_NPS.set(result.getNodesPerSecond());
+        MoveGenerationEvent event = new MoveGenerationEvent();
+        if (event.shouldCommit()) {
+            event.calls = generatorCalls;
+            event.captureCalls = captureCalls;
+            event.moves = movesGenerated;
+            event.commit();
+        }
+    }
+
+    /**
+     * Searches a position to a fixed depth.
+     *
+     * @param depth Remaining depth in plies
+     * @param ply   Distance from the root
+     * @param alpha Lower bound of the search window
+     * @param beta  Upper bound of the search window
+     * @param side  Side to move
+     * @return Score of the position from the point of view of the side to move
+     */
+    private int negamax(int depth, int ply, int alpha, int beta, PieceType side) {
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiescence(ply, alpha, beta, side);
+        }
+        countNode();
+        if (aborted) {
+            return 0;
+        }
+        long hash = position.getHash() ^ Zobrist.side(side);
+        long entry = table.probe(hash);
+        int hashMove = NO_MOVE;
+        ttProbes++;
+        if (entry != 0) {
+            ttHits++;
+            hashMove = TranspositionTable.getMove(entry);
+            if (ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+                int score = fromTableScore(TranspositionTable.getScore(entry), ply);
+                int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        if (ply > 0 && tablebase != null && position.countPieces(PieceType.RED)
+                + position.countPieces(PieceType.BLACK) <= tablebase.getMaxPieces()) {
+            int value = tablebase.probe(position, side);
+            if (value != Tablebase.UNKNOWN) {
+                // Scored like a found win or loss, so shorter wins and longer losses are preferred
+                int distance = Tablebase.getDistance(value);
+                return Tablebase.isWin(value) ? WIN_SCORE - ply - distance
+                        : Tablebase.isLoss(value) ? -WIN_SCORE + ply + distance : 0;
+            }
+        }
+
+        int start = ply * Bitboard.MAX_MOVES;
+        int end = position.generateMoves(side, false, moves, start);
+        generatorCalls++;
+        movesGenerated += end - start;
+        if (end == start) {
+            return -WIN_SCORE + ply; // No legal move: the side to move has lost
+        }
+        scoreMoves(ply, start, end, side, hashMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = NO_MOVE;
+        for (int i = start; i < end; i++) {
+            int move = pickNext(i, end);
+            int undo = position.makeMove(move);
+            if (useNetwork) {
+                accumulator.push(position);
+            }
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha, Bitboard.opponent(side));
+            position.unmakeMove(move, undo, hash ^ Zobrist.side(side));
+            if (useNetwork) {
+                accumulator.pop();
+            }
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (ply == 0) {
+                    rootBestMove = move;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        if (!Move.isCapture(move)) {
+                            storeKiller(ply, move);
+                            history[side.ordinal()][historyIndex(move)] += depth * depth;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(hash, bestMove, toTableScore(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Converts a score to the form stored in the transposition table, where wins are counted from the stored
+     * position rather than from the root.
+     *
+     * @param score Score relative to the root
+     * @param ply   Distance of the position from the root
+     * @return Score relative to the position
+     */
+    private static int toTableScore(int score, int ply) {
+        if (score >= WIN_SCORE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -WIN_SCORE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Converts a score read from the transposition table back to one relative to the root.
+     *
+     * @param score Score relative to the stored position
+     * @param ply   Distance of the position from the root
+     * @return Score relative to the root
+     */
+    private static int fromTableScore(int score, int ply) {
+        if (score >= WIN_SCORE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -WIN_SCORE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Searches only captures until the position is quiet, so that the static evaluation is never taken in the
+     * middle of an exchange.
+     *
+     * @param ply   Distance from the root
+     * @param alpha Lower bound of the search window
+     * @param beta  Upper bound of the search window
+     * @param side  Side to move
+     * @return Score of the position from the point of view of the side to move
+     */
+    private int quiescence(int ply, int alpha, int beta, PieceType side) {
+        countNode();
+        if (aborted) {
+            return 0;
+        }
+        int standPat = useNetwork ? accumulator.evaluate(side) : evaluator.evaluate(position, side);
+        if (standPat >= beta || ply >= MAX_PLY) {
+            return standPat;
+        }
+        alpha = Math.max(alpha, standPat);
+
+        int start = ply * Bitboard.MAX_MOVES;
+        int end = position.generateMoves(side, true, moves, start);
+        captureCalls++;
+        movesGenerated += end - start;
+        for (int i = start; i < end; i++) {
+            long hash = position.getHash();
+            int undo = position.makeMove(moves[i]);
+            if (useNetwork) {
+                accumulator.push(position);
+            }
+            int score = -quiescence(ply + 1, -beta, -alpha, Bitboard.opponent(side));
+            position.unmakeMove(moves[i], undo, hash);
+            if (useNetwork) {
+                accumulator.pop();
+            }
+            if (aborted) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Assigns an ordering score to each move of a ply: the previous best root move first, then the
+     * transposition table move, captures, killer moves and finally quiet moves by history.
+     *
+     * @param ply      Distance from the root
+     * @param start    Index of the first move of the ply
+     * @param end      Index one past the last move of the ply
+     * @param side     Side to move
+     * @param hashMove Best move stored in the transposition table, or {@link #NO_MOVE}
+     */
+    private void scoreMoves(int ply, int start, int end, PieceType side, int hashMove) {
+        int[] sideHistory = history[side.ordinal()];
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            int score;
+            if (ply == 0 && move == rootBestMove) {
+                score = Integer.MAX_VALUE;
+            } else if (move == hashMove) {
+                score = HASH_MOVE_ORDER;
+            } else if (Move.isCapture(move)) {
+                score = CAPTURE_ORDER;
+            } else if (move == killers[ply][0]) {
+                score = KILLER_ORDER;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_ORDER - 1;
+            } else {
+                score = Math.min(sideHistory[historyIndex(move)], KILLER_ORDER - 2);
+            }
+            orderScores[i] = score;
+        }
+    }
+
+    /**
+     * Moves the highest-scored remaining move into the given slot.
+     *
+     * @param index Slot to fill
+     * @param end   Index one past the last move of the ply
+     * @return The move now stored in the slot
+     */
+    private int pickNext(int index, int end) {
+        int best = index;
+        for (int i = index + 1; i < end; i++) {
+            if (orderScores[i] > orderScores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = orderScores[best];
+        orderScores[best] = orderScores[index];
+        orderScores[index] = score;
+        return move;
+    }
+
+    /**
+     * Records a quiet move that caused a cut-off.
+     *
+     * @param ply  Distance from the root
+     * @param move The packed move
+     */
+    private void storeKiller(int ply, int move) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+
+    /**
+     * Gets the history table slot of a move.
+     *
+     * @param move The packed move
+     * @return Index combining the starting and destination squares
+     */
+    private static int historyIndex(int move) {
+        return Move.fromSquare(move) * Bitboard.MAX_SQUARES + Move.toSquare(move);
+    }
+
+    /**
+     * Counts a visited position and checks the search budget and stop signal every 1024 nodes.
+     */
+    private void countNode() {
+        nodes++;
+        if ((nodes & 1023) == 0) {
+            if (System.nanoTime() >= deadline || (nodeLimit > 0 && nodes >= nodeLimit)
+                    || (stopSignal != null && stopSignal.get())) {
+                aborted = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one completed iteration of the alpha-beta search. Its duration is the time the
+ * iteration took. When no recording enables it, creating and checking the event costs next to nothing.
+ */
+@Name("checkers.SearchIteration")
+@Label("Search Iteration")
+@Category({"Checkers", "Search"})
+@Description("One completed iteration of the iterative deepening search")
+@StackTrace(false)
+public class SearchIterationEvent extends Event {
+    @Label("Depth")
+    int depth; // Depth of the iteration in plies
+
+    @Label("Score")
+    int score; // Score of the best move from the point of view of the side to move
+
+    @Label("Best Move")
+    String bestMove; // Best move of the iteration in checkers notation
+
+    @Label("Nodes")
+    long nodes; // Positions visited since the search started
+
+    @Label("Nodes per Second")
+    long nodesPerSecond; // Search speed since the search started
+
+    @Label("TT Hit Rate")
+    @Percentage
+    float ttHitRate; // Share of transposition table probes that found their position, since the search started
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed; // Time since the search started
+}
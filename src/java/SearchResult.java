@@ -0,0 +1,92 @@
+/**
+ * Outcome of a search: the chosen move together with the statistics gathered while finding it.
+ */
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    /**
+     * Constructs a new SearchResult.
+     *
+     * @param bestMove     The packed best move, or {@link SearchEngine#NO_MOVE} if the side to move has none
+     * @param score        Score of the best move from the point of view of the side to move
+     * @param depth        Deepest fully completed iteration
+     * @param nodes        Number of positions visited
+     * @param elapsedNanos Wall-clock time spent searching
+     */
+    public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the best move found.
+     *
+     * @return The packed best move, or {@link SearchEngine#NO_MOVE} if the side to move has none
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Gets the score of the best move.
+     *
+     * @return Score from the point of view of the side to move
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the deepest fully completed iteration.
+     *
+     * @return Search depth in plies
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the number of positions visited.
+     *
+     * @return Node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the time spent searching.
+     *
+     * @return Elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the search throughput.
+     *
+     * @return Nodes visited per second
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * Formats the result as a single line for logging.
+     *
+     * @return Human-readable summary of the search
+     */
+    @Override
+    public String toString() {
+        return String.format("depth %d, score %d, nodes %d, %d ms, %d nodes/s",
+                depth, score, nodes, elapsedNanos / 1_000_000, getNodesPerSecond());
+    }
+}
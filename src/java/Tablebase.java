@@ -0,0 +1,354 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Endgame tablebase: the exact result of every position with few pieces left.
+ * There is one file per material signature (number of red men, red kings, black men and black kings), named
+ * like {@code R10B01.ctb}. Each file holds a 16-byte header followed by one byte per position: 0 for a draw,
+ * {@code d > 0} for a win in {@code d} plies and {@code -(d + 1)} for a loss in {@code d} plies, from the
+ * point of view of the side to move. Files are memory-mapped the first time a position of their signature is
+ * probed, so opening a tablebase reads nothing and the operating system shares the pages between processes.
+ * Tables are built by {@link TablebaseBuilder}.
+ */
+public class Tablebase {
+    /**
+     * Value returned by {@link #probe(Bitboard, PieceType)} for positions not covered by the tables.
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    /**
+     * Version of the rules and file layout; files written with another version are ignored.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    static final int HEADER_SIZE = 16; // Bytes before the first position value
+    static final int MAGIC = 0x434B5442; // "CKTB"
+    static final int MEN_SQUARES = Bitboard.SQUARES - 4; // Squares a man can stand on without having promoted
+    static final int MAX_COUNT = 12; // Largest number of pieces of one kind
+    static final int SIGNATURES = (MAX_COUNT + 1) * (MAX_COUNT + 1) * (MAX_COUNT + 1) * (MAX_COUNT + 1); // Number of signature codes
+
+    private static final long[][] BINOMIAL = new long[Bitboard.SQUARES + 1][MAX_COUNT + 1]; // Binomial coefficients
+    private static final ByteBuffer MISSING = ByteBuffer.allocate(0); // Marks signatures without a usable file
+
+    static {
+        for (int n = 0; n <= Bitboard.SQUARES; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, MAX_COUNT); k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k <= n - 1 ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private final Path directory; // Directory holding the table files
+    private final ByteBuffer[] tables = new ByteBuffer[SIGNATURES]; // Mapped data of each signature, once probed
+    private volatile int maxPieces; // Largest total piece count covered by a file in the directory
+
+    /**
+     * Constructs a new Tablebase over a directory of table files.
+     * Only the file names are read; the tables themselves are mapped on first use.
+     *
+     * @param directory Directory holding the table files; it does not need to exist
+     */
+    public Tablebase(Path directory) {
+        this.directory = directory;
+        if (Files.isDirectory(directory)) {
+            try (var files = Files.list(directory)) {
+                files.map(path -> path.getFileName().toString())
+                        .filter(name -> name.matches("R\\d\\dB\\d\\d\\.ctb"))
+                        .forEach(name -> maxPieces = Math.max(maxPieces, name.charAt(1) + name.charAt(2)
+                                + name.charAt(4) + name.charAt(5) - 4 * '0'));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Gets the largest number of pieces for which tables are present.
+     *
+     * @return Total piece count, or 0 if there are no tables
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Looks up the exact value of a position.
+     * Tables are built for the standard game only; positions of other variants are never covered.
+     *
+     * @param board The position
+     * @param side  Side to move
+     * @return The stored value, see {@link #isWin(int)}, {@link #isLoss(int)} and {@link #getDistance(int)},
+     * or {@link #UNKNOWN} if no table covers the position
+     */
+    public int probe(Bitboard board, PieceType side) {
+        long red = board.getPieces(PieceType.RED);
+        long black = board.getPieces(PieceType.BLACK);
+        long kings = board.getKings();
+        int pieces = Long.bitCount(red | black);
+        if (pieces > maxPieces || red == 0 || black == 0 || !board.getVariant().equals(Variant.STANDARD)) {
+            return UNKNOWN;
+        }
+        int signature = signature(Long.bitCount(red & ~kings), Long.bitCount(red & kings),
+                Long.bitCount(black & ~kings), Long.bitCount(black & kings));
+        ByteBuffer table = tables[signature];
+        if (table == null) {
+            table = map(signature);
+        }
+        if (table == MISSING) {
+            return UNKNOWN;
+        }
+        return table.get(HEADER_SIZE + (int) index(red & ~kings, red & kings, black & ~kings, black & kings, side));
+    }
+
+    /**
+     * Checks if a value is a win for the side to move.
+     *
+     * @param value Value returned by {@link #probe(Bitboard, PieceType)}
+     * @return True for a win, otherwise false
+     */
+    public static boolean isWin(int value) {
+        return value != UNKNOWN && value > 0;
+    }
+
+    /**
+     * Checks if a value is a loss for the side to move.
+     *
+     * @param value Value returned by {@link #probe(Bitboard, PieceType)}
+     * @return True for a loss, otherwise false
+     */
+    public static boolean isLoss(int value) {
+        return value != UNKNOWN && value < 0;
+    }
+
+    /**
+     * Checks if a value is a draw.
+     *
+     * @param value Value returned by {@link #probe(Bitboard, PieceType)}
+     * @return True for a draw, otherwise false
+     */
+    public static boolean isDraw(int value) {
+        return value == 0;
+    }
+
+    /**
+     * Gets the number of plies until a won or lost game ends with best play.
+     *
+     * @param value Value returned by {@link #probe(Bitboard, PieceType)}
+     * @return Distance in plies, or 0 for draws
+     */
+    public static int getDistance(int value) {
+        return value > 0 ? value : value < 0 ? -value - 1 : 0;
+    }
+
+    /**
+     * Checks if a valid table file exists for a signature, mapping it if so.
+     *
+     * @param signature Signature code, see {@link #signature(int, int, int, int)}
+     * @return True if positions of the signature can be probed, otherwise false
+     */
+    boolean contains(int signature) {
+        ByteBuffer table = tables[signature];
+        return (table == null ? map(signature) : table) != MISSING;
+    }
+
+    /**
+     * Forgets what is known about a signature's file, so the next probe maps it again.
+     * Called after a table has been written.
+     *
+     * @param signature Signature code
+     */
+    synchronized void refresh(int signature) {
+        int[] counts = counts(signature);
+        tables[signature] = null;
+        maxPieces = Math.max(maxPieces, counts[0] + counts[1] + counts[2] + counts[3]);
+    }
+
+    /**
+     * Maps the file of a signature into memory and checks its header.
+     *
+     * @param signature Signature code
+     * @return The mapped table, or {@link #MISSING} if there is no valid file
+     */
+    private synchronized ByteBuffer map(int signature) {
+        if (tables[signature] != null) {
+            return tables[signature];
+        }
+        ByteBuffer table = MISSING;
+        Path file = directory.resolve(fileName(signature));
+        if (Files.isReadable(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (isValid(mapped, signature)) {
+                    table = mapped;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        tables[signature] = table;
+        return table;
+    }
+
+    /**
+     * Checks the header and size of a table.
+     *
+     * @param table     Table data including the header
+     * @param signature Signature code the table should belong to
+     * @return True if the table can be used, otherwise false
+     */
+    private static boolean isValid(ByteBuffer table, int signature) {
+        int[] counts = counts(signature);
+        return table.capacity() == HEADER_SIZE + size(counts[0], counts[1], counts[2], counts[3])
+                && table.order(ByteOrder.BIG_ENDIAN).getInt(0) == MAGIC
+                && table.get(4) == FORMAT_VERSION
+                && table.get(5) == counts[0] && table.get(6) == counts[1]
+                && table.get(7) == counts[2] && table.get(8) == counts[3];
+    }
+
+    /**
+     * Writes the header of a table.
+     *
+     * @param table     Buffer of at least {@link #HEADER_SIZE} bytes
+     * @param signature Signature code
+     */
+    static void writeHeader(ByteBuffer table, int signature) {
+        int[] counts = counts(signature);
+        table.order(ByteOrder.BIG_ENDIAN).putInt(0, MAGIC);
+        table.put(4, (byte) FORMAT_VERSION);
+        for (int i = 0; i < 4; i++) {
+            table.put(5 + i, (byte) counts[i]);
+        }
+    }
+
+    /**
+     * Gets the file name of a signature.
+     *
+     * @param signature Signature code
+     * @return File name such as {@code R21B02.ctb}
+     */
+    static String fileName(int signature) {
+        int[] counts = counts(signature);
+        return "R" + counts[0] + counts[1] + "B" + counts[2] + counts[3] + ".ctb";
+    }
+
+    /**
+     * Combines piece counts into a signature code.
+     *
+     * @param redMen     Number of red men
+     * @param redKings   Number of red kings
+     * @param blackMen   Number of black men
+     * @param blackKings Number of black kings
+     * @return The signature code
+     */
+    static int signature(int redMen, int redKings, int blackMen, int blackKings) {
+        return ((redMen * (MAX_COUNT + 1) + redKings) * (MAX_COUNT + 1) + blackMen) * (MAX_COUNT + 1) + blackKings;
+    }
+
+    /**
+     * Splits a signature code into piece counts.
+     *
+     * @param signature Signature code
+     * @return Red men, red kings, black men and black kings
+     */
+    static int[] counts(int signature) {
+        int base = MAX_COUNT + 1;
+        return new int[]{signature / (base * base * base), signature / (base * base) % base,
+                signature / base % base, signature % base};
+    }
+
+    /**
+     * Gets the number of positions of a signature, counting both sides to move.
+     *
+     * @param redMen     Number of red men
+     * @param redKings   Number of red kings
+     * @param blackMen   Number of black men
+     * @param blackKings Number of black kings
+     * @return Number of table entries
+     */
+    static long size(int redMen, int redKings, int blackMen, int blackKings) {
+        return BINOMIAL[MEN_SQUARES][redMen] * BINOMIAL[Bitboard.SQUARES][redKings]
+                * BINOMIAL[MEN_SQUARES][blackMen] * BINOMIAL[Bitboard.SQUARES][blackKings] * 2;
+    }
+
+    /**
+     * Computes the table index of a position. Each group of identical pieces is ranked as a combination of
+     * the squares it may occupy: red men never stand on the last row and black men never on row 0.
+     *
+     * @param redMen     Mask of red men
+     * @param redKings   Mask of red kings
+     * @param blackMen   Mask of black men
+     * @param blackKings Mask of black kings
+     * @param side       Side to move
+     * @return Index of the position within its signature's table
+     */
+    static long index(long redMen, long redKings, long blackMen, long blackKings, PieceType side) {
+        long index = rank(redMen);
+        index = index * BINOMIAL[Bitboard.SQUARES][Long.bitCount(redKings)] + rank(redKings);
+        index = index * BINOMIAL[MEN_SQUARES][Long.bitCount(blackMen)] + rank(blackMen >>> 4);
+        index = index * BINOMIAL[Bitboard.SQUARES][Long.bitCount(blackKings)] + rank(blackKings);
+        return index * 2 + (side == PieceType.BLACK ? 1 : 0);
+    }
+
+    /**
+     * Decodes a table index back into the masks of each piece group.
+     *
+     * @param signature Signature code of the table
+     * @param index     Index within the table
+     * @param masks     Receives red men, red kings, black men and black kings
+     * @return The side to move
+     */
+    static PieceType unindex(int signature, long index, long[] masks) {
+        int[] counts = counts(signature);
+        PieceType side = (index & 1) == 0 ? PieceType.RED : PieceType.BLACK;
+        index >>>= 1;
+        long radix = BINOMIAL[Bitboard.SQUARES][counts[3]];
+        masks[3] = unrank(index % radix, counts[3]);
+        index /= radix;
+        radix = BINOMIAL[MEN_SQUARES][counts[2]];
+        masks[2] = unrank(index % radix, counts[2]) << 4;
+        index /= radix;
+        radix = BINOMIAL[Bitboard.SQUARES][counts[1]];
+        masks[1] = unrank(index % radix, counts[1]);
+        masks[0] = unrank(index / radix, counts[0]);
+        return side;
+    }
+
+    /**
+     * Ranks a set of squares in the combinatorial number system.
+     *
+     * @param squares Mask of squares
+     * @return Rank of the set among all sets of the same size
+     */
+    private static long rank(long squares) {
+        long rank = 0;
+        for (int i = 1; squares != 0; i++, squares &= squares - 1) {
+            rank += BINOMIAL[Long.numberOfTrailingZeros(squares)][i];
+        }
+        return rank;
+    }
+
+    /**
+     * Decodes a rank from {@link #rank(long)} back into a set of squares.
+     *
+     * @param rank  Rank of the set
+     * @param count Number of squares in the set
+     * @return Mask of squares
+     */
+    private static long unrank(long rank, int count) {
+        long squares = 0;
+        int square = Bitboard.SQUARES;
+        for (int i = count; i > 0; i--) {
+            do {
+                square--;
+            } while (BINOMIAL[square][i] > rank);
+            rank -= BINOMIAL[square][i];
+            squares |= 1L << square;
+        }
+        return squares;
+    }
+}
@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Generates the {@link Tablebase} files by retrograde analysis.
+ * Tables are built from the fewest pieces up, and within a piece count from the fewest men up, so every
+ * capture or promotion leads into a table that is already finished. Each table is then solved in passes:
+ * pass 0 marks the positions where the side to move is stuck, and pass {@code k} marks the positions won or
+ * lost in exactly {@code k} plies, reading only results of earlier passes. Every pass is split over a pool of
+ * threads; since no position depends on another one resolved in the same pass, the result does not depend
+ * on the number of threads. Positions still unresolved when the passes stop are draws.
+ */
+public class TablebaseBuilder {
+    private static final byte UNRESOLVED = 0; // Value of positions not resolved yet, and of draws once finished
+    private static final byte INVALID = Byte.MIN_VALUE; // Value of indices where two pieces share a square
+    private static final int MAX_EXACT = 126; // Longest loss a byte can store; longer results are saturated
+    private static final int CHUNK = 1 << 16; // Positions per task within a pass
+
+    private final Path directory; // Directory the tables are written to
+    private final Tablebase tablebase; // Finished tables, read for captures and promotions
+    private final ExecutorService pool; // Threads sharing each pass
+
+    /**
+     * Constructs a new TablebaseBuilder.
+     *
+     * @param directory Directory the tables are written to; tables already there are reused
+     * @param threads   Number of threads to generate with
+     */
+    public TablebaseBuilder(Path directory, int threads) {
+        this.directory = directory;
+        this.tablebase = new Tablebase(directory);
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads));
+    }
+
+    /**
+     * Builds every table with up to the given number of pieces that is not already present.
+     *
+     * @param maxPieces Largest total number of pieces
+     * @throws IOException if a table cannot be written
+     */
+    public void build(int maxPieces) throws IOException {
+        Files.createDirectories(directory);
+        for (int pieces = 2; pieces <= maxPieces; pieces++) {
+            for (int men = 0; men <= pieces; men++) {
+                for (int redMen = 0; redMen <= men; redMen++) {
+                    for (int redKings = 0; redKings <= pieces - men; redKings++) {
+                        int blackMen = men - redMen;
+                        int blackKings = pieces - men - redKings;
+                        if (redMen + redKings > 0 && blackMen + blackKings > 0) {
+                            buildTable(Tablebase.signature(redMen, redKings, blackMen, blackKings));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the generator threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Builds and writes the table of one signature, unless a valid one already exists.
+     *
+     * @param signature Signature code
+     * @throws IOException if the table cannot be written
+     */
+    private void buildTable(int signature) throws IOException {
+        String name = Tablebase.fileName(signature);
+        if (tablebase.contains(signature)) {
+            System.out.printf("%-12s present%n", name);
+            return;
+        }
+        int[] counts = Tablebase.counts(signature);
+        long size = Tablebase.size(counts[0], counts[1], counts[2], counts[3]);
+        if (size > Integer.MAX_VALUE - Tablebase.HEADER_SIZE) {
+            throw new IllegalArgumentException("Table too large: " + name);
+        }
+        long start = System.nanoTime();
+        byte[] values = new byte[Tablebase.HEADER_SIZE + (int) size];
+        LongAccumulator externalDistance = new LongAccumulator(Math::max, 0);
+
+        runPass(signature, values, 0, false, externalDistance);
+        int pass = 1;
+        while (true) {
+            long resolved = runPass(signature, values, pass, false, externalDistance);
+            if (resolved == 0 && pass > externalDistance.get() + 1) {
+                break; // Nothing left to learn from this table or the ones it leads into
+            }
+            if (pass == MAX_EXACT) {
+                // Too long to count exactly: keep resolving with saturated distances until nothing changes
+                while (runPass(signature, values, MAX_EXACT + 1, true, externalDistance) > 0) {
+                    pass++;
+                }
+                break;
+            }
+            pass++;
+        }
+
+        Tablebase.writeHeader(ByteBuffer.wrap(values), signature);
+        Files.write(directory.resolve(name), values);
+        tablebase.refresh(signature);
+
+        long wins = 0;
+        long losses = 0;
+        long draws = 0;
+        int longest = 0;
+        for (int i = Tablebase.HEADER_SIZE; i < values.length; i++) {
+            byte value = values[i];
+            if (value == INVALID) {
+                continue;
+            }
+            if (Tablebase.isWin(value)) {
+                wins++;
+            } else if (Tablebase.isLoss(value)) {
+                losses++;
+            } else {
+                draws++;
+            }
+            longest = Math.max(longest, Tablebase.getDistance(value));
+        }
+        System.out.printf("%-12s %12d positions %12d wins %12d losses %12d draws, longest %3d plies, %d passes, %.1f s%n",
+                name, wins + losses + draws, wins, losses, draws, longest, pass, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Runs one pass over a table on the thread pool.
+     *
+     * @param signature        Signature code of the table
+     * @param values           Table data including the header
+     * @param pass             Number of the pass, which is the distance of the results it stores
+     * @param saturated        True to accept results of any distance, storing them with the largest distance
+     * @param externalDistance Receives the longest distance read from other tables
+     * @return Number of positions resolved by the pass
+     */
+    private long runPass(int signature, byte[] values, int pass, boolean saturated, LongAccumulator externalDistance) {
+        int size = values.length - Tablebase.HEADER_SIZE;
+        List<Future<Long>> tasks = new ArrayList<>();
+        for (int from = 0; from < size; from += CHUNK) {
+            int first = from;
+            int last = Math.min(size, from + CHUNK);
+            tasks.add(pool.submit(() -> resolveRange(signature, values, first, last, pass, saturated, externalDistance)));
+        }
+        long resolved = 0;
+        try {
+            for (Future<Long> task : tasks) {
+                resolved += task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return resolved;
+    }
+
+    /**
+     * Runs one pass over a range of table indices.
+     *
+     * @param signature        Signature code of the table
+     * @param values           Table data including the header
+     * @param from             First index of the range
+     * @param to               Index one past the end of the range
+     * @param pass             Number of the pass
+     * @param saturated        True to accept results of any distance
+     * @param externalDistance Receives the longest distance read from other tables
+     * @return Number of positions resolved
+     */
+    private long resolveRange(int signature, byte[] values, int from, int to, int pass, boolean saturated,
+                              LongAccumulator externalDistance) {
+        Bitboard board = new Bitboard();
+        long[] masks = new long[4];
+        int[] moves = new int[Bitboard.MAX_MOVES];
+        long resolved = 0;
+        for (int index = from; index < to; index++) {
+            if (values[Tablebase.HEADER_SIZE + index] != UNRESOLVED) {
+                continue;
+            }
+            PieceType side = Tablebase.unindex(signature, index, masks);
+            if (pass == 0 && ((masks[0] & masks[1]) | ((masks[0] | masks[1]) & (masks[2] | masks[3]))
+                    | (masks[2] & masks[3])) != 0) {
+                values[Tablebase.HEADER_SIZE + index] = INVALID;
+                continue;
+            }
+            board.setPosition(masks[0] | masks[1], masks[2] | masks[3], masks[1] | masks[3]);
+            byte value = resolve(signature, values, board, side, pass, saturated, moves, externalDistance);
+            if (value != UNRESOLVED) {
+                values[Tablebase.HEADER_SIZE + index] = value;
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Decides whether a position is resolved in the given pass.
+     * It is won in {@code pass} plies if a move leads to a position the opponent loses in {@code pass - 1}, and
+     * lost in {@code pass} plies if every move leads to a position the opponent wins, in at most
+     * {@code pass - 1} plies.
+     *
+     * @param signature        Signature code of the table being built
+     * @param values           Table data including the header
+     * @param board            The position; restored before returning
+     * @param side             Side to move
+     * @param pass             Number of the pass
+     * @param saturated        True to accept results of any distance
+     * @param moves            Move buffer
+     * @param externalDistance Receives the longest distance read from other tables
+     * @return The position's value, or {@link #UNRESOLVED}
+     */
+    private byte resolve(int signature, byte[] values, Bitboard board, PieceType side, int pass, boolean saturated,
+                         int[] moves, LongAccumulator externalDistance) {
+        int count = Rules.generateMoves(board, side, moves, 0);
+        if (pass == 0 || count == 0) {
+            return count == 0 ? -1 : UNRESOLVED; // No legal move: lost right away
+        }
+        PieceType opponent = Bitboard.opponent(side);
+        long hash = board.getHash();
+        int shortestLoss = Integer.MAX_VALUE;
+        int longestWin = 0;
+        boolean allWins = true;
+        for (int i = 0; i < count; i++) {
+            int undo = board.makeMove(moves[i]);
+            int value = childValue(signature, values, board, opponent, externalDistance);
+            board.unmakeMove(moves[i], undo, hash);
+            if (Tablebase.isLoss(value)) {
+                shortestLoss = Math.min(shortestLoss, Tablebase.getDistance(value));
+                allWins = false;
+            } else if (Tablebase.isWin(value)) {
+                longestWin = Math.max(longestWin, Tablebase.getDistance(value));
+            } else {
+                allWins = false;
+            }
+        }
+        int limit = saturated ? Integer.MAX_VALUE : pass - 1;
+        if (shortestLoss <= limit) {
+            return (byte) Math.min(pass, MAX_EXACT + 1);
+        }
+        if (allWins && longestWin <= limit) {
+            return (byte) -(Math.min(pass, MAX_EXACT) + 1);
+        }
+        return UNRESOLVED;
+    }
+
+    /**
+     * Looks up the value of the position after a move, in the table being built or a finished one.
+     *
+     * @param signature        Signature code of the table being built
+     * @param values           Table data including the header
+     * @param board            Position after the move
+     * @param side             Side to move after the move
+     * @param externalDistance Receives the distance if the value comes from another table
+     * @return The position's value
+     */
+    private int childValue(int signature, byte[] values, Bitboard board, PieceType side, LongAccumulator externalDistance) {
+        long own = board.getPieces(side);
+        if (own == 0) {
+            return -1; // Every piece captured: lost
+        }
+        long other = board.getPieces(Bitboard.opponent(side));
+        long kings = board.getKings();
+        long red = side == PieceType.RED ? own : other;
+        long black = side == PieceType.RED ? other : own;
+        int childSignature = Tablebase.signature(Long.bitCount(red & ~kings), Long.bitCount(red & kings),
+                Long.bitCount(black & ~kings), Long.bitCount(black & kings));
+        if (childSignature == signature) {
+            return values[Tablebase.HEADER_SIZE + (int) Tablebase.index(red & ~kings, red & kings,
+                    black & ~kings, black & kings, side)];
+        }
+        int value = tablebase.probe(board, side);
+        if (value == Tablebase.UNKNOWN) {
+            throw new IllegalStateException("Missing table " + Tablebase.fileName(childSignature));
+        }
+        externalDistance.accumulate(Tablebase.getDistance(value));
+        return value;
+    }
+
+    /**
+     * Builds tables from the command line, or probes a position.
+     * Usage: {@code java TablebaseBuilder <directory> [max pieces] [threads]} (defaults 4 and the number of
+     * processors), or {@code java TablebaseBuilder --probe <directory> <fen>}.
+     *
+     * @param args Command-line arguments
+     * @throws IOException if a table cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java TablebaseBuilder <directory> [max pieces] [threads]");
+            System.out.println("       java TablebaseBuilder --probe <directory> <fen>");
+            return;
+        }
+        if (args[0].equals("--probe")) {
+            GameState game = GameState.fromFen(args[2]);
+            int value = new Tablebase(Paths.get(args[1])).probe(game.getBoard(), game.getSideToMove());
+            String side = game.getSideToMove() == PieceType.RED ? "Red" : "Black";
+            if (value == Tablebase.UNKNOWN) {
+                System.out.println("Not in the tablebase");
+            } else if (Tablebase.isDraw(value)) {
+                System.out.println("Draw");
+            } else {
+                System.out.printf("%s to move %s in %d plies%n", side, Tablebase.isWin(value) ? "wins" : "loses",
+                        Tablebase.getDistance(value));
+            }
+            return;
+        }
+        int maxPieces = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        TablebaseBuilder builder = new TablebaseBuilder(Paths.get(args[0]), threads);
+        long start = System.nanoTime();
+        try {
+            builder.build(maxPieces);
+        } finally {
+            builder.shutdown();
+        }
+        System.out.printf("Done in %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,382 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless match between two engine configurations.
+ * Games are played in pairs from the same random opening with colours swapped, so neither configuration
+ * profits from a lucky opening. Games run concurrently on a fixed pool of threads, each game with its own
+ * engines, and every finished game is appended to a CSV or JSONL file right away. At the end the score is
+ * converted into an Elo difference with a 95% confidence interval.
+ */
+public class Tournament {
+    private final EngineConfig first; // Configuration whose score is reported
+    private final EngineConfig second; // Opponent configuration
+    private Variant variant = Variant.STANDARD; // Board size and rules of the games
+    private int openingPlies = 4; // Random moves played before the engines take over
+    private int maxPlies = 300; // Length after which a game is declared drawn
+    private long seed = 1; // Seed of the random openings
+    private GameRecordWriter archive; // Archive receiving every finished game, or null
+
+    private int wins; // Games won by the first configuration
+    private int draws; // Drawn games
+    private int losses; // Games lost by the first configuration
+
+    /**
+     * Outcome of one game.
+     *
+     * @param index      Number of the game
+     * @param firstIsRed True if the first configuration played red
+     * @param result     Result of the game
+     * @param plies      Number of moves played
+     * @param redMoves   Moves red's engine played
+     * @param blackMoves Moves black's engine played
+     * @param redNanos   Time red spent searching
+     * @param blackNanos Time black spent searching
+     * @param redNodes   Positions red searched
+     * @param blackNodes Positions black searched
+     * @param opening    Position the engines started from
+     * @param record     The moves of the game, including the random opening
+     */
+    private record Game(int index, boolean firstIsRed, GameResult result, int plies, int redMoves, int blackMoves,
+                        long redNanos, long blackNanos,
+                        long redNodes, long blackNodes, String opening, GameRecord record) {
+    }
+
+    /**
+     * Constructs a new Tournament.
+     *
+     * @param first  Configuration whose score is reported
+     * @param second Opponent configuration
+     */
+    public Tournament(EngineConfig first, EngineConfig second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * Sets the number of random moves played before the engines take over.
+     *
+     * @param openingPlies Number of random plies
+     */
+    public void setOpeningPlies(int openingPlies) {
+        this.openingPlies = openingPlies;
+    }
+
+    /**
+     * Sets the length after which a game is declared drawn.
+     *
+     * @param maxPlies Maximum number of plies
+     */
+    public void setMaxPlies(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Sets the board size and rules the games are played by.
+     *
+     * @param variant The variant
+     */
+    public void setVariant(Variant variant) {
+        this.variant = variant;
+    }
+
+    /**
+     * Sets the seed of the random openings.
+     *
+     * @param seed Random seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the archive every finished game is appended to.
+     *
+     * @param archive Open archive, or null for none; the caller closes it
+     */
+    public void setArchive(GameRecordWriter archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Plays the match.
+     *
+     * @param games   Number of games; rounded up to an even number so every opening is played with both colours
+     * @param threads Number of games played at the same time
+     * @param output  File receiving one line per game, as JSON lines if the name ends in {@code .jsonl} and
+     *                as CSV otherwise, or null for none
+     * @throws IOException if the output file cannot be written
+     */
+    public void run(int games, int threads, Path output) throws IOException {
+        games += games & 1;
+        boolean json = output != null && output.toString().endsWith(".jsonl");
+        BufferedWriter writer = output == null ? null : Files.newBufferedWriter(output);
+        if (writer != null && !json) {
+            writer.write("game,red,black,winner,plies,red_ms_per_move,black_ms_per_move,red_nodes,black_nodes,opening");
+            writer.newLine();
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        long start = System.nanoTime();
+        try {
+            List<Future<Game>> pending = new ArrayList<>();
+            for (int i = 0; i < games; i++) {
+                int index = i;
+                pending.add(pool.submit(() -> {
+                    Game game = play(index);
+                    record(game, writer, json);
+                    return game;
+                }));
+            }
+            for (Future<Game> game : pending) {
+                game.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+            if (writer != null) {
+                writer.close();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games in %.1f s (%.2f games/s)%n", games, seconds, games / seconds);
+        System.out.println(summary());
+    }
+
+    /**
+     * Plays one game. Games {@code 2k} and {@code 2k + 1} share an opening with colours swapped.
+     *
+     * @param index Number of the game
+     * @return The outcome
+     */
+    private Game play(int index) {
+        boolean firstIsRed = (index & 1) == 0;
+        Engine redEngine = (firstIsRed ? first : second).createEngine();
+        Engine blackEngine = (firstIsRed ? second : first).createEngine();
+        GameState game = new GameState(variant);
+        Random random = new Random(seed * 1_000_003L + index / 2);
+        int[] moves = new int[Bitboard.MAX_MOVES];
+        for (int i = 0; i < openingPlies; i++) {
+            int count = game.generateMoves(moves, 0);
+            if (count == 0) {
+                break;
+            }
+            game.makeMove(moves[random.nextInt(count)]);
+        }
+        String opening = game.toFen();
+
+        int[] turns = new int[2];
+        long[] nanos = new long[2];
+        long[] nodes = new long[2];
+        int plies = 0;
+        GameResult result = game.getResult();
+        while (result == GameResult.ONGOING && plies < maxPlies) {
+            int side = game.getSideToMove().ordinal();
+            SearchResult search = (game.getSideToMove() == PieceType.RED ? redEngine : blackEngine)
+                    .search(game.getBoard(), game.getSideToMove());
+            turns[side]++;
+            nanos[side] += search.getElapsedNanos();
+            nodes[side] += search.getNodes();
+            game.makeMove(search.getBestMove());
+            plies++;
+            result = game.getResult();
+        }
+        redEngine.shutdown();
+        blackEngine.shutdown();
+        if (result == GameResult.ONGOING) {
+            result = GameResult.DRAW;
+        }
+        int red = PieceType.RED.ordinal();
+        int black = PieceType.BLACK.ordinal();
+        return new Game(index, firstIsRed, result, plies, turns[red], turns[black], nanos[red], nanos[black],
+                nodes[red], nodes[black], opening, GameRecord.of(game, result));
+    }
+
+    /**
+     * Adds a finished game to the score and writes it to the output.
+     *
+     * @param game   The outcome
+     * @param writer Output file, or null
+     * @param json   True to write JSON lines, false for CSV
+     * @throws IOException if the output file cannot be written
+     */
+    private synchronized void record(Game game, BufferedWriter writer, boolean json) throws IOException {
+        boolean firstWon = game.result() == (game.firstIsRed() ? GameResult.RED_WINS : GameResult.BLACK_WINS);
+        if (game.result() == GameResult.DRAW) {
+            draws++;
+        } else if (firstWon) {
+            wins++;
+        } else {
+            losses++;
+        }
+        if (archive != null) {
+            archive.write(game.record());
+        }
+        if (writer == null) {
+            return;
+        }
+        String redName = (game.firstIsRed() ? first : second).getName();
+        String blackName = (game.firstIsRed() ? second : first).getName();
+        String winner = game.result() == GameResult.RED_WINS ? "red" : game.result() == GameResult.BLACK_WINS ? "black" : "draw";
+        double redMs = game.redMoves() == 0 ? 0 : game.redNanos() / 1e6 / game.redMoves();
+        double blackMs = game.blackMoves() == 0 ? 0 : game.blackNanos() / 1e6 / game.blackMoves();
+        if (json) {
+            writer.write(String.format(Locale.ROOT, "{\"game\":%d,\"red\":%s,\"black\":%s,\"winner\":\"%s\",\"plies\":%d,"
+                            + "\"red_ms_per_move\":%.3f,\"black_ms_per_move\":%.3f,\"red_nodes\":%d,\"black_nodes\":%d,"
+                            + "\"opening\":%s}",
+                    game.index(), jsonString(redName), jsonString(blackName), winner, game.plies(), redMs, blackMs,
+                    game.redNodes(), game.blackNodes(), jsonString(game.opening())));
+        } else {
+            writer.write(String.format(Locale.ROOT, "%d,\"%s\",\"%s\",%s,%d,%.3f,%.3f,%d,%d,\"%s\"", game.index(),
+                    redName.replace("\"", "\"\""), blackName.replace("\"", "\"\""), winner, game.plies(), redMs, blackMs,
+                    game.redNodes(), game.blackNodes(), game.opening()));
+        }
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * Quotes a string for JSON, escaping quotes, backslashes and control characters.
+     *
+     * @param text The string
+     * @return The JSON string literal
+     */
+    private static String jsonString(String text) {
+        StringBuilder json = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * Summarizes the score of the first configuration.
+     *
+     * @return Wins, draws, losses and the Elo difference with its 95% confidence interval
+     */
+    public synchronized String summary() {
+        int games = wins + draws + losses;
+        if (games == 0) {
+            return "No games played";
+        }
+        double score = (wins + 0.5 * draws) / games;
+        // Standard error of the mean per-game score (1, 0.5 or 0)
+        double variance = (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score)
+                + losses * score * score) / games;
+        double margin = 1.96 * Math.sqrt(variance / games);
+        return String.format("%s vs %s: +%d =%d -%d, score %.1f%%, Elo %+.1f [%+.1f, %+.1f]",
+                first, second, wins, draws, losses, score * 100,
+                elo(score), elo(score - margin), elo(score + margin));
+    }
+
+    /**
+     * Converts a score fraction into an Elo difference.
+     *
+     * @param score Expected score between 0 and 1
+     * @return Elo difference, infinite for a score of 0 or 1
+     */
+    private static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return 400 * Math.log10(score / (1 - score));
+    }
+
+    /**
+     * Runs a match from the command line.
+     * Usage: {@code java Tournament <config A> <config B> [--games N] [--threads N] [--out file.csv|file.jsonl]
+     * [--record archive] [--opening plies] [--max-plies N] [--seed N] [--variant variant] [--metrics file.json]},
+     * where a configuration looks like {@code depth=6,time=0} and a variant like {@code international}.
+     * Only standard games can be recorded. The metrics of the engines are written to the metrics file at the end.
+     *
+     * @param args Command-line arguments
+     * @throws IOException if the output file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java Tournament <config A> <config B> [--games N] [--threads N]"
+                    + " [--out file.csv|file.jsonl] [--record archive] [--opening plies] [--max-plies N] [--seed N]"
+                    + " [--variant variant] [--metrics file.json]");
+            System.out.println("       a config is key=value pairs, e.g. depth=6,time=0,nodes=0,tt=16");
+            return;
+        }
+        Tournament tournament = new Tournament(EngineConfig.parse(args[0]), EngineConfig.parse(args[1]));
+        int games = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path output = null;
+        Path archive = null;
+        Path metrics = null;
+        Variant variant = Variant.STANDARD;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--out":
+                    output = Paths.get(args[++i]);
+                    break;
+                case "--record":
+                    archive = Paths.get(args[++i]);
+                    break;
+                case "--opening":
+                    tournament.setOpeningPlies(Integer.parseInt(args[++i]));
+                    break;
+                case "--max-plies":
+                    tournament.setMaxPlies(Integer.parseInt(args[++i]));
+                    break;
+                case "--seed":
+                    tournament.setSeed(Long.parseLong(args[++i]));
+                    break;
+                case "--metrics":
+                    metrics = Paths.get(args[++i]);
+                    break;
+                case "--variant":
+                    variant = Variant.parse(args[++i]);
+                    tournament.setVariant(variant);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (archive != null && !variant.equals(Variant.STANDARD)) {
+            throw new IllegalArgumentException("Only standard games can be recorded");
+        }
+        if (archive == null) {
+            tournament.run(games, threads, output);
+        } else {
+            try (GameRecordWriter writer = new GameRecordWriter(archive)) {
+                tournament.setArchive(writer);
+                tournament.run(games, threads, output);
+            }
+        }
+        if (metrics != null) {
+            MetricsRegistry.DEFAULT.dump(metrics);
+        }
+    }
+}
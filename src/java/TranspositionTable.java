@@ -0,0 +1,225 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size transposition table caching search results by position hash.
+ * Entries live in two parallel {@code long} arrays whose length is a power of two. The stored key is XORed
+ * with the entry data, so a torn write from another thread is detected as a key mismatch instead of handing
+ * back corrupt data; the table therefore needs no locks. An entry is replaced only by a search of at least
+ * the same depth, or by any search once the entry is left over from an earlier move.
+ */
+public class TranspositionTable {
+    /**
+     * The stored score is exact.
+     */
+    public static final int EXACT = 1;
+    /**
+     * The stored score is a lower bound (the search failed high).
+     */
+    public static final int LOWER = 2;
+    /**
+     * The stored score is an upper bound (the search failed low).
+     */
+    public static final int UPPER = 3;
+
+    private static final int BYTES_PER_ENTRY = 16; // One key and one data word
+    private static final int SCORE_OFFSET = 1 << 17; // Bias making 18-bit scores unsigned
+    private static final int OCCUPANCY_SAMPLE = 4096; // Entries inspected to estimate occupancy
+
+    private final long[] keys; // Position hash XOR data of each entry
+    private final long[] data; // Packed move, score, depth, bound and age of each entry
+    private final int mask; // Capacity - 1, used to map a hash to a slot
+    private int age; // Search generation, so entries from earlier moves can be overwritten
+
+    private final LongAdder probes = new LongAdder(); // Lookups performed
+    private final LongAdder hits = new LongAdder(); // Lookups that found their position
+    private final LongAdder collisions = new LongAdder(); // Lookups whose slot held another position
+    private final LongAdder stores = new LongAdder(); // Entries written
+
+    /**
+     * Constructs a new TranspositionTable.
+     *
+     * @param sizeMb Memory budget in megabytes; the capacity is the largest power of two that fits
+     */
+    public TranspositionTable(int sizeMb) {
+        long entries = Math.max(1L, (long) sizeMb * 1024 * 1024 / BYTES_PER_ENTRY);
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[capacity];
+        this.data = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Marks the start of a new search so that older entries become replaceable.
+     */
+    public void newSearch() {
+        age = (age + 1) & 0x1F;
+    }
+
+    /**
+     * Removes every entry and resets the statistics.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        probes.reset();
+        hits.reset();
+        collisions.reset();
+        stores.reset();
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param hash Position hash including the side to move
+     * @return The packed entry, or 0 if the position is not stored
+     */
+    public long probe(long hash) {
+        int slot = (int) hash & mask;
+        long entry = data[slot];
+        probes.increment();
+        if ((keys[slot] ^ entry) == hash && entry != 0) {
+            hits.increment();
+            return entry;
+        }
+        if (entry != 0) {
+            collisions.increment();
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result, subject to the depth-preferred replacement policy.
+     *
+     * @param hash  Position hash including the side to move
+     * @param move  Best packed move, or {@link SearchEngine#NO_MOVE}
+     * @param score Score of the position
+     * @param depth Remaining depth the score was searched to
+     * @param bound One of {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public void store(long hash, int move, int score, int depth, int bound) {
+        int slot = (int) hash & mask;
+        long old = data[slot];
+        boolean samePosition = (keys[slot] ^ old) == hash;
+        if (old != 0 && !samePosition && getDepth(old) > depth && getAge(old) == age) {
+            return;
+        }
+        if (samePosition && move == SearchEngine.NO_MOVE) {
+            move = getMove(old); // Keep the best move of a shallower search of the same position
+        }
+        long entry = Integer.toUnsignedLong(move + 1)
+                | (long) (score + SCORE_OFFSET) << 32
+                | (long) Math.min(depth, 0x7F) << 50
+                | (long) bound << 57
+                | (long) age << 59;
+        data[slot] = entry;
+        keys[slot] = hash ^ entry;
+        stores.increment();
+    }
+
+    /**
+     * Gets the best move of an entry.
+     *
+     * @param entry Packed entry returned by {@link #probe(long)}
+     * @return The packed move, or {@link SearchEngine#NO_MOVE}
+     */
+    public static int getMove(long entry) {
+        return (int) entry - 1;
+    }
+
+    /**
+     * Gets the score of an entry.
+     *
+     * @param entry Packed entry returned by {@link #probe(long)}
+     * @return The stored score
+     */
+    public static int getScore(long entry) {
+        return (int) ((entry >>> 32) & 0x3FFFF) - SCORE_OFFSET;
+    }
+
+    /**
+     * Gets the depth of an entry.
+     *
+     * @param entry Packed entry returned by {@link #probe(long)}
+     * @return Remaining depth the score was searched to
+     */
+    public static int getDepth(long entry) {
+        return (int) (entry >>> 50) & 0x7F;
+    }
+
+    /**
+     * Gets the bound type of an entry.
+     *
+     * @param entry Packed entry returned by {@link #probe(long)}
+     * @return One of {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public static int getBound(long entry) {
+        return (int) (entry >>> 57) & 0x3;
+    }
+
+    /**
+     * Gets the search generation of an entry.
+     *
+     * @param entry Packed entry
+     * @return The age the entry was written with
+     */
+    private static int getAge(long entry) {
+        return (int) (entry >>> 59) & 0x1F;
+    }
+
+    /**
+     * Gets the number of entries the table can hold.
+     *
+     * @return Capacity of the table
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Gets the fraction of lookups that found their position.
+     *
+     * @return Hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        long total = probes.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    /**
+     * Gets the fraction of lookups whose slot was occupied by a different position.
+     *
+     * @return Collision rate between 0 and 1
+     */
+    public double getCollisionRate() {
+        long total = probes.sum();
+        return total == 0 ? 0 : (double) collisions.sum() / total;
+    }
+
+    /**
+     * Estimates the fraction of slots in use from a sample at the start of the table.
+     *
+     * @return Occupancy between 0 and 1
+     */
+    public double getOccupancy() {
+        int sample = Math.min(OCCUPANCY_SAMPLE, data.length);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (data[i] != 0) {
+                used++;
+            }
+        }
+        return (double) used / sample;
+    }
+
+    /**
+     * Formats the table statistics as a single line for logging.
+     *
+     * @return Human-readable summary of the table
+     */
+    @Override
+    public String toString() {
+        return String.format("%d entries, %d probes, hit rate %.1f%%, collision rate %.1f%%, occupancy %.1f%%, %d stores",
+                getCapacity(), probes.sum(), getHitRate() * 100, getCollisionRate() * 100, getOccupancy() * 100, stores.sum());
+    }
+}
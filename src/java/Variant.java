@@ -0,0 +1,584 @@
+/**
+ * The rules a game is played by: board size, how many rows of men each side starts with, whether kings fly,
+ * whether capturing is mandatory and how captures continue. A variant also holds the square geometry of its board: the masks used to
+ * shift whole bitboards, and tables of the neighbours and diagonal rays of every square, computed once per
+ * variant. The move generator therefore works on any supported size without bounds checks.
+ * Squares are numbered like on the standard board: dark squares only, left to right and top to bottom, half a
+ * row of squares per row. The squares of boards up to 10x10 fit in one {@code long} mask; larger boards keep
+ * squares 64 and up in a second word, and have neither shift masks nor ray tables: their moves are generated square
+ * by square from the neighbour table, which works for every size.
+ * A variant is written as comma-separated {@code key=value} pairs, optionally after a preset name, for example
+ * {@code international} or {@code english,size=10,rows=4}.
+ */
+public final class Variant {
+    /**
+     * Largest supported board size; its 72 dark squares take two mask words.
+     */
+    public static final int MAX_BOARD_SIZE = 12;
+
+    /**
+     * The rules this game has always used: 8x8, three rows of men, flying kings, optional capture and a single
+     * jump per move.
+     */
+    public static final Variant STANDARD = new Variant("Standard", 8, 3, true, false, false, false, false);
+    /**
+     * English draughts: 8x8, three rows of men, kings that step one square, mandatory capture and multiple
+     * jumps.
+     */
+    public static final Variant ENGLISH = new Variant("English", 8, 3, false, true, true, false, false);
+    /**
+     * International draughts: 10x10, four rows of men, flying kings, men capturing backwards and the sequence
+     * capturing the most pieces being mandatory.
+     */
+    public static final Variant INTERNATIONAL = new Variant("International", 10, 4, true, true, true, true, true);
+
+    private static final Variant[] PRESETS = {STANDARD, ENGLISH, INTERNATIONAL}; // Variants known by name
+
+    private final String name; // Name shown to the player
+    private final int boardSize; // Number of rows and columns
+    private final int rowsOfMen; // Rows each side fills with men at the start
+    private final boolean flyingKings; // True if kings slide any distance, false if they step one square
+    private final boolean mandatoryCapture; // True if a side that can capture must capture
+    private final boolean multiJumps; // True if a capture continues while the piece can capture again
+    private final boolean backwardCaptures; // True if men capture backwards as well as forwards
+    private final boolean maxCapture; // True if a side must take the sequence capturing the most pieces
+
+    private final int squaresPerRow; // Dark squares in each row
+    private final int squares; // Dark squares on the board
+    private final int words; // Mask words the squares take: 1 up to 10x10, otherwise 2
+    private final long full; // All dark squares below 64
+    private final long fullHigh; // All dark squares from 64 on, shifted down by 64
+    private final long evenRows; // Squares in rows 0, 2, 4...
+    private final long oddRows; // Squares in rows 1, 3, 5...
+    private final long leftEdge; // Squares in column 0 (odd rows)
+    private final long rightEdge; // Squares in the last column (even rows)
+    private final long redPromotion; // Last row, where red men become kings
+    private final long blackPromotion; // Row 0, where black men become kings
+    private final int[] neighbors; // Neighbouring square by square * 4 + direction, or -1 off the board
+    private final long[] rays; // Squares from a square to the edge by square * 4 + direction, excluding the square; one word only
+
+    /**
+     * Constructs a new Variant.
+     *
+     * @param name             Name shown to the player
+     * @param boardSize        Number of rows and columns; even, from 4 to {@link #MAX_BOARD_SIZE}
+     * @param rowsOfMen        Rows each side fills with men at the start; at least one row must stay empty
+     * @param flyingKings      True if kings slide any distance, false if they step one square
+     * @param mandatoryCapture True if a side that can capture must capture
+     * @param multiJumps       True if a capture continues while the piece can capture again
+     * @param backwardCaptures True if men capture backwards as well as forwards
+     * @param maxCapture       True if a side must take the sequence capturing the most pieces; needs mandatory
+     *                         capture
+     * @throws IllegalArgumentException if the board size or number of rows is not supported, or maximum capture
+     *                                  is asked for without mandatory capture
+     */
+    public Variant(String name, int boardSize, int rowsOfMen, boolean flyingKings, boolean mandatoryCapture,
+                   boolean multiJumps, boolean backwardCaptures, boolean maxCapture) {
+        if (boardSize < 4 || boardSize > MAX_BOARD_SIZE || boardSize % 2 != 0) {
+            throw new IllegalArgumentException("Unsupported board size: " + boardSize);
+        }
+        if (rowsOfMen < 1 || 2 * rowsOfMen >= boardSize) {
+            throw new IllegalArgumentException("Unsupported rows of men: " + rowsOfMen);
+        }
+        if (maxCapture && !mandatoryCapture) {
+            throw new IllegalArgumentException("Maximum capture needs mandatory capture");
+        }
+        this.name = name;
+        this.boardSize = boardSize;
+        this.rowsOfMen = rowsOfMen;
+        this.flyingKings = flyingKings;
+        this.mandatoryCapture = mandatoryCapture;
+        this.multiJumps = multiJumps;
+        this.backwardCaptures = backwardCaptures;
+        this.maxCapture = maxCapture;
+
+        squaresPerRow = boardSize / 2;
+        squares = boardSize * squaresPerRow;
+        words = squares > Long.SIZE ? 2 : 1;
+        full = words == 1 ? (1L << squares) - 1 : -1L;
+        fullHigh = words == 1 ? 0 : (1L << (squares - Long.SIZE)) - 1;
+        long row = (1L << squaresPerRow) - 1;
+        long even = 0;
+        long left = 0;
+        long right = 0;
+        if (words == 1) {
+            for (int r = 0; r < boardSize; r += 2) {
+                even |= row << (r * squaresPerRow);
+                right |= 1L << ((r + 1) * squaresPerRow - 1);
+                left |= 1L << ((r + 1) * squaresPerRow);
+            }
+        }
+        evenRows = even;
+        oddRows = full & ~even;
+        rightEdge = right;
+        leftEdge = left & full;
+        redPromotion = words == 1 ? row << (squares - squaresPerRow) : 0;
+        blackPromotion = row;
+
+        neighbors = new int[squares * 4];
+        for (int square = 0; square < squares; square++) {
+            for (int direction = Bitboard.UP_LEFT; direction <= Bitboard.DOWN_RIGHT; direction++) {
+                neighbors[square * 4 + direction] = square(row(square) + (direction < Bitboard.DOWN_LEFT ? -1 : 1),
+                        col(square) + ((direction & 1) == 0 ? -1 : 1));
+            }
+        }
+        rays = new long[words == 1 ? squares * 4 : 0];
+        for (int i = 0; i < rays.length; i++) {
+            for (int next = neighbors[i]; next >= 0; next = neighbors[next * 4 + i % 4]) {
+                rays[i] |= 1L << next;
+            }
+        }
+    }
+
+    /**
+     * Parses a variant such as {@code international} or {@code size=10,rows=4,flying=true,mandatory=true}.
+     * The capture rules are set with {@code multijump}, {@code backward} and {@code maxcapture}.
+     * Settings left out keep the values of the named preset, or of {@link #STANDARD} without one.
+     *
+     * @param text The variant
+     * @return The parsed variant; a preset itself if no setting changes it
+     * @throws IllegalArgumentException if a preset or key is unknown or a value is invalid
+     */
+    public static Variant parse(String text) {
+        Variant base = STANDARD;
+        int boardSize = -1;
+        int rowsOfMen = -1;
+        Boolean flyingKings = null;
+        Boolean mandatoryCapture = null;
+        Boolean multiJumps = null;
+        Boolean backwardCaptures = null;
+        Boolean maxCapture = null;
+        for (String pair : text.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            String[] parts = pair.split("=", 2);
+            if (parts.length == 1) {
+                base = preset(parts[0].trim());
+                continue;
+            }
+            String value = parts[1].trim();
+            switch (parts[0].trim()) {
+                case "size":
+                    boardSize = parseInt(pair, value);
+                    break;
+                case "rows":
+                    rowsOfMen = parseInt(pair, value);
+                    break;
+                case "flying":
+                    flyingKings = parseBoolean(pair, value);
+                    break;
+                case "mandatory":
+                    mandatoryCapture = parseBoolean(pair, value);
+                    break;
+                case "multijump":
+                    multiJumps = parseBoolean(pair, value);
+                    break;
+                case "backward":
+                    backwardCaptures = parseBoolean(pair, value);
+                    break;
+                case "maxcapture":
+                    maxCapture = parseBoolean(pair, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting: " + parts[0]);
+            }
+        }
+        if (boardSize < 0 && rowsOfMen < 0 && flyingKings == null && mandatoryCapture == null && multiJumps == null
+                && backwardCaptures == null && maxCapture == null) {
+            return base;
+        }
+        boardSize = boardSize < 0 ? base.boardSize : boardSize;
+        if (rowsOfMen < 0) {
+            // Keep the empty middle of the preset when only the board size changes
+            rowsOfMen = base.rowsOfMen + (boardSize - base.boardSize) / 2;
+        }
+        boolean mandatory = mandatoryCapture == null ? base.mandatoryCapture : mandatoryCapture;
+        Variant variant = new Variant("Custom", boardSize, rowsOfMen,
+                flyingKings == null ? base.flyingKings : flyingKings, mandatory,
+                multiJumps == null ? base.multiJumps : multiJumps,
+                backwardCaptures == null ? base.backwardCaptures : backwardCaptures,
+                maxCapture == null ? base.maxCapture && mandatory : maxCapture);
+        for (Variant preset : PRESETS) {
+            if (preset.equals(variant)) {
+                return preset;
+            }
+        }
+        return variant;
+    }
+
+    /**
+     * Finds a preset by name, ignoring case.
+     *
+     * @param name Name of the preset
+     * @return The preset
+     * @throws IllegalArgumentException if there is no preset with that name
+     */
+    private static Variant preset(String name) {
+        for (Variant preset : PRESETS) {
+            if (preset.name.equalsIgnoreCase(name)) {
+                return preset;
+            }
+        }
+        throw new IllegalArgumentException("Unknown variant: " + name);
+    }
+
+    /**
+     * Parses a whole number setting.
+     *
+     * @param pair  The setting, for error messages
+     * @param value Text of the value
+     * @return The number
+     * @throws IllegalArgumentException if the value is not a number
+     */
+    private static int parseInt(String pair, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value: " + pair, e);
+        }
+    }
+
+    /**
+     * Parses an on/off setting.
+     *
+     * @param pair  The setting, for error messages
+     * @param value Text of the value: {@code true} or {@code false}
+     * @return The value
+     * @throws IllegalArgumentException if the value is neither
+     */
+    private static boolean parseBoolean(String pair, String value) {
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException("Invalid value: " + pair);
+        }
+        return value.equals("true");
+    }
+
+    /**
+     * Gets the variants known by name.
+     *
+     * @return The presets, {@link #STANDARD} first
+     */
+    public static Variant[] getPresets() {
+        return PRESETS.clone();
+    }
+
+    /**
+     * Gets the name shown to the player.
+     *
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of rows and columns of the board.
+     *
+     * @return The board size
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * Gets the number of rows each side fills with men at the start.
+     *
+     * @return Rows of men per side
+     */
+    public int getRowsOfMen() {
+        return rowsOfMen;
+    }
+
+    /**
+     * Checks if kings slide any distance along a diagonal.
+     *
+     * @return True for flying kings, false for kings that step one square
+     */
+    public boolean hasFlyingKings() {
+        return flyingKings;
+    }
+
+    /**
+     * Checks if a side that can capture must capture.
+     *
+     * @return True if capturing is mandatory, otherwise false
+     */
+    public boolean isMandatoryCapture() {
+        return mandatoryCapture;
+    }
+
+    /**
+     * Checks if a capture continues while the capturing piece can capture again.
+     *
+     * @return True if whole capture sequences are played as one move, false for a single jump per move
+     */
+    public boolean hasMultiJumps() {
+        return multiJumps;
+    }
+
+    /**
+     * Checks if men capture backwards as well as forwards.
+     *
+     * @return True if men capture in every direction, otherwise false
+     */
+    public boolean hasBackwardCaptures() {
+        return backwardCaptures;
+    }
+
+    /**
+     * Checks if a side must take the capture sequence that captures the most pieces.
+     *
+     * @return True if only the longest captures are legal, otherwise false
+     */
+    public boolean isMaxCapture() {
+        return maxCapture;
+    }
+
+    /**
+     * Gets the number of playable (dark) squares.
+     *
+     * @return Number of squares
+     */
+    public int getSquares() {
+        return squares;
+    }
+
+    /**
+     * Gets the number of mask words the squares take.
+     *
+     * @return 1 for boards up to 10x10, 2 for larger ones
+     */
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * Gets all playable squares of a board up to 10x10, or those below 64 of a larger one.
+     *
+     * @return Mask of every square
+     */
+    public long getFull() {
+        return full;
+    }
+
+    /**
+     * Gets the playable squares held by one mask word.
+     *
+     * @param word 0 for squares 0 to 63, 1 for the squares from 64 on
+     * @return Mask of the squares, square {@code 64 * word} in bit 0
+     */
+    public long getFull(int word) {
+        return word == 0 ? full : fullHigh;
+    }
+
+    /**
+     * Gets the squares where the men of a side start, on a board up to 10x10.
+     *
+     * @param type The side
+     * @return Mask of the starting squares
+     */
+    public long getStart(PieceType type) {
+        return getStart(type, 0);
+    }
+
+    /**
+     * Gets the squares held by one mask word where the men of a side start.
+     *
+     * @param type The side
+     * @param word 0 for squares 0 to 63, 1 for the squares from 64 on
+     * @return Mask of the starting squares, square {@code 64 * word} in bit 0
+     */
+    public long getStart(PieceType type, int word) {
+        int men = rowsOfMen * squaresPerRow;
+        int first = type == PieceType.RED ? 0 : squares - men;
+        long mask = 0;
+        for (int square = first; square < first + men; square++) {
+            if (square / Long.SIZE == word) {
+                mask |= 1L << square;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the row on which the men of a side are promoted, on a board up to 10x10.
+     *
+     * @param type The side
+     * @return Mask of the promotion row
+     */
+    public long getPromotion(PieceType type) {
+        return type == PieceType.RED ? redPromotion : blackPromotion;
+    }
+
+    /**
+     * Checks if a square is on the row where the men of a side are promoted, on a board of any size.
+     *
+     * @param type   The side
+     * @param square Square index
+     * @return True if a man of that side reaching the square becomes a king, otherwise false
+     */
+    public boolean isPromotion(PieceType type, int square) {
+        return row(square) == (type == PieceType.RED ? boardSize - 1 : 0);
+    }
+
+    /**
+     * Converts a row and column into a square index.
+     *
+     * @param row Row index
+     * @param col Column index
+     * @return The square index, or -1 if the coordinates are off the board or on a light tile
+     */
+    public int square(int row, int col) {
+        if (row < 0 || row >= boardSize || col < 0 || col >= boardSize || (row + col) % 2 == 0) {
+            return -1;
+        }
+        return row * squaresPerRow + col / 2;
+    }
+
+    /**
+     * Gets the row of a square.
+     *
+     * @param square Square index
+     * @return The row index
+     */
+    public int row(int square) {
+        return square / squaresPerRow;
+    }
+
+    /**
+     * Gets the column of a square.
+     *
+     * @param square Square index
+     * @return The column index
+     */
+    public int col(int square) {
+        int row = square / squaresPerRow;
+        return (square - row * squaresPerRow) * 2 + ((row & 1) ^ 1);
+    }
+
+    /**
+     * Shifts every square of a mask one step in the given direction, on a board up to 10x10.
+     * Squares that would leave the board are dropped.
+     *
+     * @param mask      The squares to shift
+     * @param direction One of the {@link Bitboard} direction constants
+     * @return The shifted mask
+     */
+    public long shift(long mask, int direction) {
+        switch (direction) {
+            case Bitboard.UP_LEFT:
+                return ((mask & evenRows) >>> squaresPerRow) | ((mask & oddRows & ~leftEdge) >>> (squaresPerRow + 1));
+            case Bitboard.UP_RIGHT:
+                return ((mask & evenRows & ~rightEdge) >>> (squaresPerRow - 1)) | ((mask & oddRows) >>> squaresPerRow);
+            case Bitboard.DOWN_LEFT:
+                return (((mask & evenRows) << squaresPerRow) | ((mask & oddRows & ~leftEdge) << (squaresPerRow - 1))) & full;
+            default:
+                return (((mask & evenRows & ~rightEdge) << (squaresPerRow + 1)) | ((mask & oddRows) << squaresPerRow)) & full;
+        }
+    }
+
+    /**
+     * Gets the neighbouring square in the given direction.
+     *
+     * @param square    Square index
+     * @param direction Direction of the step
+     * @return The neighbouring square, or -1 if the step leaves the board
+     */
+    public int neighbor(int square, int direction) {
+        return neighbors[square * 4 + direction];
+    }
+
+    /**
+     * Gets the squares on the diagonal from a square to the edge of a board up to 10x10.
+     *
+     * @param square    Square index
+     * @param direction Direction of the diagonal
+     * @return Mask of the squares, not including the starting square
+     */
+    public long ray(int square, int direction) {
+        return rays[square * 4 + direction];
+    }
+
+    /**
+     * Gets the squares strictly between two squares on the same diagonal of a board up to 10x10.
+     *
+     * @param from      Square at one end
+     * @param to        Square at the other end, on the ray from {@code from} in the given direction
+     * @param direction Direction from {@code from} to {@code to}
+     * @return Mask of the squares in between
+     */
+    public long between(int from, int to, int direction) {
+        return rays[from * 4 + direction] ^ rays[to * 4 + direction] ^ (1L << to);
+    }
+
+    /**
+     * Finds the direction leading from one square to another.
+     *
+     * @param from Starting square
+     * @param to   Destination square
+     * @return The direction, or -1 if the squares are not on a common diagonal
+     */
+    public int direction(int from, int to) {
+        int rows = row(to) - row(from);
+        int cols = col(to) - col(from);
+        if (rows == 0 || Math.abs(rows) != Math.abs(cols)) {
+            return -1;
+        }
+        return (rows < 0 ? Bitboard.UP_LEFT : Bitboard.DOWN_LEFT) + (cols < 0 ? 0 : 1);
+    }
+
+    /**
+     * Gets the square of a mask that comes first when walking in a direction, for a mask taken from one ray.
+     * Square numbers grow towards the last row, so walking down finds the lowest square first.
+     *
+     * @param mask      Non-empty mask of squares on one ray
+     * @param direction Direction of the ray
+     * @return The nearest square
+     */
+    public static int nearest(long mask, int direction) {
+        return direction >= Bitboard.DOWN_LEFT ? Long.numberOfTrailingZeros(mask) : 63 - Long.numberOfLeadingZeros(mask);
+    }
+
+    /**
+     * Compares the rules of this variant with another one; names are ignored.
+     *
+     * @param other The object to compare with
+     * @return True if both variants play by the same rules, otherwise false
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Variant variant && boardSize == variant.boardSize && rowsOfMen == variant.rowsOfMen
+                && flyingKings == variant.flyingKings && mandatoryCapture == variant.mandatoryCapture
+                && multiJumps == variant.multiJumps && backwardCaptures == variant.backwardCaptures
+                && maxCapture == variant.maxCapture;
+    }
+
+    /**
+     * Computes a hash code consistent with {@link #equals(Object)}.
+     *
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        int rules = (flyingKings ? 1 : 0) | (mandatoryCapture ? 2 : 0) | (multiJumps ? 4 : 0)
+                | (backwardCaptures ? 8 : 0) | (maxCapture ? 16 : 0);
+        return (boardSize * 31 + rowsOfMen) * 32 + rules;
+    }
+
+    /**
+     * Writes the variant in the form read by {@link #parse(String)}.
+     *
+     * @return The preset name, or the full list of settings for a custom variant
+     */
+    @Override
+    public String toString() {
+        for (Variant preset : PRESETS) {
+            if (preset.equals(this)) {
+                return preset.name.toLowerCase();
+            }
+        }
+        return "size=" + boardSize + ",rows=" + rowsOfMen + ",flying=" + flyingKings + ",mandatory=" + mandatoryCapture
+                + ",multijump=" + multiJumps + ",backward=" + backwardCaptures + ",maxcapture=" + maxCapture;
+    }
+}
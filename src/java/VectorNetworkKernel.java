@@ -0,0 +1,98 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of {@link NetworkKernel} with the incubating Vector API, using the widest vectors the
+ * CPU supports. Compiling and running it needs {@code --add-modules jdk.incubator.vector}; without the module
+ * {@link NetworkKernel#create()} falls back to {@link ScalarNetworkKernel}. Elements past the last full vector
+ * are handled one at a time.
+ */
+public class VectorNetworkKernel implements NetworkKernel {
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED; // Widest 16-bit vectors
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, SHORTS.vectorShape()); // 32-bit vectors of the same width
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(short[] accumulator, int offset, short[] weights, int row, int length) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, offset + i)
+                    .add(ShortVector.fromArray(SHORTS, weights, row + i))
+                    .intoArray(accumulator, offset + i);
+        }
+        for (; i < length; i++) {
+            accumulator[offset + i] += weights[row + i];
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void subtract(short[] accumulator, int offset, short[] weights, int row, int length) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, offset + i)
+                    .sub(ShortVector.fromArray(SHORTS, weights, row + i))
+                    .intoArray(accumulator, offset + i);
+        }
+        for (; i < length; i++) {
+            accumulator[offset + i] -= weights[row + i];
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clip(short[] source, int sourceOffset, short[] target, int targetOffset, int length, int max) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, source, sourceOffset + i)
+                    .max((short) 0)
+                    .min((short) max)
+                    .intoArray(target, targetOffset + i);
+        }
+        for (; i < length; i++) {
+            target[targetOffset + i] = (short) Math.min(Math.max(source[sourceOffset + i], 0), max);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Each pair of 16-bit vectors is widened into two halves of 32-bit lanes before multiplying, so products
+     * and sums cannot overflow.
+     */
+    @Override
+    public int dot(short[] a, int aOffset, short[] b, int bOffset, int length) {
+        IntVector sum = IntVector.zero(INTS);
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector x = ShortVector.fromArray(SHORTS, a, aOffset + i);
+            ShortVector y = ShortVector.fromArray(SHORTS, b, bOffset + i);
+            for (int part = 0; part < 2; part++) {
+                IntVector wideX = (IntVector) x.convertShape(VectorOperators.S2I, INTS, part);
+                IntVector wideY = (IntVector) y.convertShape(VectorOperators.S2I, INTS, part);
+                sum = sum.add(wideX.mul(wideY));
+            }
+        }
+        int result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The name includes the number of 16-bit lanes per vector.
+     */
+    @Override
+    public String getName() {
+        return "vector(" + SHORTS.length() + ")";
+    }
+}
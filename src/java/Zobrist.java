@@ -0,0 +1,113 @@
+/**
+ * Zobrist keys identifying checkers positions.
+ * Every (piece kind, square) pair has a fixed random 64-bit key; a position's hash is the XOR of the keys of
+ * all its pieces, so moving, capturing or promoting a piece only flips a few keys.
+ */
+public final class Zobrist {
+    /**
+     * Number of distinct piece kinds: red man, red king, black man and black king.
+     */
+    public static final int KINDS = 4;
+
+    private static final long[] KEYS = new long[KINDS * Bitboard.SQUARES
+            * ((Bitboard.MAX_SQUARES + Bitboard.SQUARES - 1) / Bitboard.SQUARES)]; // Key of each kind on each square, by bank of 32 squares
+    private static final long BLACK_TO_MOVE; // Key mixed in when black is the side to move
+
+    static {
+        // Fixed seed so that hashes are stable between runs and can be stored in files
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < KINDS * Bitboard.SQUARES; i++) {
+            seed = next(seed);
+            KEYS[i] = mix(seed);
+        }
+        // The side key follows the first bank, where it was drawn before there were more banks, so that the
+        // hashes of positions with black to move stay the same as well
+        seed = next(seed);
+        BLACK_TO_MOVE = mix(seed);
+        for (int i = KINDS * Bitboard.SQUARES; i < KEYS.length; i++) {
+            seed = next(seed);
+            KEYS[i] = mix(seed);
+        }
+    }
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Gets the kind index of a piece.
+     *
+     * @param type Side of the piece
+     * @param king True for a king, false for a man
+     * @return Index between 0 and {@link #KINDS} - 1
+     */
+    public static int kind(PieceType type, boolean king) {
+        return (type == PieceType.RED ? 0 : 2) + (king ? 1 : 0);
+    }
+
+    /**
+     * Gets the key of a piece kind standing on a square.
+     *
+     * @param kind   Piece kind, see {@link #kind(PieceType, boolean)}
+     * @param square Square index
+     * @return The key
+     */
+    public static long key(int kind, int square) {
+        // Squares beyond the standard board take their keys from a second bank, so that the hashes of standard
+        // positions stored in opening books stay the same
+        return KEYS[(square / Bitboard.SQUARES) * KINDS * Bitboard.SQUARES + kind * Bitboard.SQUARES + square % Bitboard.SQUARES];
+    }
+
+    /**
+     * Gets the key distinguishing the side to move.
+     *
+     * @param side Side to move
+     * @return The key to XOR into a position hash
+     */
+    public static long side(PieceType side) {
+        return side == PieceType.BLACK ? BLACK_TO_MOVE : 0;
+    }
+
+    /**
+     * Computes the hash of a position from scratch.
+     *
+     * @param board The position
+     * @return XOR of the keys of every piece on the board
+     */
+    public static long hash(Bitboard board) {
+        long hash = 0;
+        for (PieceType type : PieceType.values()) {
+            for (int word = 0; word < board.getVariant().getWords(); word++) {
+                for (long pieces = board.getPieces(type, word); pieces != 0; pieces &= pieces - 1) {
+                    int square = word * Long.SIZE + Long.numberOfTrailingZeros(pieces);
+                    hash ^= key(kind(type, board.isKing(square)), square);
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Advances a SplitMix64 generator state.
+     *
+     * @param state Current state
+     * @return Next state
+     */
+    private static long next(long state) {
+        return state + 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * SplitMix64 output function.
+     *
+     * @param z Generator state
+     * @return Well-mixed 64-bit value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
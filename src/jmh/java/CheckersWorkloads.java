@@ -0,0 +1,204 @@
+import benchmarks.Workloads;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The engine side of {@link Workloads}, on the positions of {@link BenchmarkPositions}.
+ * Created by name from the benchmarks, and used by one benchmark thread at a time.
+ */
+public class CheckersWorkloads implements Workloads {
+    private final Bitboard[] boards; // Early and middle game positions
+    private final PieceType[] sides; // Side to move in each of the boards
+    private final Bitboard[] endgames; // King endgames; red moves in the even ones
+    private final List<GameState> captures; // International positions with capture sequences
+    private final int[] buffer = new int[Bitboard.MAX_MOVES]; // Receives generated moves
+    private final Network network = Network.random(Variant.STANDARD, 256, 32, 42); // Network with fixed random weights
+    private final List<Bitboard> children = new ArrayList<>(); // Every position one move after one of the boards
+    private final List<Integer> parents = new ArrayList<>(); // Index of the board each child follows
+    private final SearchEngine engine = new SearchEngine(); // Engine of the search benchmark
+    private Network evaluated; // The network with the selected kernel
+    private short[] accumulator; // Accumulator of the full network evaluation
+    private short[] scratch; // Scratch space of the full network evaluation
+    private NetworkAccumulator[] stacks; // Accumulator of each board, for the incremental network evaluation
+    private int cursor; // Counts calls, selecting the position of the next one
+
+    /**
+     * Constructs a new CheckersWorkloads and builds its positions.
+     */
+    public CheckersWorkloads() {
+        List<GameState> games = BenchmarkPositions.positions();
+        boards = new Bitboard[games.size()];
+        sides = new PieceType[games.size()];
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = games.get(i).getBoard();
+            sides[i] = games.get(i).getSideToMove();
+        }
+        endgames = BenchmarkPositions.kingEndgames();
+        captures = BenchmarkPositions.capturePositions();
+        for (int i = 0; i < boards.length; i++) {
+            int count = boards[i].generateMoves(sides[i], false, buffer, 0);
+            for (int j = 0; j < count; j++) {
+                Bitboard child = new Bitboard(boards[i]);
+                child.makeMove(buffer[j]);
+                children.add(child);
+                parents.add(i);
+            }
+        }
+        engine.setTranspositionTable(new TranspositionTable(4));
+        engine.setTimeLimit(0);
+        useKernel(false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long generateMoves() {
+        int i = cursor++ % boards.length;
+        return boards[i].generateMoves(sides[i], false, buffer, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long generateKingMoves() {
+        int i = cursor++ % endgames.length;
+        return endgames[i].generateMoves((i & 1) == 0 ? PieceType.RED : PieceType.BLACK, false, buffer, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long generateSequences() {
+        GameState game = captures.get(cursor++ % captures.size());
+        return game.getBoard().generateMoves(game.getSideToMove(), false, buffer, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long hasMoves() {
+        int i = cursor++ % boards.length;
+        return boards[i].hasMoves(sides[i]) ? 1 : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getAllPossibleMoves() {
+        int i = cursor++ % boards.length;
+        return boards[i].getAllPossibleMoves(sides[i], false).size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPossibleMovesForPiece() {
+        int i = cursor++ % boards.length;
+        long pieces = boards[i].getPieces(sides[i]);
+        return boards[i].getPossibleMovesForPiece(Long.numberOfTrailingZeros(pieces), false).size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long generateMovesForPiece() {
+        int i = cursor++ % boards.length;
+        long pieces = boards[i].getPieces(sides[i]);
+        return boards[i].generateMovesForPiece(Long.numberOfTrailingZeros(pieces), false, buffer, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long isValidMove() {
+        int i = cursor++;
+        Bitboard board = boards[i % boards.length];
+        return board.isValidMove(i & 31, (i >>> 5) & 31) ? 1 : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long isValidKingMove() {
+        int i = cursor++;
+        Bitboard board = endgames[i % endgames.length];
+        return board.isValidMove(Long.numberOfTrailingZeros(board.getPieces(PieceType.RED)), (i >>> 5) & 31) ? 1 : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long evaluate() {
+        int i = cursor++ % boards.length;
+        return Evaluator.DEFAULT.evaluate(boards[i], sides[i]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void useKernel(boolean scalar) {
+        evaluated = scalar ? network.withKernel(new ScalarNetworkKernel()) : network;
+        accumulator = new short[evaluated.getHidden()];
+        scratch = new short[evaluated.getHidden() + evaluated.getDense()];
+        stacks = new NetworkAccumulator[boards.length];
+        for (int i = 0; i < boards.length; i++) {
+            stacks[i] = new NetworkAccumulator(evaluated, 1);
+            stacks[i].reset(boards[i]);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long networkFull() {
+        int i = cursor++ % boards.length;
+        evaluated.refresh(boards[i], accumulator, 0);
+        return evaluated.evaluate(accumulator, 0, scratch);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long networkUpdate() {
+        int i = cursor++ % children.size();
+        NetworkAccumulator stack = stacks[parents.get(i)];
+        stack.push(children.get(i));
+        int score = stack.evaluate(PieceType.RED);
+        stack.pop();
+        return score;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long perft(int depth) {
+        return Perft.perft(new GameState(), depth);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long search(int depth) {
+        int i = cursor++ % boards.length;
+        engine.setMaxDepth(depth);
+        // Start every decision from an empty table so results do not depend on the previous one
+        engine.getTranspositionTable().clear();
+        return engine.search(boards[i], sides[i]).getBestMove();
+    }
+}
@@ -0,0 +1,18 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Benchmark of the hand-written evaluation of game positions.
+ */
+public class EvaluationBenchmark extends WorkloadBenchmark {
+    /**
+     * Measures {@link Workloads#evaluate()}.
+     *
+     * @return The score
+     */
+    @Benchmark
+    public long evaluate() {
+        return workloads.evaluate();
+    }
+}
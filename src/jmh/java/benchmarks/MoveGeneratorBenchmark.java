@@ -0,0 +1,99 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Benchmarks of the move generator: full generation in game positions, king endgames and international capture
+ * positions, the list-returning wrappers, single pieces and move checking.
+ */
+public class MoveGeneratorBenchmark extends WorkloadBenchmark {
+    /**
+     * Measures {@link Workloads#generateMoves()}.
+     *
+     * @return Number of moves
+     */
+    @Benchmark
+    public long generateMoves() {
+        return workloads.generateMoves();
+    }
+
+    /**
+     * Measures {@link Workloads#generateKingMoves()}.
+     *
+     * @return Number of moves
+     */
+    @Benchmark
+    public long generateKingMoves() {
+        return workloads.generateKingMoves();
+    }
+
+    /**
+     * Measures {@link Workloads#generateSequences()}.
+     *
+     * @return Number of moves
+     */
+    @Benchmark
+    public long generateSequences() {
+        return workloads.generateSequences();
+    }
+
+    /**
+     * Measures {@link Workloads#hasMoves()}.
+     *
+     * @return 1 if the side to move has a move, otherwise 0
+     */
+    @Benchmark
+    public long hasMoves() {
+        return workloads.hasMoves();
+    }
+
+    /**
+     * Measures {@link Workloads#getAllPossibleMoves()}.
+     *
+     * @return Number of moves
+     */
+    @Benchmark
+    public long getAllPossibleMoves() {
+        return workloads.getAllPossibleMoves();
+    }
+
+    /**
+     * Measures {@link Workloads#getPossibleMovesForPiece()}.
+     *
+     * @return Number of moves
+     */
+    @Benchmark
+    public long getPossibleMovesForPiece() {
+        return workloads.getPossibleMovesForPiece();
+    }
+
+    /**
+     * Measures {@link Workloads#generateMovesForPiece()}.
+     *
+     * @return Number of moves
+     */
+    @Benchmark
+    public long generateMovesForPiece() {
+        return workloads.generateMovesForPiece();
+    }
+
+    /**
+     * Measures {@link Workloads#isValidMove()}.
+     *
+     * @return 1 if the move is legal, otherwise 0
+     */
+    @Benchmark
+    public long isValidMove() {
+        return workloads.isValidMove();
+    }
+
+    /**
+     * Measures {@link Workloads#isValidKingMove()}.
+     *
+     * @return 1 if the move is legal, otherwise 0
+     */
+    @Benchmark
+    public long isValidKingMove() {
+        return workloads.isValidKingMove();
+    }
+}
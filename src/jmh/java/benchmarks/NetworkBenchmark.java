@@ -0,0 +1,43 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks of the network evaluation, from scratch and after a move, with its arithmetic on the network's own
+ * kernel (SIMD when the vector module is enabled) or on the scalar one.
+ */
+public class NetworkBenchmark extends WorkloadBenchmark {
+    @Param({"default", "scalar"})
+    public String kernel; // Arithmetic of the network benchmarks
+
+    /**
+     * Selects the kernel.
+     *
+     * @param workloads The new workloads
+     */
+    @Override
+    protected void prepare(Workloads workloads) {
+        workloads.useKernel(kernel.equals("scalar"));
+    }
+
+    /**
+     * Measures {@link Workloads#networkFull()}.
+     *
+     * @return The score
+     */
+    @Benchmark
+    public long networkFull() {
+        return workloads.networkFull();
+    }
+
+    /**
+     * Measures {@link Workloads#networkUpdate()}.
+     *
+     * @return The score
+     */
+    @Benchmark
+    public long networkUpdate() {
+        return workloads.networkUpdate();
+    }
+}
@@ -0,0 +1,23 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmark of perft from the start of the standard game, the generator's throughput including making and
+ * taking back moves. The depth is set with {@code -p depth=N}.
+ */
+public class PerftBenchmark extends WorkloadBenchmark {
+    @Param("7")
+    public int depth; // Plies to expand
+
+    /**
+     * Measures {@link Workloads#perft(int)}.
+     *
+     * @return Number of leaf positions
+     */
+    @Benchmark
+    public long perft() {
+        return workloads.perft(depth);
+    }
+}
@@ -0,0 +1,23 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmark of the AI's decision time: a fixed-depth search of a game position. The depth is set with
+ * {@code -p depth=N}.
+ */
+public class SearchBenchmark extends WorkloadBenchmark {
+    @Param("8")
+    public int depth; // Search depth in plies
+
+    /**
+     * Measures {@link Workloads#search(int)}.
+     *
+     * @return The best move
+     */
+    @Benchmark
+    public long search() {
+        return workloads.search(depth);
+    }
+}
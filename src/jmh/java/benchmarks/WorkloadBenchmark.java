@@ -0,0 +1,47 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings shared by every benchmark: throughput in operations per second over one second iterations, three
+ * of them to warm up and five measured, in a forked JVM with the vector module enabled. Each benchmark thread
+ * gets its own {@link Workloads}. Run with {@code -prof gc} for the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public abstract class WorkloadBenchmark {
+    protected Workloads workloads; // The engine operations
+
+    /**
+     * Creates the workloads before the first iteration.
+     *
+     * @throws ReflectiveOperationException if the workloads cannot be created
+     */
+    @Setup
+    public void createWorkloads() throws ReflectiveOperationException {
+        workloads = Workloads.create();
+        prepare(workloads);
+    }
+
+    /**
+     * Sets up the workloads for the benchmarks of a subclass; does nothing unless overridden.
+     *
+     * @param workloads The new workloads
+     */
+    protected void prepare(Workloads workloads) {
+    }
+}
@@ -0,0 +1,135 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * The operations the benchmarks measure. The engine lives in the unnamed package, which JMH does not generate
+ * code for and named packages cannot import, so the benchmarks reach it through this interface, implemented by
+ * {@code CheckersWorkloads} in the unnamed package of the same source set. Each benchmark method calls one
+ * operation, so every call site sees a single implementation and the JIT inlines it.
+ * Operations on positions take the next of a fixed set of positions on every call and return a value derived
+ * from the result, which JMH consumes.
+ */
+public interface Workloads {
+    /**
+     * Creates the workloads and builds their positions.
+     *
+     * @return The workloads
+     * @throws ReflectiveOperationException if the implementation cannot be created
+     */
+    static Workloads create() throws ReflectiveOperationException {
+        try {
+            return (Workloads) Class.forName("CheckersWorkloads").getDeclaredConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Generates all moves of a game position.
+     *
+     * @return Number of moves
+     */
+    long generateMoves();
+
+    /**
+     * Generates all moves of an endgame in which every piece is a flying king.
+     *
+     * @return Number of moves
+     */
+    long generateKingMoves();
+
+    /**
+     * Generates all moves of an international position in which capture sequences must be searched.
+     *
+     * @return Number of moves
+     */
+    long generateSequences();
+
+    /**
+     * Checks whether the side to move has a move.
+     *
+     * @return 1 if it has, otherwise 0
+     */
+    long hasMoves();
+
+    /**
+     * Lists all moves of a game position as Move objects.
+     *
+     * @return Number of moves
+     */
+    long getAllPossibleMoves();
+
+    /**
+     * Lists the moves of one piece as Move objects.
+     *
+     * @return Number of moves
+     */
+    long getPossibleMovesForPiece();
+
+    /**
+     * Generates the moves of one piece into a buffer.
+     *
+     * @return Number of moves
+     */
+    long generateMovesForPiece();
+
+    /**
+     * Checks a move given by its squares, legal or not.
+     *
+     * @return 1 if the move is legal, otherwise 0
+     */
+    long isValidMove();
+
+    /**
+     * Checks a move of a flying king given by its squares.
+     *
+     * @return 1 if the move is legal, otherwise 0
+     */
+    long isValidKingMove();
+
+    /**
+     * Evaluates a position with the default evaluation weights.
+     *
+     * @return The score
+     */
+    long evaluate();
+
+    /**
+     * Selects the arithmetic of the network benchmarks.
+     *
+     * @param scalar True for the scalar kernel, false for the network's own kernel (SIMD when the vector module
+     *               is enabled)
+     */
+    void useKernel(boolean scalar);
+
+    /**
+     * Evaluates a position with the network, computing the accumulator from scratch.
+     *
+     * @return The score
+     */
+    long networkFull();
+
+    /**
+     * Evaluates the position after a move with the network, updating the accumulator of the position before it.
+     *
+     * @return The score
+     */
+    long networkUpdate();
+
+    /**
+     * Counts the positions reachable from the start of the standard game.
+     *
+     * @param depth Number of plies
+     * @return Number of leaf positions
+     */
+    long perft(int depth);
+
+    /**
+     * Searches a position to a fixed depth, starting from an empty transposition table.
+     *
+     * @param depth Search depth in plies
+     * @return The best move
+     */
+    long search(int depth);
+}